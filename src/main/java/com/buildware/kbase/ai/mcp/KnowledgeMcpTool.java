@@ -2,12 +2,15 @@ package com.buildware.kbase.ai.mcp;
 
 import com.buildware.kbase.spi.KnowledgeIngestionSPI;
 import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestCommand;
+import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestJobView;
 import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestSummaryView;
+import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeUpsertSummaryView;
 import com.buildware.kbase.spi.KnowledgeSearchSPI;
 import com.buildware.kbase.spi.KnowledgeSearchSPI.KnowledgeHitView;
 import com.buildware.kbase.spi.KnowledgeSearchSPI.KnowledgeQuery;
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.tool.annotation.Tool;
 import org.springframework.stereotype.Component;
@@ -35,6 +38,11 @@ public class KnowledgeMcpTool {
         description = """
             Semantic search over a project's knowledge.
             Provide projectCode, text, optional topK, optional tags.
+            Optional oversampling (e.g. 10-40) widens the candidate set for better recall at some latency.
+            Optional efSearch (e.g. 40-400) widens the index search the same way; raise it when filtered
+            searches return fewer hits than expected.
+            Instead of text you may pass vector, a query embedding you already have, together with the
+            model that produced it; it must match the server's embedding model and dimensions.
             Returns ranked snippets with source to ground your answers.
             """
     )
@@ -53,4 +61,43 @@ public class KnowledgeMcpTool {
     public KnowledgeIngestSummaryView ingest(@Valid KnowledgeIngestCommand request) {
         return maintenanceSPI.ingest(request);
     }
+
+    @Tool(
+        name = "knowledge.upsert",
+        description = """
+            Update a document in project knowledge after it changed.
+            Provide projectCode, docPath, the full new content, optional tags.
+            Only changed chunks are re-embedded; removed chunks are deleted.
+            """
+    )
+    public KnowledgeUpsertSummaryView upsert(@Valid KnowledgeIngestCommand request) {
+        return maintenanceSPI.upsert(request);
+    }
+
+    @Tool(
+        name = "knowledge.ingest.submit",
+        description = """
+            Queue long-form text for asynchronous ingestion into project knowledge.
+            Provide projectCode, content, optional tags.
+            Returns a jobId immediately; poll knowledge.ingest.status for progress.
+            """
+    )
+    public KnowledgeIngestJobView submitIngest(@Valid KnowledgeIngestCommand request) {
+        return maintenanceSPI.submit(request);
+    }
+
+    @Tool(
+        name = "knowledge.ingest.status",
+        description = """
+            Get the status of an asynchronous ingestion job.
+            Provide the jobId returned by knowledge.ingest.submit.
+            Returns status, chunks embedded/total and any error.
+            """
+    )
+    public KnowledgeIngestJobView ingestStatus(@Valid IngestJobInput input) {
+        return maintenanceSPI.getJob(input.jobId())
+            .orElseThrow(() -> new IllegalArgumentException("Ingest job not found: " + input.jobId()));
+    }
+
+    public record IngestJobInput(UUID jobId) {}
 }
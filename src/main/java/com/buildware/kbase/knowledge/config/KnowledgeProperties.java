@@ -0,0 +1,289 @@
+package com.buildware.kbase.knowledge.config;
+
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Tunables for the knowledge module, bound from {@code kbase.knowledge.*}.
+ *
+ * @param embeddingModel name of the embedding model used to key cached embeddings
+ * @param embeddingCache chunk embedding cache settings
+ * @param ingest         synchronous ingestion settings
+ * @param ingestJobs     asynchronous ingestion queue settings
+ * @param sync           filesystem sync of project base paths
+ * @param embedding      batching, concurrency and rate limits of embedding requests
+ * @param storage        storage of chunk embeddings in {@code vector_store}
+ * @param search         similarity search settings
+ * @param queryEmbeddingCache in-process cache of query embeddings
+ * @param resultCache    in-process cache of search results
+ * @param semanticCache  in-process cache of search results matched by query embedding
+ * @param queryEmbeddingBatch micro-batching of query embedding requests
+ */
+@ConfigurationProperties(prefix = "kbase.knowledge")
+public record KnowledgeProperties(
+    @DefaultValue("text-embedding-3-small") String embeddingModel,
+    @DefaultValue EmbeddingCache embeddingCache,
+    @DefaultValue Ingest ingest,
+    @DefaultValue IngestJobs ingestJobs,
+    @DefaultValue Sync sync,
+    @DefaultValue Embedding embedding,
+    @DefaultValue Storage storage,
+    @DefaultValue Search search,
+    @DefaultValue QueryEmbeddingCache queryEmbeddingCache,
+    @DefaultValue ResultCache resultCache,
+    @DefaultValue SemanticCache semanticCache,
+    @DefaultValue QueryEmbeddingBatch queryEmbeddingBatch
+) {
+
+    /**
+     * Chunk embedding cache settings.
+     *
+     * @param enabled          when false every chunk is embedded and nothing is cached
+     * @param memoryMaxEntries size of the in-memory tier in front of Postgres; {@code 0} disables it
+     */
+    public record EmbeddingCache(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long memoryMaxEntries
+    ) {
+
+    }
+
+    /**
+     * Ingestion settings.
+     *
+     * @param batchSize         number of chunks embedded and stored per step; progress is reported after each step
+     * @param bulkBatchTokens   approximate number of tokens buffered across documents before a bulk ingest embeds and
+     *                          stores them
+     * @param streamWindowChars characters of a streamed document buffered before they are split into chunks
+     */
+    public record Ingest(
+        @DefaultValue("64") int batchSize,
+        @DefaultValue("8000") int bulkBatchTokens,
+        @DefaultValue("65536") int streamWindowChars
+    ) {
+
+    }
+
+    /**
+     * Asynchronous ingestion queue settings.
+     *
+     * @param enabled           whether in-process workers drain the queue
+     * @param workers           number of virtual-thread workers
+     * @param pollInterval      how long an idle worker waits before polling the queue again
+     * @param staleAfter        running jobs without a heartbeat for this long are re-queued
+     * @param metricsInterval   refresh interval of the queue depth and lag gauges
+     * @param heartbeatInterval how often workers renew the heartbeat of the jobs they process
+     * @param requeueInterval   how often running jobs are checked for a lapsed heartbeat
+     */
+    public record IngestJobs(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("4") int workers,
+        @DefaultValue("PT1S") Duration pollInterval,
+        @DefaultValue("PT2M") Duration staleAfter,
+        @DefaultValue("PT10S") Duration metricsInterval,
+        @DefaultValue("PT30S") Duration heartbeatInterval,
+        @DefaultValue("PT1M") Duration requeueInterval
+    ) {
+
+    }
+
+    /**
+     * Filesystem sync of project base paths.
+     *
+     * @param enabled      whether base paths are synced on a schedule; opt-in, since it reads the server's filesystem
+     * @param interval     delay between the end of one sync pass and the start of the next
+     * @param initialDelay delay before the first pass after startup
+     * @param parallelism  maximum number of files ingested concurrently
+     * @param extensions   file extensions (without dot, case-insensitive) that are synced
+     * @param maxFileSize  larger files are skipped
+     * @param watch        near-real-time watching of base paths
+     */
+    public record Sync(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("PT5M") Duration interval,
+        @DefaultValue("PT1M") Duration initialDelay,
+        @DefaultValue("4") int parallelism,
+        @DefaultValue({"md", "mdx", "markdown", "txt", "adoc", "rst"}) List<String> extensions,
+        @DefaultValue("10MB") DataSize maxFileSize,
+        @DefaultValue Watch watch
+    ) {
+
+    }
+
+    /**
+     * Watching of base paths for file changes between sync passes.
+     *
+     * @param enabled         whether base paths are watched
+     * @param debounce        quiet period a file must have before it is synced; repeated saves within it are coalesced
+     * @param maxPendingPaths bound of the pending change queue; beyond it the affected project is rescanned instead
+     */
+    public record Watch(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("PT2S") Duration debounce,
+        @DefaultValue("10000") int maxPendingPaths
+    ) {
+
+    }
+
+    /**
+     * Scheduling of embedding requests to the provider.
+     *
+     * @param maxBatchTokens    token budget of one embedding request, counted locally
+     * @param maxBatchSize      maximum number of inputs in one embedding request
+     * @param maxConcurrency    upper bound of requests in flight; the effective limit adapts to rate limiting
+     * @param tokensPerMinute   provider token quota; {@code 0} disables the limit
+     * @param requestsPerMinute provider request quota; {@code 0} disables the limit
+     * @param maxRetries        transiently failed attempts of one batch before giving up
+     * @param initialBackoff    pause after the first transient failure, doubled on each further one
+     * @param maxBackoff        upper bound of the pause
+     */
+    public record Embedding(
+        @DefaultValue("8000") int maxBatchTokens,
+        @DefaultValue("2048") int maxBatchSize,
+        @DefaultValue("4") int maxConcurrency,
+        @DefaultValue("1000000") long tokensPerMinute,
+        @DefaultValue("3000") long requestsPerMinute,
+        @DefaultValue("8") int maxRetries,
+        @DefaultValue("PT1S") Duration initialBackoff,
+        @DefaultValue("PT1M") Duration maxBackoff
+    ) {
+
+    }
+
+    /**
+     * Storage of chunk embeddings in {@code vector_store}.
+     *
+     * @param embeddingType          column type embeddings are kept in; the column is converted online when it
+     *                               differs
+     * @param coarseDimensions       when positive, only this many leading dimensions of each embedding are indexed
+     *                               and the full vectors are used to rescore candidates; {@code 0} indexes the full
+     *                               vectors
+     * @param binaryQuantization     index one sign bit per dimension under Hamming distance instead, rescoring
+     *                               candidates with the full vectors; takes precedence over {@code coarseDimensions}
+     * @param conversionBatchSize    rows copied into the converted column per statement
+     * @param conversionInterval     delay between checks of the column layout; also bounds how long an instance keeps
+     *                               querying with the old layout after another instance changed it
+     * @param loadMaintenanceWorkMem {@code maintenance_work_mem} for building the indexes of a bulk load; HNSW builds
+     *                               are much faster while the graph fits in it
+     * @param loadParallelWorkers    {@code max_parallel_maintenance_workers} for building the indexes of a bulk load
+     */
+    public record Storage(
+        @DefaultValue("VECTOR") EmbeddingType embeddingType,
+        @DefaultValue("0") int coarseDimensions,
+        @DefaultValue("false") boolean binaryQuantization,
+        @DefaultValue("5000") int conversionBatchSize,
+        @DefaultValue("PT1M") Duration conversionInterval,
+        @DefaultValue("1GB") DataSize loadMaintenanceWorkMem,
+        @DefaultValue("4") int loadParallelWorkers
+    ) {
+
+    }
+
+    /**
+     * Similarity search settings.
+     *
+     * @param rescoreCandidates minimum number of candidates taken from a coarse index and rescored with the full
+     *                          vectors
+     * @param oversampling      candidates taken per requested hit when the request sets no oversampling
+     * @param maxCandidates     upper bound of candidates, whatever the request asks for
+     * @param recallSampleRate  fraction of searches repeated exactly in the background to measure recall;
+     *                          {@code 0} disables sampling
+     * @param efSearch          HNSW candidate list size when the request sets none; raised to the rows a search needs
+     * @param maxEfSearch       upper bound of the candidate list size a request may ask for
+     * @param iterativeScan     let HNSW scans of searches filtered by tags continue until enough rows pass the filter;
+     *                          ignored when the installed pgvector is older than 0.8
+     * @param maxScanTuples     upper bound of index tuples an iterative scan visits
+     */
+    public record Search(
+        @DefaultValue("100") int rescoreCandidates,
+        @DefaultValue("10") int oversampling,
+        @DefaultValue("1000") int maxCandidates,
+        @DefaultValue("0") double recallSampleRate,
+        @DefaultValue("40") int efSearch,
+        @DefaultValue("400") int maxEfSearch,
+        @DefaultValue("true") boolean iterativeScan,
+        @DefaultValue("20000") int maxScanTuples
+    ) {
+
+    }
+
+    /**
+     * In-process cache of search query embeddings, keyed by embedding model and normalized query text.
+     *
+     * @param enabled    when false every query is embedded
+     * @param maxEntries maximum number of cached query embeddings; least recently used entries are evicted first
+     * @param ttl        how long a query embedding is kept after it was computed
+     */
+    public record QueryEmbeddingCache(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long maxEntries,
+        @DefaultValue("PT1H") Duration ttl
+    ) {
+
+    }
+
+    /**
+     * In-process cache of search results, keyed by the normalized request and the knowledge version of its project.
+     *
+     * @param enabled    when false every search runs
+     * @param maxEntries maximum number of cached results; least recently used entries are evicted first
+     * @param ttl        how long a result is kept
+     */
+    public record ResultCache(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1000") long maxEntries,
+        @DefaultValue("PT5M") Duration ttl
+    ) {
+
+    }
+
+    /**
+     * In-process cache of search results matched by query embedding, so paraphrased queries reuse the hits of a recent
+     * search with the same parameters and knowledge version.
+     *
+     * @param enabled       when false only equal requests share results
+     * @param minSimilarity cosine similarity a query embedding needs to a cached one to reuse its hits
+     * @param maxEntries    queries kept per project; least recently used entries are evicted first
+     * @param ttl           how long cached hits are kept
+     */
+    public record SemanticCache(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("0.95") double minSimilarity,
+        @DefaultValue("256") int maxEntries,
+        @DefaultValue("PT5M") Duration ttl
+    ) {
+
+    }
+
+    /**
+     * Micro-batching of query embeddings: distinct queries arriving within a short window are embedded in one request.
+     *
+     * @param window  how long a batch collects queries after its first one; zero embeds every query on its own
+     * @param maxSize queries per batch; a full batch is sent at once
+     */
+    public record QueryEmbeddingBatch(
+        @DefaultValue("PT0.005S") Duration window,
+        @DefaultValue("64") int maxSize
+    ) {
+
+    }
+
+    /**
+     * pgvector column types for embeddings.
+     */
+    public enum EmbeddingType {
+
+        /**
+         * 32-bit floats.
+         */
+        VECTOR,
+
+        /**
+         * 16-bit floats; half the table and HNSW index size at a negligible loss of recall.
+         */
+        HALFVEC
+    }
+}
@@ -0,0 +1,4 @@
+@ApplicationModule(displayName = "Knowledge Configuration")
+package com.buildware.kbase.knowledge.config;
+
+import org.springframework.modulith.ApplicationModule;
@@ -0,0 +1,37 @@
+package com.buildware.kbase.knowledge.domain;
+
+/**
+ * Outcome of one document of a bulk ingest.
+ *
+ * @param index          1-based position of the document in the bulk input
+ * @param projectCode    project the document targeted
+ * @param outcome        what happened to the document
+ * @param ingestedChunks number of stored chunks for the content
+ * @param error          failure reason when {@code outcome} is {@link Outcome#FAILED}
+ */
+public record BulkIngestResult(
+    int index,
+    String projectCode,
+    Outcome outcome,
+    int ingestedChunks,
+    String error
+) {
+
+    public static BulkIngestResult ingested(int index, String projectCode, int ingestedChunks) {
+        return new BulkIngestResult(index, projectCode, Outcome.INGESTED, ingestedChunks, null);
+    }
+
+    public static BulkIngestResult duplicate(int index, String projectCode, int ingestedChunks) {
+        return new BulkIngestResult(index, projectCode, Outcome.DUPLICATE, ingestedChunks, null);
+    }
+
+    public static BulkIngestResult failed(int index, String projectCode, String error) {
+        return new BulkIngestResult(index, projectCode, Outcome.FAILED, 0, error);
+    }
+
+    public enum Outcome {
+        INGESTED,
+        DUPLICATE,
+        FAILED
+    }
+}
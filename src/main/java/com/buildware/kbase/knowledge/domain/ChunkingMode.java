@@ -0,0 +1,27 @@
+package com.buildware.kbase.knowledge.domain;
+
+/**
+ * How a document is split into chunks.
+ */
+public enum ChunkingMode {
+
+    /**
+     * Pick {@link #MARKDOWN} or {@link #CODE} from the document path or content, otherwise {@link #TOKEN}.
+     */
+    AUTO,
+
+    /**
+     * Fixed-size token windows preferably ending at a sentence or line break.
+     */
+    TOKEN,
+
+    /**
+     * Markdown sections split at headings and packed up to the token budget; code blocks are never cut.
+     */
+    MARKDOWN,
+
+    /**
+     * Source code split at top-level declarations and packed up to the token budget.
+     */
+    CODE
+}
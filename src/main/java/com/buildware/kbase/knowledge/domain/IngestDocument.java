@@ -8,7 +8,13 @@ import java.util.List;
 public record IngestDocument(
     String projectCode,
     String content,
-    List<String> tags
+    List<String> tags,
+    String docPath,
+    String title,
+    ChunkingMode chunking
 ) {
 
+    public IngestDocument withChunking(ChunkingMode chunking) {
+        return new IngestDocument(projectCode, content, tags, docPath, title, chunking);
+    }
 }
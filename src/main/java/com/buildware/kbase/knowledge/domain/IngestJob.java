@@ -0,0 +1,98 @@
+package com.buildware.kbase.knowledge.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.With;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UuidGenerator;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * Asynchronous ingestion request persisted in the {@code ingest_jobs} queue.
+ */
+@Entity
+@Table(name = "ingest_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@With
+public class IngestJob {
+
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    private UUID id;
+
+    @Column(name = "project_code", nullable = false, length = 128)
+    private String projectCode;
+
+    /**
+     * Document content; released once the job has finished.
+     */
+    @Column(columnDefinition = "text")
+    private String content;
+
+    @Column(name = "doc_path", length = 1024)
+    private String docPath;
+
+    @Column(length = 512)
+    private String title;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private List<String> tags;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private ChunkingMode chunking;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Status status;
+
+    @Column(name = "chunks_total")
+    private Integer chunksTotal;
+
+    @Column(name = "chunks_embedded", nullable = false)
+    private int chunksEmbedded;
+
+    @Column(name = "ingested_chunks")
+    private Integer ingestedChunks;
+
+    @Column(columnDefinition = "text")
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+}
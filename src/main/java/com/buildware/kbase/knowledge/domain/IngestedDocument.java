@@ -0,0 +1,53 @@
+package com.buildware.kbase.knowledge.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.With;
+import org.hibernate.annotations.UuidGenerator;
+
+/**
+ * Ledger entry recording that a document's content was ingested into a project.
+ */
+@Entity
+@Table(name = "ingested_documents")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@With
+public class IngestedDocument {
+
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    private UUID id;
+
+    @Column(name = "project_code", nullable = false, length = 128)
+    private String projectCode;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "chunk_count", nullable = false)
+    private int chunkCount;
+
+    @Column(name = "doc_path", length = 1024)
+    private String docPath;
+
+    @Column(name = "ingested_at", nullable = false)
+    private Instant ingestedAt;
+
+    @Column(length = 128)
+    private String model;
+}
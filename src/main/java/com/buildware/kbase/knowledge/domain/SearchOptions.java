@@ -0,0 +1,14 @@
+package com.buildware.kbase.knowledge.domain;
+
+/**
+ * Per-request search tuning; {@code null} fields fall back to the configured defaults.
+ *
+ * @param oversampling candidates taken from a coarse (truncated or binary) index per requested hit before they are
+ *                     rescored with the full vectors; higher improves recall at the cost of latency
+ * @param efSearch     size of the HNSW candidate list ({@code hnsw.ef_search}) for this search; higher improves
+ *                     recall at the cost of latency, capped server-side
+ */
+public record SearchOptions(Integer oversampling, Integer efSearch) {
+
+    public static final SearchOptions DEFAULTS = new SearchOptions(null, null);
+}
@@ -0,0 +1,56 @@
+package com.buildware.kbase.knowledge.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.With;
+import org.hibernate.annotations.UuidGenerator;
+
+/**
+ * A file of a project's base path as seen by the last filesystem sync.
+ */
+@Entity
+@Table(name = "synced_files")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@With
+public class SyncedFile {
+
+    @Id
+    @GeneratedValue
+    @UuidGenerator
+    private UUID id;
+
+    @Column(name = "project_code", nullable = false, length = 128)
+    private String projectCode;
+
+    @Column(name = "doc_path", nullable = false, length = 1024)
+    private String docPath;
+
+    @Column(name = "size_bytes", nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "modified_at", nullable = false)
+    private Instant modifiedAt;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "chunk_count", nullable = false)
+    private int chunkCount;
+
+    @Column(name = "synced_at", nullable = false)
+    private Instant syncedAt;
+}
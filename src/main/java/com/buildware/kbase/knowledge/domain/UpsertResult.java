@@ -0,0 +1,22 @@
+package com.buildware.kbase.knowledge.domain;
+
+/**
+ * Outcome of re-ingesting a document by its path.
+ *
+ * @param projectCode     project the document belongs to
+ * @param docPath         source path of the document
+ * @param totalChunks     number of chunks of the new document version
+ * @param embeddedChunks  chunks that were new and had to be embedded and inserted
+ * @param unchangedChunks chunks kept from the previous version
+ * @param deletedChunks   chunks of the previous version that no longer exist
+ */
+public record UpsertResult(
+    String projectCode,
+    String docPath,
+    int totalChunks,
+    int embeddedChunks,
+    int unchangedChunks,
+    int deletedChunks
+) {
+
+}
@@ -0,0 +1,98 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import com.buildware.kbase.knowledge.mapper.ChunkingStrategy.TextChunk;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Greedy packing of consecutive structural pieces (sections, blocks, lines) into chunks up to the token budget. A
+ * piece that alone exceeds the budget is refined into smaller pieces by the next refiner, and split into token windows
+ * when no refiner is left. Pieces keep their line breaks so a chunk is an exact slice of the document.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class ChunkPacker {
+
+    static final int MAX_TOKENS = TokenTextChunker.CHUNK_SIZE;
+
+    static List<TextChunk> pack(List<Piece> pieces, List<Function<Piece, List<Piece>>> refiners) {
+        List<TextChunk> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        String section = null;
+        int tokens = 0;
+        for (Piece piece : pieces) {
+            if (piece.tokens() > MAX_TOKENS) {
+                flush(chunks, current, section);
+                tokens = 0;
+                chunks.addAll(refine(piece, refiners));
+                continue;
+            }
+            if (tokens + piece.tokens() > MAX_TOKENS) {
+                flush(chunks, current, section);
+                tokens = 0;
+            }
+            if (current.isEmpty()) {
+                section = piece.section();
+            }
+            current.append(piece.text());
+            tokens += piece.tokens();
+        }
+        flush(chunks, current, section);
+        return chunks;
+    }
+
+    private static List<TextChunk> refine(Piece piece, List<Function<Piece, List<Piece>>> refiners) {
+        if (!refiners.isEmpty()) {
+            List<Piece> smaller = refiners.getFirst().apply(piece);
+            if (smaller.size() > 1) {
+                return pack(smaller, refiners.subList(1, refiners.size()));
+            }
+            return refine(piece, refiners.subList(1, refiners.size()));
+        }
+        return TokenTextChunker.split(piece.text()).chunks().stream()
+            .map(text -> new TextChunk(text, piece.section()))
+            .toList();
+    }
+
+    private static void flush(List<TextChunk> chunks, StringBuilder current, String section) {
+        String text = current.toString().strip();
+        current.setLength(0);
+        if (text.length() > TokenTextChunker.MIN_CHUNK_LENGTH_TO_EMBED) {
+            chunks.add(new TextChunk(text, section));
+        }
+    }
+
+    /**
+     * Split text into lines, each keeping its line break.
+     */
+    static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+
+    /**
+     * A structural piece of a document.
+     *
+     * @param text    exact text including line breaks
+     * @param section section the piece belongs to
+     * @param tokens  token count of {@code text}
+     */
+    record Piece(String text, String section, int tokens) {
+
+        static Piece of(String text, String section) {
+            return new Piece(text, section, TokenTextChunker.countTokens(text));
+        }
+    }
+}
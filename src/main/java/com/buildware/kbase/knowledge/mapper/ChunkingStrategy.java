@@ -0,0 +1,50 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import com.buildware.kbase.knowledge.domain.ChunkingMode;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Splits document text into chunks. Implementations are Spring beans picked by {@link #mode()}; adding a bean with a
+ * new mode makes it selectable per project and per request.
+ */
+public interface ChunkingStrategy {
+
+    /**
+     * Mode this strategy implements.
+     */
+    ChunkingMode mode();
+
+    /**
+     * Split text into chunks of at most {@value TokenTextChunker#CHUNK_SIZE} tokens.
+     *
+     * @param text document text
+     * @return chunks in document order and the token count of the text
+     */
+    Chunks split(String text);
+
+    /**
+     * Title of a document that was ingested without one; the file name of its path by default.
+     *
+     * @param text    document text
+     * @param docPath document path, may be {@code null}
+     * @return derived title, or {@code null}
+     */
+    default String title(String text, String docPath) {
+        return StringUtils.isBlank(docPath) ? null : StringUtils.substringAfterLast("/" + docPath, "/");
+    }
+
+    /**
+     * One chunk and the section it starts in, e.g. a heading trail or a declaration; {@code null} when unknown.
+     */
+    record TextChunk(String text, String section) {
+
+    }
+
+    /**
+     * Chunks of a document and the number of tokens of its text.
+     */
+    record Chunks(List<TextChunk> chunks, int tokens) {
+
+    }
+}
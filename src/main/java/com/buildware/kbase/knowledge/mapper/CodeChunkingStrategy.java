@@ -0,0 +1,118 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import com.buildware.kbase.knowledge.domain.ChunkingMode;
+import com.buildware.kbase.knowledge.mapper.ChunkPacker.Piece;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Splits source code at top-level declarations and packs consecutive declarations up to the token budget, without
+ * parsing any particular language: a blank-line separated block whose first line is not indented starts a new
+ * declaration. Oversized declarations are split into their blank-line separated blocks (e.g. methods), then into
+ * lines. Chunks are labelled with the declaration line they start in.
+ */
+@Component
+public class CodeChunkingStrategy implements ChunkingStrategy {
+
+    private static final int MAX_SECTION_LENGTH = 120;
+
+    @Override
+    public ChunkingMode mode() {
+        return ChunkingMode.CODE;
+    }
+
+    @Override
+    public Chunks split(String text) {
+        List<Piece> declarations = declarations(text);
+        List<Function<Piece, List<Piece>>> refiners = List.of(CodeChunkingStrategy::blocks, CodeChunkingStrategy::lines);
+        return new Chunks(ChunkPacker.pack(declarations, refiners),
+            declarations.stream().mapToInt(Piece::tokens).sum());
+    }
+
+    private static List<Piece> declarations(String text) {
+        List<Piece> declarations = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String block : blankLineBlocks(text)) {
+            if (!current.isEmpty() && startsDeclaration(block)) {
+                declarations.add(declaration(current.toString(), null));
+                current.setLength(0);
+            }
+            current.append(block);
+        }
+        if (!current.isEmpty()) {
+            declarations.add(declaration(current.toString(), null));
+        }
+        return declarations;
+    }
+
+    private static List<Piece> blocks(Piece declaration) {
+        return blankLineBlocks(declaration.text()).stream()
+            .map(block -> declaration(block, declaration.section()))
+            .toList();
+    }
+
+    private static List<Piece> lines(Piece block) {
+        return ChunkPacker.lines(block.text()).stream()
+            .map(line -> Piece.of(line, block.section()))
+            .toList();
+    }
+
+    private static Piece declaration(String text, String parent) {
+        String signature = signature(text);
+        if (parent == null || signature == null || signature.equals(parent)) {
+            return Piece.of(text, parent == null ? signature : parent);
+        }
+        return Piece.of(text, parent + MarkdownChunkingStrategy.SECTION_SEPARATOR + signature);
+    }
+
+    /**
+     * Split text after each run of blank lines; the blank lines stay with the block before them.
+     */
+    private static List<String> blankLineBlocks(String text) {
+        List<String> blocks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean hasContent = false;
+        boolean afterBlank = false;
+        for (String line : ChunkPacker.lines(text)) {
+            if (line.isBlank()) {
+                afterBlank = true;
+            } else {
+                if (afterBlank && hasContent) {
+                    blocks.add(current.toString());
+                    current.setLength(0);
+                }
+                hasContent = true;
+                afterBlank = false;
+            }
+            current.append(line);
+        }
+        if (!current.isEmpty()) {
+            blocks.add(current.toString());
+        }
+        return blocks;
+    }
+
+    private static boolean startsDeclaration(String block) {
+        String first = block.lines().filter(l -> !l.isBlank()).findFirst().orElse("");
+        if (first.isEmpty() || Character.isWhitespace(first.charAt(0))) {
+            return false;
+        }
+        return !StringUtils.startsWithAny(first, "}", ")", "]", "end");
+    }
+
+    /**
+     * First line of a block that is not a comment or annotation, e.g. {@code public class Foo {}}.
+     */
+    private static String signature(String block) {
+        for (String line : block.lines().toList()) {
+            String stripped = line.strip();
+            if (!stripped.isEmpty() && !StringUtils.startsWithAny(stripped, "//", "/*", "*", "#", "@", "--")) {
+                return StringUtils.abbreviate(stripped, MAX_SECTION_LENGTH);
+            }
+        }
+        return null;
+    }
+}
@@ -1,90 +1,218 @@
 package com.buildware.kbase.knowledge.mapper;
 
+import com.buildware.kbase.knowledge.domain.ChunkingMode;
 import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.mapper.ChunkingStrategy.Chunks;
+import com.buildware.kbase.knowledge.mapper.ChunkingStrategy.TextChunk;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
-import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.stereotype.Component;
 
+/**
+ * Turns documents into chunk {@link Document}s with the chunking strategy selected for them: the strategy requested for
+ * the document, or for {@link ChunkingMode#AUTO} one derived from the document path and content.
+ */
 @Component
-@RequiredArgsConstructor
 public class DocumentChunkMapper {
 
     public static final String MD_CHUNK_INDEX = "chunkIndex";
     public static final String MD_TOTAL_CHUNKS = "totalChunks";
     public static final String MD_PROJECT_CODE = "projectCode";
     public static final String MD_CONTENT_HASH = "contentHash";
+    public static final String MD_CHUNK_HASH = "chunkHash";
     public static final String MD_TAGS = "tags";
-    public static final String MD_TYPE = "type";
-    public static final String MD_MARKER_TYPE = "marker";
+    public static final String MD_DOC_PATH = "docPath";
+    public static final String MD_TITLE = "title";
+
+    private static final Set<String> MARKDOWN_EXTENSIONS = Set.of("md", "mdx", "markdown");
+    private static final Set<String> CODE_EXTENSIONS = Set.of(
+        "java", "kt", "kts", "scala", "groovy", "py", "js", "jsx", "ts", "tsx", "go", "rs", "c", "h", "cc", "cpp",
+        "hpp", "cs", "rb", "php", "swift", "sql", "sh");
+    private static final Pattern MARKDOWN_HEADING = Pattern.compile("(?m)^#{1,6} \\S");
+
+    private final MeterRegistry meterRegistry;
+    private final Map<ChunkingMode, ChunkingStrategy> strategies = new EnumMap<>(ChunkingMode.class);
+
+    public DocumentChunkMapper(MeterRegistry meterRegistry, List<ChunkingStrategy> strategies) {
+        this.meterRegistry = meterRegistry;
+        strategies.forEach(s -> this.strategies.put(s.mode(), s));
+        this.strategies.putIfAbsent(ChunkingMode.TOKEN, new TokenChunkingStrategy());
+    }
 
     public List<Document> toDocuments(IngestDocument doc) {
-        List<Document> docs = DocumentChunker.toDocuments(doc);
+        return toDocuments(doc, DocumentChunker.sha256Hex(doc.content()));
+    }
+
+    /**
+     * Split a document into chunks using an already computed content hash.
+     */
+    public List<Document> toDocuments(IngestDocument doc, String contentHash) {
+        long start = System.nanoTime();
+        Chunked chunked = chunk(doc, contentHash);
+        recordThroughput(chunked.tokens(), System.nanoTime() - start);
+        return chunked.docs();
+    }
+
+    /**
+     * Split several documents in parallel on the fork-join pool.
+     *
+     * @param docs          documents to split
+     * @param contentHashes content hash of each document, in the same order
+     * @return chunks of each document, in the order of {@code docs}
+     */
+    public List<List<Document>> toDocuments(List<IngestDocument> docs, List<String> contentHashes) {
+        long start = System.nanoTime();
+        List<Chunked> chunked = IntStream.range(0, docs.size())
+            .parallel()
+            .mapToObj(i -> chunk(docs.get(i), contentHashes.get(i)))
+            .toList();
+        recordThroughput(chunked.stream().mapToLong(Chunked::tokens).sum(), System.nanoTime() - start);
+        return chunked.stream().map(Chunked::docs).toList();
+    }
 
+    private Chunked chunk(IngestDocument doc, String contentHash) {
+        long start = System.nanoTime();
+        Chunked chunked = DocumentChunker.chunk(doc, contentHash, strategyFor(doc));
+        List<Document> docs = chunked.docs();
         int total = docs.size();
         for (int i = 0; i < total; i++) {
-            docs.get(i).getMetadata().put(MD_CHUNK_INDEX, i);
             docs.get(i).getMetadata().put(MD_TOTAL_CHUNKS, total);
         }
-        return docs;
+        meterRegistry.timer("kbase.chunking.duration").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("kbase.chunking.tokens").increment(chunked.tokens());
+        return chunked;
     }
 
-    @NoArgsConstructor(access = AccessLevel.PRIVATE)
-    public static class DocumentChunker {
+    /**
+     * Strategy for a document: the requested one, otherwise Markdown or code by file extension, Markdown when the
+     * content has Markdown headings, and token windows for everything else.
+     */
+    ChunkingStrategy strategyFor(IngestDocument doc) {
+        ChunkingMode mode = doc.chunking() == null ? ChunkingMode.AUTO : doc.chunking();
+        if (mode == ChunkingMode.AUTO) {
+            String extension = StringUtils.substringAfterLast(Objects.toString(doc.docPath(), ""), ".")
+                .toLowerCase(Locale.ROOT);
+            if (MARKDOWN_EXTENSIONS.contains(extension)) {
+                mode = ChunkingMode.MARKDOWN;
+            } else if (CODE_EXTENSIONS.contains(extension)) {
+                mode = ChunkingMode.CODE;
+            } else if (MARKDOWN_HEADING.matcher(doc.content()).find()) {
+                mode = ChunkingMode.MARKDOWN;
+            } else {
+                mode = ChunkingMode.TOKEN;
+            }
+        }
+        return strategies.getOrDefault(mode, strategies.get(ChunkingMode.TOKEN));
+    }
 
-        private static final String MARKER_PREFIX = "__KBASE_MARKER__:";
+    private void recordThroughput(long tokens, long elapsedNanos) {
+        if (tokens > 0 && elapsedNanos > 0) {
+            DistributionSummary.builder("kbase.chunking.throughput")
+                .baseUnit("tokens/s")
+                .register(meterRegistry)
+                .record(tokens * 1e9 / elapsedNanos);
+        }
+    }
 
-        public static List<Document> toDocuments(IngestDocument doc) {
+    /**
+     * Chunks of one document and the number of tokens of its text.
+     */
+    public record Chunked(List<Document> docs, int tokens) {
 
-            var contentHash = sha256Hex(doc.content());
+    }
+
+    @NoArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class DocumentChunker {
 
-            Document source = new Document(doc.content());
-            source.getMetadata().put(MD_PROJECT_CODE, doc.projectCode());
-            source.getMetadata().put(MD_CONTENT_HASH, contentHash);
+        /**
+         * Split a document with the given strategy into chunks carrying the given content hash, also returning its
+         * token count. Chunks are titled with the document title (or the one derived by the strategy) followed by the
+         * section they start in.
+         */
+        public static Chunked chunk(IngestDocument doc, String contentHash, ChunkingStrategy strategy) {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put(MD_PROJECT_CODE, doc.projectCode());
+            metadata.put(MD_CONTENT_HASH, contentHash);
             if (doc.tags() != null && !doc.tags().isEmpty()) {
-                source.getMetadata().put(MD_TAGS, doc.tags());
+                metadata.put(MD_TAGS, doc.tags());
             }
+            if (doc.docPath() != null) {
+                metadata.put(MD_DOC_PATH, doc.docPath());
+            }
+            String docTitle = doc.title() != null ? doc.title() : strategy.title(doc.content(), doc.docPath());
 
-            List<Document> splitDocs = new TokenTextSplitter().apply(List.of(source));
-
-            List<Document> toStore = new ArrayList<>(splitDocs.size() + 1);
-            for (int index = 0; index < splitDocs.size(); index++) {
-                Document d = splitDocs.get(index);
-                d.getMetadata().put(MD_CHUNK_INDEX, index);
-                toStore.add(d);
+            Chunks chunks = strategy.split(doc.content());
+            List<Document> toStore = new ArrayList<>(chunks.chunks().size());
+            for (int index = 0; index < chunks.chunks().size(); index++) {
+                TextChunk chunk = chunks.chunks().get(index);
+                Map<String, Object> chunkMetadata = new HashMap<>(metadata);
+                chunkMetadata.put(MD_CHUNK_INDEX, index);
+                chunkMetadata.put(MD_CHUNK_HASH, sha256Hex(chunk.text()));
+                String title = title(docTitle, chunk.section());
+                if (title != null) {
+                    chunkMetadata.put(MD_TITLE, title);
+                }
+                toStore.add(new Document(chunk.text(), chunkMetadata));
             }
+            return new Chunked(toStore, chunks.tokens());
+        }
 
-            String tag = doc.projectCode() + "|" + contentHash;
-            String markerText = MARKER_PREFIX + tag;
-            Document marker = new Document(markerText);
-            marker.getMetadata().put(MD_TYPE, DocumentChunkMapper.MD_MARKER_TYPE);
-            marker.getMetadata().put(MD_PROJECT_CODE, doc.projectCode());
-            marker.getMetadata().put(MD_CONTENT_HASH, contentHash);
-            toStore.add(marker);
+        private static String title(String docTitle, String section) {
+            if (section == null) {
+                return docTitle;
+            }
+            if (docTitle == null || section.startsWith(docTitle)) {
+                return section;
+            }
+            return docTitle + MarkdownChunkingStrategy.SECTION_SEPARATOR + section;
+        }
 
-            return toStore;
+        /**
+         * Hex-encoded SHA-256 of the UTF-8 bytes of {@code text}.
+         */
+        public static String sha256Hex(String text) {
+            return toHex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
         }
 
-        private static String sha256Hex(String text) {
+        /**
+         * A new SHA-256 digest, for hashing content that is read incrementally.
+         */
+        public static MessageDigest sha256() {
             try {
-                MessageDigest md = MessageDigest.getInstance("SHA-256");
-                byte[] digest = md.digest(text.getBytes(StandardCharsets.UTF_8));
-                StringBuilder sb = new StringBuilder(digest.length * 2);
-                for (byte b : digest) {
-                    sb.append(Character.forDigit((b >> 4) & 0xF, 16));
-                    sb.append(Character.forDigit((b & 0xF), 16));
-                }
-                return sb.toString();
+                return MessageDigest.getInstance("SHA-256");
             } catch (NoSuchAlgorithmException e) {
                 throw new IllegalStateException("SHA-256 not available", e);
             }
         }
+
+        /**
+         * Lower-case hex encoding of a digest.
+         */
+        public static String toHex(byte[] digest) {
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit((b & 0xF), 16));
+            }
+            return sb.toString();
+        }
     }
 }
@@ -3,9 +3,14 @@ package com.buildware.kbase.knowledge.mapper;
 import static org.mapstruct.MappingConstants.ComponentModel.SPRING;
 
 import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestJob;
+import com.buildware.kbase.knowledge.domain.UpsertResult;
 import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestCommand;
+import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestJobView;
 import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestSummaryView;
+import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeUpsertSummaryView;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.ReportingPolicy;
 
 @Mapper(
@@ -18,5 +23,10 @@ public interface KnowledgeIngestionMapper {
     IngestDocument toDomain(KnowledgeIngestCommand command);
 
     KnowledgeIngestSummaryView toSummaryView(IngestDocument doc, int ingestedChunks);
+
+    KnowledgeUpsertSummaryView toUpsertView(UpsertResult result);
+
+    @Mapping(target = "jobId", source = "id")
+    KnowledgeIngestJobView toJobView(IngestJob job);
 }
 
@@ -0,0 +1,131 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import com.buildware.kbase.knowledge.domain.ChunkingMode;
+import com.buildware.kbase.knowledge.mapper.ChunkPacker.Piece;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.stereotype.Component;
+
+/**
+ * Splits Markdown at ATX headings and packs consecutive sections up to the token budget. Each chunk is labelled with
+ * the heading trail of the section it starts in. Oversized sections are split at blank lines and then into token
+ * windows; fenced code blocks are never cut at a heading or blank line.
+ */
+@Component
+public class MarkdownChunkingStrategy implements ChunkingStrategy {
+
+    static final String SECTION_SEPARATOR = " › ";
+
+    private static final Pattern HEADING = Pattern.compile("^ {0,3}(#{1,6})\\s+(.*?)(?:\\s+#+)?\\s*$");
+
+    @Override
+    public ChunkingMode mode() {
+        return ChunkingMode.MARKDOWN;
+    }
+
+    @Override
+    public Chunks split(String text) {
+        List<Piece> sections = sections(text);
+        return new Chunks(ChunkPacker.pack(sections, List.of(MarkdownChunkingStrategy::blocks)),
+            sections.stream().mapToInt(Piece::tokens).sum());
+    }
+
+    @Override
+    public String title(String text, String docPath) {
+        Fence fence = new Fence();
+        for (String line : ChunkPacker.lines(text)) {
+            if (fence.update(line)) {
+                continue;
+            }
+            Matcher heading = HEADING.matcher(line.stripTrailing());
+            if (heading.matches() && heading.group(1).length() == 1) {
+                return heading.group(2);
+            }
+        }
+        return ChunkingStrategy.super.title(text, docPath);
+    }
+
+    private static List<Piece> sections(String text) {
+        List<Piece> sections = new ArrayList<>();
+        Deque<Heading> trail = new ArrayDeque<>();
+        StringBuilder current = new StringBuilder();
+        String section = null;
+        Fence fence = new Fence();
+        for (String line : ChunkPacker.lines(text)) {
+            Matcher heading = fence.update(line) ? null : HEADING.matcher(line.stripTrailing());
+            if (heading != null && heading.matches()) {
+                if (!current.isEmpty()) {
+                    sections.add(Piece.of(current.toString(), section));
+                    current.setLength(0);
+                }
+                int level = heading.group(1).length();
+                while (!trail.isEmpty() && trail.peekLast().level() >= level) {
+                    trail.removeLast();
+                }
+                trail.addLast(new Heading(level, heading.group(2)));
+                section = String.join(SECTION_SEPARATOR, trail.stream().map(Heading::text).toList());
+            }
+            current.append(line);
+        }
+        if (!current.isEmpty()) {
+            sections.add(Piece.of(current.toString(), section));
+        }
+        return sections;
+    }
+
+    private static List<Piece> blocks(Piece section) {
+        List<Piece> blocks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean hasContent = false;
+        Fence fence = new Fence();
+        for (String line : ChunkPacker.lines(section.text())) {
+            boolean inFence = fence.update(line);
+            current.append(line);
+            if (!inFence && line.isBlank() && hasContent) {
+                blocks.add(Piece.of(current.toString(), section.section()));
+                current.setLength(0);
+                hasContent = false;
+            } else if (!line.isBlank()) {
+                hasContent = true;
+            }
+        }
+        if (!current.isEmpty()) {
+            blocks.add(Piece.of(current.toString(), section.section()));
+        }
+        return blocks;
+    }
+
+    private record Heading(int level, String text) {
+
+    }
+
+    /**
+     * Tracks whether the current line is inside a fenced code block.
+     */
+    private static final class Fence {
+
+        private boolean open;
+        private String marker;
+
+        /**
+         * Feed the next line and tell whether it is a fence line or inside a fenced block.
+         */
+        boolean update(String line) {
+            String stripped = line.strip();
+            if (stripped.startsWith("```") || stripped.startsWith("~~~")) {
+                if (!open) {
+                    open = true;
+                    marker = stripped.substring(0, 3);
+                } else if (stripped.startsWith(marker)) {
+                    open = false;
+                }
+                return true;
+            }
+            return open;
+        }
+    }
+}
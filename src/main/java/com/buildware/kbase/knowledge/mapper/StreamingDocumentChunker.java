@@ -0,0 +1,97 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import static com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.MD_CHUNK_HASH;
+import static com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.MD_CHUNK_INDEX;
+import static com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.MD_CONTENT_HASH;
+import static com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.MD_DOC_PATH;
+import static com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.MD_PROJECT_CODE;
+import static com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.MD_TAGS;
+
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.DocumentChunker;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.ai.document.Document;
+
+/**
+ * Splits text that arrives incrementally. Text is buffered until a window is full, then split with the same
+ * {@link TokenTextChunker} used for whole documents; the text of each window from where its last, possibly incomplete
+ * chunk began is carried over into the next one as read, so words cut by the window boundary and short tails are kept.
+ * Memory use is bounded by the window size rather than the document size.
+ *
+ * <p>Chunks carry project, tag, content hash, index and chunk hash metadata. The content hash is computed by the caller
+ * up front, e.g. while spooling the document; the total chunk count is only known once the whole document has been
+ * read and must be attached afterwards.
+ */
+public class StreamingDocumentChunker {
+
+    private final String projectCode;
+    private final List<String> tags;
+    private final String docPath;
+    private final String contentHash;
+    private final int windowChars;
+    private final StringBuilder buffer = new StringBuilder();
+    private int nextIndex;
+
+    public StreamingDocumentChunker(String projectCode, List<String> tags, String docPath, String contentHash,
+        int windowChars) {
+        this.projectCode = projectCode;
+        this.tags = tags;
+        this.docPath = docPath;
+        this.contentHash = contentHash;
+        this.windowChars = windowChars;
+    }
+
+    /**
+     * Append text and return the chunks completed by it.
+     */
+    public List<Document> append(char[] text, int offset, int length) {
+        buffer.append(text, offset, length);
+        if (buffer.length() < windowChars) {
+            return List.of();
+        }
+        String text = buffer.toString();
+        buffer.setLength(0);
+        TokenTextChunker.Window window = TokenTextChunker.splitWindow(text);
+        buffer.append(window.rest());
+        return toDocuments(window.chunks());
+    }
+
+    /**
+     * Split the remaining buffered text.
+     */
+    public List<Document> finish() {
+        return toDocuments(split());
+    }
+
+    /**
+     * Number of chunks produced so far.
+     */
+    public int chunkCount() {
+        return nextIndex;
+    }
+
+    private List<String> split() {
+        String text = buffer.toString();
+        buffer.setLength(0);
+        return TokenTextChunker.split(text).chunks();
+    }
+
+    private List<Document> toDocuments(List<String> pieces) {
+        List<Document> docs = new ArrayList<>(pieces.size());
+        for (String piece : pieces) {
+            Document d = new Document(piece);
+            d.getMetadata().put(MD_PROJECT_CODE, projectCode);
+            if (tags != null && !tags.isEmpty()) {
+                d.getMetadata().put(MD_TAGS, tags);
+            }
+            if (docPath != null) {
+                d.getMetadata().put(MD_DOC_PATH, docPath);
+            }
+            d.getMetadata().put(MD_CONTENT_HASH, contentHash);
+            d.getMetadata().put(MD_CHUNK_INDEX, nextIndex++);
+            d.getMetadata().put(MD_CHUNK_HASH, DocumentChunker.sha256Hex(piece));
+            docs.add(d);
+        }
+        return docs;
+    }
+}
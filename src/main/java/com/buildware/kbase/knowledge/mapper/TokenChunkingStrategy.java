@@ -0,0 +1,23 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import com.buildware.kbase.knowledge.domain.ChunkingMode;
+import com.buildware.kbase.knowledge.mapper.TokenTextChunker.Split;
+import org.springframework.stereotype.Component;
+
+/**
+ * Structure-agnostic fixed-size token windows, see {@link TokenTextChunker}.
+ */
+@Component
+public class TokenChunkingStrategy implements ChunkingStrategy {
+
+    @Override
+    public ChunkingMode mode() {
+        return ChunkingMode.TOKEN;
+    }
+
+    @Override
+    public Chunks split(String text) {
+        Split split = TokenTextChunker.split(text);
+        return new Chunks(split.chunks().stream().map(chunk -> new TextChunk(chunk, null)).toList(), split.tokens());
+    }
+}
@@ -0,0 +1,179 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+/**
+ * Token-based text splitting with the same rules and defaults as Spring AI's {@code TokenTextSplitter}, so chunk
+ * boundaries and chunk hashes stay identical, but sharing one thread-safe {@code cl100k_base} encoder across all calls
+ * and threads instead of loading it per splitter. The text is encoded once and windows are decoded straight from the
+ * token array, without intermediate {@code Document} copies or boxed token lists.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TokenTextChunker {
+
+    static final int CHUNK_SIZE = 800;
+    static final int MIN_CHUNK_SIZE_CHARS = 350;
+    static final int MIN_CHUNK_LENGTH_TO_EMBED = 5;
+    static final int MAX_NUM_CHUNKS = 10000;
+
+    private static final Encoding ENCODING =
+        Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    /**
+     * Split text into chunks of at most {@value #CHUNK_SIZE} tokens, preferably ending at a sentence or line break.
+     *
+     * @param text text to split
+     * @return chunks and the number of tokens of the whole text
+     */
+    public static Split split(String text) {
+        Pieces pieces = chunk(text);
+        return new Split(pieces.chunks(), pieces.tokens());
+    }
+
+    /**
+     * Split the leading part of a text that is still growing. The last chunk may change once more text follows, so it
+     * is not returned; instead the untrimmed text from where it began, including any trailing piece too short to become
+     * a chunk of its own, is returned to be prepended to the text that follows. The rest is cut from the source text at
+     * the start of the character holding the last chunk's first token, since decoded chunks differ from the source
+     * where a token boundary splits a multi-byte character.
+     *
+     * @param text text read so far
+     * @return all chunks but the last, and the rest of the text
+     */
+    static Window splitWindow(String text) {
+        Pieces pieces = chunk(text);
+        if (pieces.chunks().isEmpty()) {
+            return new Window(List.of(), text == null || text.isBlank() ? "" : text);
+        }
+        List<String> complete = pieces.chunks().subList(0, pieces.chunks().size() - 1);
+        return new Window(complete, text.substring(charOffset(text, pieces.encoded(), pieces.lastStart())));
+    }
+
+    /**
+     * Offset in {@code text} of the character in which token {@code token} of its encoding begins.
+     */
+    private static int charOffset(String text, IntArrayList tokens, int token) {
+        int bytes = ENCODING.decodeBytes(slice(tokens, 0, token)).length;
+        int offset = 0;
+        while (offset < text.length()) {
+            int codePoint = text.codePointAt(offset);
+            int length = utf8Length(codePoint);
+            if (length > bytes) {
+                break;
+            }
+            bytes -= length;
+            offset += Character.charCount(codePoint);
+        }
+        return offset;
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80) {
+            return 1;
+        }
+        if (codePoint < 0x800) {
+            return 2;
+        }
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    private static Pieces chunk(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return new Pieces(List.of(), new IntArrayList(0), 0);
+        }
+        IntArrayList tokens = ENCODING.encode(text);
+        int total = tokens.size();
+        List<String> chunks = new ArrayList<>(total / CHUNK_SIZE + 1);
+        int start = 0;
+        int lastStart = 0;
+        int count = 0;
+        while (start < total && count < MAX_NUM_CHUNKS) {
+            int end = Math.min(start + CHUNK_SIZE, total);
+            String chunkText = decode(tokens, start, end);
+            if (chunkText.trim().isEmpty()) {
+                start = end;
+                continue;
+            }
+            int lastPunctuation = lastPunctuation(chunkText);
+            if (lastPunctuation != -1 && lastPunctuation > MIN_CHUNK_SIZE_CHARS) {
+                chunkText = chunkText.substring(0, lastPunctuation + 1);
+            }
+            String chunk = chunkText.trim();
+            if (chunk.length() > MIN_CHUNK_LENGTH_TO_EMBED) {
+                chunks.add(chunk);
+                lastStart = start;
+            }
+            start += ENCODING.countTokens(chunkText);
+            count++;
+        }
+        if (start < total) {
+            String remaining = decode(tokens, start, total).replace(System.lineSeparator(), " ").trim();
+            if (remaining.length() > MIN_CHUNK_LENGTH_TO_EMBED) {
+                chunks.add(remaining);
+                lastStart = start;
+            }
+        }
+        return new Pieces(chunks, tokens, lastStart);
+    }
+
+    /**
+     * Number of tokens of {@code text}.
+     */
+    public static int countTokens(String text) {
+        return text == null || text.isEmpty() ? 0 : ENCODING.countTokens(text);
+    }
+
+    private static String decode(IntArrayList tokens, int from, int to) {
+        return ENCODING.decode(slice(tokens, from, to));
+    }
+
+    private static IntArrayList slice(IntArrayList tokens, int from, int to) {
+        IntArrayList slice = new IntArrayList(to - from);
+        for (int i = from; i < to; i++) {
+            slice.add(tokens.get(i));
+        }
+        return slice;
+    }
+
+    private static int lastPunctuation(String text) {
+        return Math.max(text.lastIndexOf('.'),
+            Math.max(text.lastIndexOf('?'), Math.max(text.lastIndexOf('!'), text.lastIndexOf('\n'))));
+    }
+
+    /**
+     * Result of splitting a text.
+     *
+     * @param chunks chunk texts in order
+     * @param tokens number of tokens of the whole text
+     */
+    public record Split(List<String> chunks, int tokens) {
+
+    }
+
+    /**
+     * Result of splitting the leading part of a growing text.
+     *
+     * @param chunks chunk texts that are complete, in order
+     * @param rest   untrimmed text from where the last chunk began
+     */
+    record Window(List<String> chunks, String rest) {
+
+    }
+
+    /**
+     * Chunks of a text with its encoding and the index of the token at which the last chunk began.
+     */
+    private record Pieces(List<String> chunks, IntArrayList encoded, int lastStart) {
+
+        int tokens() {
+            return encoded.size();
+        }
+    }
+}
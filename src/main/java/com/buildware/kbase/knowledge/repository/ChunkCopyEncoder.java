@@ -0,0 +1,117 @@
+package com.buildware.kbase.knowledge.repository;
+
+import static com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository.CHUNK_INDEX;
+import static com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository.CONTENT_HASH;
+import static com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository.DOC_PATH;
+import static com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository.PROJECT_CODE;
+import static com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository.intValue;
+import static com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository.stringValue;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.EmbeddingType;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.ColumnType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.ai.document.Document;
+
+/**
+ * Encodes chunk rows in the binary format of PostgreSQL's {@code COPY}, so they are loaded without parsing text: a
+ * signature and header, then per row a field count and length-prefixed fields in the receive format of each column
+ * type, then a trailer.
+ */
+final class ChunkCopyEncoder {
+
+    /**
+     * Columns in the order rows are encoded.
+     */
+    static final String COLUMNS = "id, content, metadata, embedding, project_code, content_hash, doc_path, chunk_index";
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final int FIELDS = 8;
+    private static final int UUID_BYTES = 16;
+    private static final int JSONB_VERSION = 1;
+    private static final int NULL = -1;
+
+    private ChunkCopyEncoder() {
+    }
+
+    /**
+     * Encode chunks with their embeddings as one {@code COPY ... (FORMAT binary)} stream.
+     *
+     * @param chunks       chunk documents; ids must be UUIDs
+     * @param embeddings   embeddings in the same order as {@code chunks}
+     * @param column       type of the embedding column
+     * @param objectMapper serializer of the chunk metadata
+     * @return complete stream including header and trailer
+     */
+    static byte[] encode(List<Document> chunks, List<float[]> embeddings, ColumnType column, ObjectMapper objectMapper) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.write(SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // header extension length
+            for (int i = 0; i < chunks.size(); i++) {
+                Document chunk = chunks.get(i);
+                Map<String, Object> metadata = chunk.getMetadata();
+                UUID id = UUID.fromString(chunk.getId());
+                out.writeShort(FIELDS);
+                out.writeInt(UUID_BYTES);
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+                writeText(out, chunk.getText());
+                byte[] json = objectMapper.writeValueAsBytes(metadata);
+                out.writeInt(json.length + 1);
+                out.writeByte(JSONB_VERSION);
+                out.write(json);
+                writeVector(out, embeddings.get(i), column.type());
+                writeText(out, stringValue(metadata.get(PROJECT_CODE)));
+                writeText(out, stringValue(metadata.get(CONTENT_HASH)));
+                writeText(out, stringValue(metadata.get(DOC_PATH)));
+                Integer chunkIndex = intValue(metadata.get(CHUNK_INDEX));
+                if (chunkIndex == null) {
+                    out.writeInt(NULL);
+                } else {
+                    out.writeInt(Integer.BYTES);
+                    out.writeInt(chunkIndex);
+                }
+            }
+            out.writeShort(NULL);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode chunk rows", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * pgvector receive format: dimensions and an unused short, then one float per dimension ({@code vector}) or one
+     * IEEE half-precision float per dimension ({@code halfvec}).
+     */
+    private static void writeVector(DataOutputStream out, float[] vector, EmbeddingType type) throws IOException {
+        boolean half = type == EmbeddingType.HALFVEC;
+        out.writeInt(2 * Short.BYTES + vector.length * (half ? Short.BYTES : Float.BYTES));
+        out.writeShort(vector.length);
+        out.writeShort(0);
+        for (float value : vector) {
+            if (half) {
+                out.writeShort(Float.floatToFloat16(value));
+            } else {
+                out.writeFloat(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.buildware.kbase.knowledge.repository;
+
+import com.pgvector.PGvector;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC access to the {@code embedding_cache} table.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmbeddingCacheRepository {
+
+    private static final String SELECT_SQL = """
+        SELECT content_hash, embedding
+        FROM embedding_cache
+        WHERE model = ? AND content_hash = ANY (?)
+        """;
+
+    private static final String INSERT_SQL = """
+        INSERT INTO embedding_cache (content_hash, model, embedding)
+        VALUES (?, ?, ?)
+        ON CONFLICT (content_hash, model) DO NOTHING
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Look up cached embeddings for the given chunk hashes.
+     *
+     * @param model         embedding model name
+     * @param contentHashes chunk SHA-256 hashes
+     * @return embeddings keyed by hash; hashes without a cached embedding are absent
+     */
+    public Map<String, float[]> findAll(String model, Collection<String> contentHashes) {
+        Map<String, float[]> found = new HashMap<>();
+        if (contentHashes.isEmpty()) {
+            return found;
+        }
+        jdbcTemplate.query(SELECT_SQL, ps -> {
+            ps.setString(1, model);
+            ps.setArray(2, toTextArray(ps, contentHashes));
+        }, rs -> {
+            found.put(rs.getString("content_hash"), new PGvector(rs.getString("embedding")).toArray());
+        });
+        return found;
+    }
+
+    /**
+     * Store embeddings for the given chunk hashes. Existing entries are left untouched.
+     *
+     * @param model      embedding model name
+     * @param embeddings embeddings keyed by chunk hash
+     */
+    public void saveAll(String model, Map<String, float[]> embeddings) {
+        if (embeddings.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, float[]>> entries = new ArrayList<>(embeddings.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<String, float[]> entry = entries.get(i);
+                ps.setString(1, entry.getKey());
+                ps.setString(2, model);
+                ps.setObject(3, new PGvector(entry.getValue()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    private static Array toTextArray(PreparedStatement ps, Collection<String> values) throws SQLException {
+        return ps.getConnection().createArrayOf("varchar", values.toArray());
+    }
+}
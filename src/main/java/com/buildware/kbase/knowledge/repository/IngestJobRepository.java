@@ -0,0 +1,61 @@
+package com.buildware.kbase.knowledge.repository;
+
+import com.buildware.kbase.knowledge.domain.IngestJob;
+import com.buildware.kbase.knowledge.domain.IngestJob.Status;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface IngestJobRepository extends JpaRepository<IngestJob, UUID> {
+
+    /**
+     * Lock the oldest queued job whose project has no running or older queued job. Jobs locked by other workers are
+     * skipped, which keeps ingestion ordered per project while different projects drain in parallel.
+     */
+    @Query(value = """
+        SELECT j.*
+        FROM ingest_jobs j
+        WHERE j.status = 'QUEUED'
+          AND NOT EXISTS (SELECT 1
+                          FROM ingest_jobs o
+                          WHERE o.project_code = j.project_code
+                            AND (o.status = 'RUNNING' OR (o.status = 'QUEUED' AND o.created_at < j.created_at)))
+        ORDER BY j.created_at
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    Optional<IngestJob> findNextClaimable();
+
+    long countByStatus(Status status);
+
+    @Query("select min(j.createdAt) from IngestJob j where j.status = :status")
+    Optional<Instant> findOldestCreatedAt(@Param("status") Status status);
+
+    @Modifying
+    @Query("update IngestJob j set j.chunksEmbedded = :embedded, j.chunksTotal = :total where j.id = :id")
+    int updateProgress(@Param("id") UUID id, @Param("embedded") int embedded, @Param("total") int total);
+
+    @Modifying
+    @Query("update IngestJob j set j.heartbeatAt = :now where j.id in :ids and j.status = :running")
+    int renewHeartbeats(
+        @Param("ids") Collection<UUID> ids,
+        @Param("now") Instant now,
+        @Param("running") Status running
+    );
+
+    @Modifying
+    @Query("""
+        update IngestJob j set j.status = :queued, j.startedAt = null, j.heartbeatAt = null
+        where j.status = :running and coalesce(j.heartbeatAt, j.startedAt) < :cutoff
+        """)
+    int requeueStale(
+        @Param("cutoff") Instant cutoff,
+        @Param("running") Status running,
+        @Param("queued") Status queued
+    );
+}
@@ -0,0 +1,24 @@
+package com.buildware.kbase.knowledge.repository;
+
+import com.buildware.kbase.knowledge.domain.IngestedDocument;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface IngestedDocumentRepository extends JpaRepository<IngestedDocument, UUID> {
+
+    /**
+     * Any ledger entry of the content in the project; several document paths may share it.
+     */
+    Optional<IngestedDocument> findFirstByProjectCodeAndContentHash(String projectCode, String contentHash);
+
+    List<IngestedDocument> findAllByProjectCodeAndDocPath(String projectCode, String docPath);
+
+    @Modifying
+    @Query("delete from IngestedDocument d where d.projectCode = :projectCode")
+    int deleteAllByProjectCode(@Param("projectCode") String projectCode);
+}
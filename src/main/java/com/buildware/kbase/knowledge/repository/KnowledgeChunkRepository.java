@@ -0,0 +1,291 @@
+package com.buildware.kbase.knowledge.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.Validate;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * JDBC access to the {@code vector_store} table for chunks whose embeddings were computed by the application.
+ */
+@Repository
+@RequiredArgsConstructor
+public class KnowledgeChunkRepository {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO vector_store (id, content, metadata, embedding, project_code, content_hash, doc_path, chunk_index,
+                                  pending)
+        VALUES\s""";
+    private static final String INSERT_ROW = "(?, ?, ?::jsonb, %s, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 9;
+
+    /**
+     * Metadata keys copied to typed columns on insert.
+     */
+    static final String PROJECT_CODE = "projectCode";
+    static final String CONTENT_HASH = "contentHash";
+    static final String DOC_PATH = "docPath";
+    static final String CHUNK_INDEX = "chunkIndex";
+
+    /**
+     * Rows per multi-row INSERT; keeps statements well below the protocol limit of 65535 bind parameters.
+     */
+    private static final int ROWS_PER_STATEMENT = 500;
+
+    private static final String FINALIZE_SQL = """
+        UPDATE vector_store
+        SET content_hash = ?,
+            pending = false,
+            metadata = metadata || jsonb_build_object('contentHash', ?::text, 'totalChunks', ?::int)
+        WHERE id = ANY (?)
+        """;
+
+    private static final String SELECT_BY_DOC_PATH_SQL = """
+        SELECT id, metadata ->> 'chunkHash' AS chunk_hash
+        FROM vector_store
+        WHERE project_code = ? AND doc_path = ? AND NOT pending
+        """;
+
+    private static final String UPDATE_POSITION_SQL = """
+        UPDATE vector_store
+        SET chunk_index = ?,
+            content_hash = ?,
+            metadata = metadata || jsonb_build_object('chunkIndex', ?::int, 'totalChunks', ?::int, 'contentHash', ?::text)
+        WHERE id = ?
+        """;
+
+    private static final String DELETE_SQL = "DELETE FROM vector_store WHERE id = ANY (?)";
+
+    private static final String DELETE_PENDING_SQL = "DELETE FROM vector_store WHERE project_code = ? AND content_hash = ? AND pending";
+
+    private static final String DELETE_BY_DOC_PATH_SQL = "DELETE FROM vector_store WHERE project_code = ? AND doc_path = ?";
+
+    private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtextextended(?, 0))";
+
+    private static final String TRY_SHARED_LOCK_SQL = "SELECT pg_try_advisory_xact_lock_shared(hashtextextended(?, 0))";
+
+    /**
+     * Advisory lock key of a project's bulk load, held exclusively by {@link VectorStoreLoadRepository} for the whole
+     * load and shared by every ingest transaction of the project.
+     */
+    static final String LOAD_LOCK = "%s|load";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final VectorStoreSchemaRepository schema;
+
+    /**
+     * Insert chunks together with their precomputed embeddings using multi-row INSERT statements.
+     *
+     * @param chunks     chunk documents; ids must be UUIDs
+     * @param embeddings embeddings in the same order as {@code chunks}
+     */
+    @Transactional
+    public void saveAll(List<Document> chunks, List<float[]> embeddings) {
+        insert(chunks, embeddings, false);
+    }
+
+    /**
+     * Insert chunks of a document that is still being read. They stay pending, skipped by searches and upserts, until
+     * {@link #finalizeChunks(List, String, int)} completes them.
+     *
+     * @param chunks     chunk documents; ids must be UUIDs
+     * @param embeddings embeddings in the same order as {@code chunks}
+     */
+    @Transactional
+    public void savePending(List<Document> chunks, List<float[]> embeddings) {
+        insert(chunks, embeddings, true);
+    }
+
+    private void insert(List<Document> chunks, List<float[]> embeddings, boolean pending) {
+        Validate.isTrue(chunks.size() == embeddings.size(), "Each chunk requires exactly one embedding");
+        for (int from = 0; from < chunks.size(); from += ROWS_PER_STATEMENT) {
+            int to = Math.min(from + ROWS_PER_STATEMENT, chunks.size());
+            insertRows(chunks.subList(from, to), embeddings.subList(from, to), pending);
+        }
+    }
+
+    private void insertRows(List<Document> chunks, List<float[]> embeddings, boolean pending) {
+        String row = INSERT_ROW.formatted(schema.embeddingColumn().parameter());
+        String sql = INSERT_SQL + String.join(", ", Collections.nCopies(chunks.size(), row));
+        jdbcTemplate.update(sql, ps -> {
+            for (int i = 0; i < chunks.size(); i++) {
+                Document chunk = chunks.get(i);
+                int offset = i * COLUMNS;
+                ps.setObject(offset + 1, UUID.fromString(chunk.getId()));
+                ps.setString(offset + 2, chunk.getText());
+                ps.setString(offset + 3, toJson(chunk));
+                ps.setObject(offset + 4, new PGvector(embeddings.get(i)));
+                Map<String, Object> metadata = chunk.getMetadata();
+                ps.setString(offset + 5, stringValue(metadata.get(PROJECT_CODE)));
+                ps.setString(offset + 6, stringValue(metadata.get(CONTENT_HASH)));
+                ps.setString(offset + 7, stringValue(metadata.get(DOC_PATH)));
+                ps.setObject(offset + 8, intValue(metadata.get(CHUNK_INDEX)), Types.INTEGER);
+                ps.setBoolean(offset + 9, pending);
+            }
+        });
+    }
+
+    /**
+     * Complete pending chunks that were stored before the whole document was read: attach the total chunk count and
+     * make them visible to searches.
+     *
+     * @param ids         ids of the stored chunks
+     * @param contentHash SHA-256 of the full document content
+     * @param totalChunks number of chunks of the document
+     * @return number of completed chunks; fewer than {@code ids} when some were deleted meanwhile
+     */
+    public int finalizeChunks(List<UUID> ids, String contentHash, int totalChunks) {
+        return jdbcTemplate.update(FINALIZE_SQL, ps -> {
+            ps.setString(1, contentHash);
+            ps.setString(2, contentHash);
+            ps.setInt(3, totalChunks);
+            ps.setArray(4, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+        });
+    }
+
+    /**
+     * Find the chunks stored for a document.
+     *
+     * @param projectCode project scope
+     * @param docPath     source path of the document
+     * @return ids and chunk hashes of the stored chunks
+     */
+    public List<StoredChunk> findByDocPath(String projectCode, String docPath) {
+        return jdbcTemplate.query(SELECT_BY_DOC_PATH_SQL,
+            (rs, rowNum) -> new StoredChunk(rs.getObject("id", UUID.class), rs.getString("chunk_hash")),
+            projectCode, docPath);
+    }
+
+    /**
+     * Move kept chunks to their position in a new version of their document.
+     *
+     * @param ids         ids of the kept chunks
+     * @param indexes     new chunk index of each kept chunk
+     * @param totalChunks number of chunks of the new document version
+     * @param contentHash SHA-256 of the new document content
+     */
+    public void updatePositions(List<UUID> ids, List<Integer> indexes, int totalChunks, String contentHash) {
+        Validate.isTrue(ids.size() == indexes.size(), "Each chunk requires exactly one index");
+        jdbcTemplate.batchUpdate(UPDATE_POSITION_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setInt(1, indexes.get(i));
+                ps.setString(2, contentHash);
+                ps.setInt(3, indexes.get(i));
+                ps.setInt(4, totalChunks);
+                ps.setString(5, contentHash);
+                ps.setObject(6, ids.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ids.size();
+            }
+        });
+    }
+
+    /**
+     * Delete chunks by id.
+     *
+     * @param ids ids of the chunks to delete
+     */
+    public void deleteAll(List<UUID> ids) {
+        jdbcTemplate.update(DELETE_SQL, ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray())));
+    }
+
+    /**
+     * Delete pending chunks of a content, left behind by a streamed ingest that was interrupted before it completed.
+     *
+     * @param projectCode project scope
+     * @param contentHash SHA-256 of the full document content
+     * @return number of deleted chunks
+     */
+    public int deletePending(String projectCode, String contentHash) {
+        return jdbcTemplate.update(DELETE_PENDING_SQL, projectCode, contentHash);
+    }
+
+    /**
+     * Delete all chunks stored for a document.
+     *
+     * @param projectCode project scope
+     * @param docPath     source path of the document
+     * @return number of deleted chunks
+     */
+    public int deleteByDocPath(String projectCode, String docPath) {
+        return jdbcTemplate.update(DELETE_BY_DOC_PATH_SQL, projectCode, docPath);
+    }
+
+    /**
+     * Serialize concurrent ingests of the same content within a project. The lock is held until the surrounding
+     * transaction completes.
+     *
+     * @param projectCode project scope
+     * @param contentHash SHA-256 of the full document content
+     * @throws IllegalStateException when a bulk load of the project is running
+     */
+    public void lockContent(String projectCode, String contentHash) {
+        lockProject(projectCode);
+        jdbcTemplate.queryForList(LOCK_SQL, projectCode + "|" + contentHash);
+    }
+
+    /**
+     * Serialize concurrent upserts of the same document path within a project. The lock is held until the surrounding
+     * transaction completes.
+     *
+     * @param projectCode project scope
+     * @param docPath     source path of the document
+     * @throws IllegalStateException when a bulk load of the project is running
+     */
+    public void lockDocPath(String projectCode, String docPath) {
+        lockProject(projectCode);
+        jdbcTemplate.queryForList(LOCK_SQL, projectCode + "|path|" + docPath);
+    }
+
+    /**
+     * Keep a bulk load of the project from starting until the surrounding transaction completes, since its swap would
+     * discard what the transaction writes; fail when one is running instead of waiting for it.
+     */
+    private void lockProject(String projectCode) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_SHARED_LOCK_SQL, Boolean.class,
+            LOAD_LOCK.formatted(projectCode)))) {
+            throw new IllegalStateException("Project " + projectCode + " is being bulk loaded; retry the ingest later");
+        }
+    }
+
+    static String stringValue(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    static Integer intValue(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
+    }
+
+    private String toJson(Document chunk) {
+        try {
+            return objectMapper.writeValueAsString(chunk.getMetadata());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize chunk metadata", e);
+        }
+    }
+
+    /**
+     * Id and content hash of a stored chunk.
+     */
+    public record StoredChunk(UUID id, String chunkHash) {
+
+    }
+}
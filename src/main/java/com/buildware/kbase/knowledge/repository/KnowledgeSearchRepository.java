@@ -0,0 +1,167 @@
+package com.buildware.kbase.knowledge.repository;
+
+import static com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.EMBEDDING;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.domain.KnowledgeHit;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.ColumnType;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.IndexKind;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.Layout;
+import com.pgvector.PGvector;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Cosine similarity search over {@code vector_store} through its HNSW index. The query vector is cast to the type of
+ * the embedding column, so search works the same whether embeddings are stored as {@code vector} or {@code halfvec}.
+ * When only a coarse form of the embeddings is indexed (leading dimensions or sign bits), candidates found by it are
+ * rescored with the full vectors. Every statement filters on {@code project_code}, so it only scans the partition of
+ * the project and its index parts. Searches set the HNSW candidate list size for their own transaction, and let scans
+ * filtered by tags continue until enough rows pass the filter.
+ */
+@Repository
+@RequiredArgsConstructor
+public class KnowledgeSearchRepository {
+
+    private static final String COLUMNS = """
+        content,
+               doc_path,
+               metadata ->> 'title' AS title,
+               COALESCE(chunk_index, 0) AS chunk_index""";
+
+    private static final String SEARCH_SQL = """
+        SELECT %s,
+               embedding <=> %s AS distance
+        FROM vector_store
+        WHERE project_code = ? AND NOT pending%s
+        ORDER BY distance
+        LIMIT ?
+        """;
+
+    private static final String RESCORE_SQL = """
+        SELECT content, doc_path, title, chunk_index, embedding <=> %s AS distance
+        FROM (
+            SELECT %s,
+                   embedding
+            FROM vector_store
+            WHERE project_code = ? AND NOT pending%s
+            ORDER BY %s
+            LIMIT ?
+        ) candidates
+        ORDER BY distance
+        LIMIT ?
+        """;
+
+    private static final String TAGS_FILTER = " AND jsonb_exists_any(metadata -> 'tags', ?::text[])";
+
+    private static final String DISABLE_INDEX_SCAN_SQL = "SET LOCAL enable_indexscan = off";
+
+    private static final String EF_SEARCH_SQL = "SET LOCAL hnsw.ef_search = %d";
+    private static final String ITERATIVE_SCAN_SQL = "SET LOCAL hnsw.iterative_scan = %s";
+    private static final String MAX_SCAN_TUPLES_SQL = "SET LOCAL hnsw.max_scan_tuples = %d";
+
+    /**
+     * Largest {@code hnsw.ef_search} pgvector accepts.
+     */
+    private static final int MAX_EF_SEARCH = 1000;
+
+    private static final RowMapper<KnowledgeHit> HIT_MAPPER = (rs, rowNum) -> new KnowledgeHit(
+        rs.getString("content"),
+        1 - rs.getDouble("distance"),
+        rs.getString("doc_path"),
+        rs.getString("title"),
+        rs.getInt("chunk_index"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VectorStoreSchemaRepository schema;
+    private final KnowledgeProperties properties;
+
+    /**
+     * Find the chunks of a project nearest to a query vector through the index the current layout provides.
+     *
+     * @param projectCode project scope
+     * @param tags        when not empty, only chunks carrying at least one of these tags
+     * @param embedding   query vector
+     * @param topK        maximum number of hits
+     * @param candidates  candidates taken from a coarse index for rescoring; at least {@code topK} are taken
+     * @param efSearch    HNSW candidate list size; raised to the rows the index scan has to return
+     * @return hits ordered by descending score ({@code 1 - cosine distance} of the full vectors) and the index used
+     */
+    @Transactional(readOnly = true)
+    public SearchResult search(String projectCode, List<String> tags, float[] embedding, int topK, int candidates,
+        int efSearch) {
+        Layout layout = schema.layout();
+        ColumnType column = layout.embedding();
+        IndexKind index = layout.searchIndex();
+        String order = switch (index) {
+            case FULL -> null;
+            case TRUNCATED -> column.prefix(EMBEDDING, layout.searchDimensions()) + " <=> "
+                + column.prefix(column.parameter(), layout.searchDimensions());
+            case BINARY -> column.binary(EMBEDDING) + " <~> " + column.binary(column.parameter());
+        };
+        List<Object> args = filterArgs(embedding, projectCode, tags);
+        String tagsFilter = tags.isEmpty() ? "" : TAGS_FILTER;
+        String sql;
+        int rows = topK;
+        if (order == null) {
+            sql = SEARCH_SQL.formatted(COLUMNS, column.parameter(), tagsFilter);
+        } else {
+            sql = RESCORE_SQL.formatted(column.parameter(), COLUMNS, tagsFilter, order);
+            rows = Math.max(candidates, topK);
+            args.add(new PGvector(embedding));
+            args.add(rows);
+        }
+        args.add(topK);
+        jdbcTemplate.execute(EF_SEARCH_SQL.formatted(Math.min(Math.max(efSearch, rows), MAX_EF_SEARCH)));
+        if (!tags.isEmpty() && properties.search().iterativeScan() && schema.supportsIterativeScan()) {
+            // rescored candidates are reordered anyway, so their scan may return them slightly out of order
+            jdbcTemplate.execute(ITERATIVE_SCAN_SQL.formatted(order == null ? "strict_order" : "relaxed_order"));
+            jdbcTemplate.execute(MAX_SCAN_TUPLES_SQL.formatted(properties.search().maxScanTuples()));
+        }
+        return new SearchResult(jdbcTemplate.query(sql, HIT_MAPPER, args.toArray()), index);
+    }
+
+    /**
+     * Find the chunks of a project nearest to a query vector by comparing it with every full vector, bypassing the
+     * approximate indexes. Used as ground truth to measure their recall; expensive on large projects.
+     *
+     * @param projectCode project scope
+     * @param tags        when not empty, only chunks carrying at least one of these tags
+     * @param embedding   query vector
+     * @param topK        maximum number of hits
+     * @return exact nearest hits ordered by descending score
+     */
+    @Transactional(readOnly = true)
+    public List<KnowledgeHit> exactSearch(String projectCode, List<String> tags, float[] embedding, int topK) {
+        jdbcTemplate.execute(DISABLE_INDEX_SCAN_SQL);
+        String sql = SEARCH_SQL.formatted(COLUMNS, schema.embeddingColumn().parameter(), tags.isEmpty() ? "" : TAGS_FILTER);
+        List<Object> args = filterArgs(embedding, projectCode, tags);
+        args.add(topK);
+        return jdbcTemplate.query(sql, HIT_MAPPER, args.toArray());
+    }
+
+    /**
+     * Arguments shared by all searches: the query vector in the select list, the project and the tags.
+     */
+    private static List<Object> filterArgs(float[] embedding, String projectCode, List<String> tags) {
+        List<Object> args = new ArrayList<>();
+        args.add(new PGvector(embedding));
+        args.add(projectCode);
+        if (!tags.isEmpty()) {
+            args.add(tags.toArray(String[]::new));
+        }
+        return args;
+    }
+
+    /**
+     * Hits of a search and the index that produced them.
+     */
+    public record SearchResult(List<KnowledgeHit> hits, IndexKind index) {
+
+    }
+}
@@ -0,0 +1,43 @@
+package com.buildware.kbase.knowledge.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC access to the {@code knowledge_versions} table.
+ */
+@Repository
+@RequiredArgsConstructor
+public class KnowledgeVersionRepository {
+
+    private static final String SELECT_SQL = "SELECT version FROM knowledge_versions WHERE project_code = ?";
+
+    private static final String BUMP_SQL = """
+        INSERT INTO knowledge_versions (project_code, version)
+        VALUES (?, 1)
+        ON CONFLICT (project_code) DO UPDATE SET version = knowledge_versions.version + 1
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Committed knowledge version of a project.
+     *
+     * @param projectCode project scope
+     * @return version, {@code 0} until the first write
+     */
+    public long current(String projectCode) {
+        return jdbcTemplate.queryForList(SELECT_SQL, Long.class, projectCode).stream().findFirst().orElse(0L);
+    }
+
+    /**
+     * Increment the version of a project in the caller's transaction. The row stays locked until it completes, so
+     * concurrent writes of the project bump it one after another.
+     *
+     * @param projectCode project whose chunks changed
+     */
+    public void bump(String projectCode) {
+        jdbcTemplate.update(BUMP_SQL, projectCode);
+    }
+}
@@ -0,0 +1,21 @@
+package com.buildware.kbase.knowledge.repository;
+
+import com.buildware.kbase.knowledge.domain.SyncedFile;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface SyncedFileRepository extends JpaRepository<SyncedFile, UUID> {
+
+    List<SyncedFile> findAllByProjectCode(String projectCode);
+
+    Optional<SyncedFile> findByProjectCodeAndDocPath(String projectCode, String docPath);
+
+    @Modifying
+    @Query("delete from SyncedFile f where f.projectCode = :projectCode")
+    int deleteAllByProjectCode(@Param("projectCode") String projectCode);
+}
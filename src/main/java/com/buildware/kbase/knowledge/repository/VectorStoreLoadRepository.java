@@ -0,0 +1,224 @@
+package com.buildware.kbase.knowledge.repository;
+
+import static com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.EMBEDDING;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.domain.IngestedDocument;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.ColumnType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.Validate;
+import org.postgresql.PGConnection;
+import org.springframework.ai.document.Document;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Bulk load of all chunks of a project, bypassing the live HNSW indexes. Rows are streamed into a staging table with
+ * binary {@code COPY}; once all rows are in, its indexes are built with parallel maintenance workers, it is analyzed,
+ * and it replaces the project's partition of {@code vector_store} in one short transaction together with the
+ * project's ingestion ledger. Only that last phase runs under the layout lock of {@link VectorStoreSchemaRepository};
+ * the rows are written without it, so chunking and embedding do not hold up layout changes or loads of other projects.
+ */
+@Repository
+@RequiredArgsConstructor
+public class VectorStoreLoadRepository {
+
+    private static final String NAMES_SQL = """
+        SELECT vector_store_partition_name(?) AS partition,
+               'vector_store_load_' || left(md5(?), 16) AS staging
+        """;
+
+    private static final String CREATE_STAGING_SQL =
+        "CREATE TABLE %s (LIKE vector_store INCLUDING DEFAULTS INCLUDING STORAGE)";
+
+    private static final String COPY_SQL = "COPY %s (" + ChunkCopyEncoder.COLUMNS + ") FROM STDIN (FORMAT binary)";
+
+    private static final String PARENT_INDEXES_SQL = """
+        SELECT c.relname, pg_get_indexdef(i.indexrelid) AS definition
+        FROM pg_index i
+        JOIN pg_class c ON c.oid = i.indexrelid
+        WHERE i.indrelid = 'vector_store'::regclass AND NOT i.indisprimary
+        """;
+
+    private static final String ADD_CHECK_SQL = """
+        SELECT format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (project_code IS NOT NULL AND project_code = %L)',
+                      ?::text, ?::text || '_project', ?::text)
+        """;
+
+    private static final String ATTACH_SQL =
+        "SELECT format('ALTER TABLE vector_store ATTACH PARTITION %I FOR VALUES IN (%L)', ?::text, ?::text)";
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtextextended(?, 0))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtextextended(?, 0))";
+
+    private static final String DELETE_LEDGER_SQL = "DELETE FROM ingested_documents WHERE project_code = ?";
+
+    private static final String INSERT_LEDGER_SQL = """
+        INSERT INTO ingested_documents (project_code, content_hash, chunk_count, doc_path, ingested_at, model)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VectorStoreSchemaRepository schema;
+    private final KnowledgeProperties properties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Replace all chunks of a project with the chunks written by {@code load}. Until the final swap the project keeps
+     * serving its previous chunks; when {@code load} or any later step fails, they stay in place and the staging table
+     * is dropped. The project's load lock is held throughout, so ingests into the project are rejected while the load
+     * runs instead of being discarded by the swap.
+     *
+     * @param projectCode project scope; its partition must exist
+     * @param load        writes the new chunks and returns the ledger entries of their documents
+     * @return {@code false} when another load or an ingest of the project is running, or a layout change holds the
+     *     layout lock once the rows are written
+     */
+    public boolean replacePartition(String projectCode, PartitionLoad load) {
+        String lockKey = KnowledgeChunkRepository.LOAD_LOCK.formatted(projectCode);
+        Boolean replaced = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(con, true));
+            if (!Boolean.TRUE.equals(session.queryForObject(TRY_LOCK_SQL, Boolean.class, lockKey))) {
+                return false;
+            }
+            try {
+                return replacePartition(con, session, projectCode, load);
+            } finally {
+                session.queryForObject(UNLOCK_SQL, Boolean.class, lockKey);
+            }
+        });
+        return Boolean.TRUE.equals(replaced);
+    }
+
+    private boolean replacePartition(Connection con, JdbcTemplate session, String projectCode, PartitionLoad load) {
+        Map<String, Object> names = session.queryForMap(NAMES_SQL, projectCode, projectCode);
+        String partition = (String) names.get("partition");
+        String staging = (String) names.get("staging");
+        ColumnType column = VectorStoreSchemaRepository.columnType(session, EMBEDDING);
+        session.execute("DROP TABLE IF EXISTS " + staging);
+        session.execute(CREATE_STAGING_SQL.formatted(staging));
+        boolean replaced = false;
+        try {
+            List<IngestedDocument> ledger = load.load((chunks, embeddings) -> copy(con, staging, column, chunks, embeddings));
+            replaced = schema.locked((lockCon, lockSession) -> {
+                // the layout may have changed while the rows were written
+                VectorStoreSchemaRepository.matchEmbeddingColumns(lockSession, staging);
+                buildIndexes(lockSession, staging);
+                lockSession.execute("ANALYZE " + staging);
+                // validates the partition bound while the table is still private, so attaching it need not scan it
+                lockSession.execute(lockSession.queryForObject(ADD_CHECK_SQL, String.class, staging, staging, projectCode));
+                swap(lockCon, lockSession, projectCode, partition, staging, ledger);
+            });
+            return replaced;
+        } finally {
+            if (!replaced) {
+                session.execute("DROP TABLE IF EXISTS " + staging);
+            }
+        }
+    }
+
+    private void copy(Connection con, String staging, ColumnType column, List<Document> chunks, List<float[]> embeddings) {
+        Validate.isTrue(chunks.size() == embeddings.size(), "Each chunk requires exactly one embedding");
+        byte[] rows = ChunkCopyEncoder.encode(chunks, embeddings, column, objectMapper);
+        try {
+            con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL.formatted(staging), new ByteArrayInputStream(rows));
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("COPY " + staging, null, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Build the primary key and a counterpart of every index of {@code vector_store} on the loaded rows, named like
+     * the parts built by {@link VectorStoreSchemaRepository} so attaching the table adopts them instead of building
+     * new ones.
+     */
+    private void buildIndexes(JdbcTemplate session, String staging) {
+        long oid = session.queryForObject("SELECT to_regclass(?)::oid", Long.class, staging);
+        KnowledgeProperties.Storage storage = properties.storage();
+        session.execute("SET maintenance_work_mem = '" + storage.loadMaintenanceWorkMem().toMegabytes() + "MB'");
+        session.execute("SET max_parallel_maintenance_workers = " + storage.loadParallelWorkers());
+        try {
+            session.execute("ALTER TABLE " + staging + " ADD CONSTRAINT vector_store_pkey_" + oid
+                + " PRIMARY KEY (id, project_code)");
+            List<Map<String, Object>> indexes = session.queryForList(PARENT_INDEXES_SQL);
+            for (Map<String, Object> index : indexes) {
+                String definition = (String) index.get("definition");
+                session.execute(definition.substring(0, definition.indexOf(" INDEX ")) + " INDEX "
+                    + index.get("relname") + "_" + oid + " ON " + staging
+                    + definition.substring(definition.indexOf(" USING ")));
+            }
+        } finally {
+            session.execute("RESET maintenance_work_mem");
+            session.execute("RESET max_parallel_maintenance_workers");
+        }
+    }
+
+    private static void swap(Connection con, JdbcTemplate session, String projectCode, String partition, String staging,
+        List<IngestedDocument> ledger) throws SQLException {
+        con.setAutoCommit(false);
+        try {
+            session.execute("DROP TABLE IF EXISTS " + partition);
+            session.execute("ALTER TABLE " + staging + " RENAME TO " + partition);
+            session.execute(session.queryForObject(ATTACH_SQL, String.class, partition, projectCode));
+            session.execute("ALTER TABLE " + partition + " DROP CONSTRAINT " + staging + "_project");
+            session.update(DELETE_LEDGER_SQL, projectCode);
+            session.batchUpdate(INSERT_LEDGER_SQL, ledger, ledger.size(), (ps, entry) -> {
+                ps.setString(1, entry.getProjectCode());
+                ps.setString(2, entry.getContentHash());
+                ps.setInt(3, entry.getChunkCount());
+                ps.setString(4, entry.getDocPath());
+                ps.setTimestamp(5, Timestamp.from(entry.getIngestedAt()));
+                ps.setString(6, entry.getModel());
+            });
+            con.commit();
+        } catch (RuntimeException | SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Receives embedded chunks of a load.
+     */
+    @FunctionalInterface
+    public interface ChunkSink {
+
+        /**
+         * Stream chunks into the staging table.
+         *
+         * @param chunks     chunk documents; ids must be UUIDs
+         * @param embeddings embeddings in the same order as {@code chunks}
+         */
+        void write(List<Document> chunks, List<float[]> embeddings);
+    }
+
+    /**
+     * Produces the chunks of a load.
+     */
+    @FunctionalInterface
+    public interface PartitionLoad {
+
+        /**
+         * Write all chunks of the project to {@code sink}.
+         *
+         * @param sink receives the chunks
+         * @return ledger entries of the loaded documents
+         */
+        List<IngestedDocument> load(ChunkSink sink);
+    }
+}
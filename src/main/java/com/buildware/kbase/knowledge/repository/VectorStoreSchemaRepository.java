@@ -0,0 +1,569 @@
+package com.buildware.kbase.knowledge.repository;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.EmbeddingType;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.Validate;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Catalog access to and online maintenance of the {@code vector_store.embedding} column, its HNSW indexes and the
+ * per-project partitions of {@code vector_store}. The layout is read once and cached, so statements can cast bound
+ * vectors to the column type and pick an index; {@link #refresh()} re-reads it.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class VectorStoreSchemaRepository {
+
+    static final String EMBEDDING = "embedding";
+
+    private static final String NEXT = "embedding_next";
+    private static final String INDEX = "spring_ai_vector_index";
+    private static final String NEXT_INDEX = "vector_store_embedding_next_idx";
+    private static final String COARSE_INDEX = "vector_store_coarse_%d_idx";
+    private static final String BINARY_INDEX = "vector_store_binary_idx";
+    private static final String COARSE_PREFIX = "vector_store_coarse_";
+    private static final String NEXT_PREFIX = "next_";
+
+    private static final String COLUMN_TYPE_SQL = """
+        SELECT t.typname, a.atttypmod
+        FROM pg_attribute a
+        JOIN pg_type t ON t.oid = a.atttypid
+        WHERE a.attrelid = ?::regclass AND a.attname = ? AND NOT a.attisdropped
+        """;
+
+    private static final String VALID_INDEXES_SQL = """
+        SELECT c.relname
+        FROM pg_index i
+        JOIN pg_class c ON c.oid = i.indexrelid
+        WHERE i.indrelid = 'vector_store'::regclass AND i.indisvalid
+        """;
+
+    private static final String REPLACED_INDEXES_SQL = """
+        SELECT c.relname
+        FROM pg_index i
+        JOIN pg_class c ON c.oid = i.indexrelid
+        WHERE i.indrelid = 'vector_store'::regclass
+          AND (c.relname IN ('spring_ai_vector_index', 'vector_store_binary_idx')
+               OR c.relname LIKE 'vector_store\\_coarse\\_%')
+        """;
+
+    private static final String INDEX_VALID_SQL = "SELECT indisvalid FROM pg_index WHERE indexrelid = to_regclass(?)";
+
+    private static final String UNINDEXED_PARTITIONS_SQL = """
+        SELECT c.oid, c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'vector_store'::regclass
+          AND NOT EXISTS (SELECT 1
+                          FROM pg_inherits x
+                          JOIN pg_index ix ON ix.indexrelid = x.inhrelid
+                          WHERE x.inhparent = to_regclass(?) AND ix.indrelid = c.oid)
+        """;
+
+    private static final String INDEX_PARTS_SQL = """
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = to_regclass(?)
+        """;
+
+    private static final String CREATE_PARTITION_SQL = """
+        SELECT format('CREATE TABLE IF NOT EXISTS %I PARTITION OF vector_store FOR VALUES IN (%L)',
+                      vector_store_partition_name(?), ?)
+        """;
+
+    private static final String DROP_PARTITION_SQL = "SELECT format('DROP TABLE IF EXISTS %I', vector_store_partition_name(?))";
+
+    private static final String FIRST_IDS_SQL = "SELECT id FROM vector_store ORDER BY id LIMIT ?";
+    private static final String NEXT_IDS_SQL = "SELECT id FROM vector_store WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String COPY_SQL = """
+        UPDATE vector_store
+        SET embedding_next = embedding::%s
+        WHERE id = ANY (?) AND embedding_next IS NULL AND embedding IS NOT NULL
+        """;
+
+    private static final String UNCOPIED_SQL = "SELECT count(*) FROM vector_store WHERE embedding_next IS NULL AND embedding IS NOT NULL";
+
+    private static final String CREATE_TRIGGER_SQL = """
+        CREATE OR REPLACE TRIGGER vector_store_copy_embedding
+            BEFORE INSERT OR UPDATE OF embedding ON vector_store
+            FOR EACH ROW EXECUTE FUNCTION vector_store_copy_embedding()
+        """;
+
+    private static final String DROP_TRIGGER_SQL = "DROP TRIGGER IF EXISTS vector_store_copy_embedding ON vector_store";
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('vector_store_conversion'))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('vector_store_conversion'))";
+
+    private static final String EXTENSION_VERSION_SQL = "SELECT extversion FROM pg_extension WHERE extname = 'vector'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Layout layout;
+
+    private volatile Boolean iterativeScan;
+
+    /**
+     * Type of the embedding column, read from the catalog on first use.
+     *
+     * @return cached column type
+     */
+    public ColumnType embeddingColumn() {
+        return layout().embedding();
+    }
+
+    /**
+     * Type and valid HNSW indexes of the embedding column, read from the catalog on first use.
+     *
+     * @return cached layout
+     */
+    public Layout layout() {
+        Layout current = layout;
+        if (current == null) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    /**
+     * Re-read the layout of the embedding column, e.g. after it was changed by another instance.
+     *
+     * @return current layout
+     */
+    public Layout refresh() {
+        ColumnType column = columnType(jdbcTemplate, EMBEDDING);
+        if (column == null) {
+            throw new IllegalStateException("vector_store has no embedding column");
+        }
+        boolean fullIndex = false;
+        boolean binaryIndex = false;
+        Set<Integer> coarseIndexes = new HashSet<>();
+        for (String index : jdbcTemplate.queryForList(VALID_INDEXES_SQL, String.class)) {
+            if (index.equals(INDEX)) {
+                fullIndex = true;
+            } else if (index.equals(BINARY_INDEX)) {
+                binaryIndex = true;
+            } else if (index.startsWith(COARSE_PREFIX)) {
+                coarseIndexes.add(coarseDimensions(index));
+            }
+        }
+        Layout current = new Layout(column, fullIndex, Set.copyOf(coarseIndexes), binaryIndex);
+        layout = current;
+        return current;
+    }
+
+    /**
+     * Whether the installed pgvector supports iterative index scans ({@code hnsw.iterative_scan}, added in 0.8.0). The
+     * extension version is read from the catalog on first use.
+     *
+     * @return cached support flag
+     */
+    public boolean supportsIterativeScan() {
+        Boolean supported = iterativeScan;
+        if (supported == null) {
+            String version = jdbcTemplate.queryForList(EXTENSION_VERSION_SQL, String.class).stream().findFirst().orElse("");
+            supported = isAtLeast(version, 0, 8);
+            if (!supported) {
+                log.warn("pgvector {} does not support iterative index scans; tag-filtered searches may return fewer hits",
+                    version);
+            }
+            iterativeScan = supported;
+        }
+        return supported;
+    }
+
+    static boolean isAtLeast(String version, int major, int minor) {
+        String[] parts = version.split("\\.");
+        try {
+            int actualMajor = Integer.parseInt(parts[0]);
+            int actualMinor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return actualMajor > major || (actualMajor == major && actualMinor >= minor);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Create the partition holding the chunks of a project. It gets a part of every HNSW index of the current layout,
+     * built on the empty table. Runs in the caller's transaction; no-op when the partition exists.
+     *
+     * @param projectCode project scope
+     */
+    public void createPartition(String projectCode) {
+        jdbcTemplate.execute(jdbcTemplate.queryForObject(CREATE_PARTITION_SQL, String.class, projectCode, projectCode));
+    }
+
+    /**
+     * Drop the partition of a project together with its chunks and index parts. Runs in the caller's transaction;
+     * no-op when the partition does not exist.
+     *
+     * @param projectCode project scope
+     */
+    public void dropPartition(String projectCode) {
+        jdbcTemplate.execute(jdbcTemplate.queryForObject(DROP_PARTITION_SQL, String.class, projectCode));
+    }
+
+    /**
+     * Convert the embedding column to another type while it stays readable and writable. Rows are copied into a shadow
+     * column in primary-key order, with a trigger covering rows written meanwhile; each HNSW index of the column is
+     * rebuilt concurrently on the shadow column, and the columns are swapped in one short transaction, which fails and keeps the old column if any
+     * embedding was not copied. An interrupted conversion resumes where it stopped. Only one instance changes the
+     * layout at a time.
+     *
+     * @param target    column type to convert to
+     * @param batchSize rows copied per statement
+     * @param progress  receives the number of rows copied by each statement
+     * @return {@code false} when another instance holds the layout lock
+     */
+    public boolean convert(EmbeddingType target, int batchSize, IntConsumer progress) {
+        return locked((con, session) -> convert(con, session, target, batchSize, progress));
+    }
+
+    /**
+     * Index the embedding column for the given search layout, building the new index concurrently before dropping the
+     * ones it replaces; all indexes are expression indexes over the one embedding column. With binary quantization,
+     * the sign bits of each embedding are indexed for Hamming distance; with coarse dimensions, only the leading
+     * {@code coarseDimensions} are indexed. Either way the full vectors stay unindexed for rescoring; otherwise the
+     * full vectors are indexed. Replaced indexes are dropped with a brief exclusive lock, since indexes of a
+     * partitioned table cannot be dropped concurrently.
+     *
+     * @param coarseDimensions dimensions of the coarse index; {@code 0} for none
+     * @param binary           index binary-quantized embeddings; takes precedence over coarse dimensions
+     * @return {@code false} when another instance holds the layout lock
+     */
+    public boolean reindex(int coarseDimensions, boolean binary) {
+        return locked((con, session) -> {
+            ColumnType column = columnType(session, EMBEDDING);
+            Validate.isTrue(coarseDimensions < column.dimensions(),
+                "Coarse dimensions %d must be below the embedding dimensions %d", coarseDimensions, column.dimensions());
+            String keep;
+            if (binary) {
+                keep = BINARY_INDEX;
+            } else if (coarseDimensions > 0) {
+                keep = COARSE_INDEX.formatted(coarseDimensions);
+            } else {
+                keep = INDEX;
+            }
+            createIndex(session, keep, definition(keep, column, EMBEDDING));
+            for (String index : session.queryForList(REPLACED_INDEXES_SQL, String.class)) {
+                if (!index.equals(keep)) {
+                    session.execute("DROP INDEX IF EXISTS " + index);
+                }
+            }
+        });
+    }
+
+    /**
+     * Apply a change under the layout lock, on one connection, and re-read the layout afterwards.
+     *
+     * @return {@code false} when another instance holds the layout lock
+     */
+    boolean locked(SchemaChange change) {
+        Boolean changed = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(con, true));
+            if (!Boolean.TRUE.equals(session.queryForObject(TRY_LOCK_SQL, Boolean.class))) {
+                return false;
+            }
+            try {
+                change.apply(con, session);
+                return true;
+            } finally {
+                session.queryForObject(UNLOCK_SQL, Boolean.class);
+            }
+        });
+        refresh();
+        return Boolean.TRUE.equals(changed);
+    }
+
+    private static void convert(Connection con, JdbcTemplate session, EmbeddingType target, int batchSize,
+        IntConsumer progress) throws SQLException {
+        ColumnType current = columnType(session, EMBEDDING);
+        if (current == null || current.type() == target) {
+            return;
+        }
+        ColumnType next = new ColumnType(target, current.dimensions());
+        ColumnType leftover = columnType(session, NEXT);
+        if (leftover != null && !leftover.equals(next)) {
+            session.execute(DROP_TRIGGER_SQL);
+            session.execute("ALTER TABLE vector_store DROP COLUMN " + NEXT);
+        }
+        session.execute("ALTER TABLE vector_store ADD COLUMN IF NOT EXISTS " + NEXT + " " + next.sql());
+        session.execute(CREATE_TRIGGER_SQL);
+
+        // No lower bound for the first batch: Postgres orders uuids by their unsigned bytes, unlike java.util.UUID
+        List<UUID> ids = session.queryForList(FIRST_IDS_SQL, UUID.class, batchSize);
+        while (!ids.isEmpty()) {
+            Object[] batch = ids.toArray();
+            progress.accept(session.update(COPY_SQL.formatted(next.sql()),
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", batch))));
+            ids = session.queryForList(NEXT_IDS_SQL, UUID.class, ids.getLast(), batchSize);
+        }
+
+        List<String> indexes = session.queryForList(REPLACED_INDEXES_SQL, String.class);
+        if (indexes.isEmpty()) {
+            indexes = List.of(INDEX);
+        }
+        for (String index : indexes) {
+            createIndex(session, nextIndex(index), definition(index, next, NEXT));
+        }
+        swap(con, session, indexes);
+    }
+
+    /**
+     * Name of the index on the shadow column that replaces an index of the embedding column in the swap.
+     */
+    private static String nextIndex(String index) {
+        return index.equals(INDEX) ? NEXT_INDEX : NEXT_PREFIX + index;
+    }
+
+    /**
+     * Definition of one of the indexes {@link #reindex(int, boolean)} builds, over the given column.
+     */
+    private static String definition(String index, ColumnType column, String expression) {
+        if (index.equals(BINARY_INDEX)) {
+            return "(" + column.binary(expression) + ") bit_hamming_ops";
+        }
+        if (index.startsWith(COARSE_PREFIX)) {
+            return "(" + column.prefix(expression, coarseDimensions(index)) + ") " + column.opsClass();
+        }
+        return expression + " " + column.opsClass();
+    }
+
+    private static int coarseDimensions(String index) {
+        return Integer.parseInt(index.replaceAll("\\D", ""));
+    }
+
+    /**
+     * Build an HNSW index without blocking writes. The index is declared on the partitioned table only, then built
+     * concurrently on each partition and attached; it becomes valid once every partition has its part. An interrupted
+     * build resumes with the partitions still missing a part, replacing an invalid leftover part.
+     */
+    private static void createIndex(JdbcTemplate session, String name, String definition) {
+        session.execute("CREATE INDEX IF NOT EXISTS " + name + " ON ONLY vector_store USING hnsw (" + definition + ")");
+        List<Partition> partitions = session.query(UNINDEXED_PARTITIONS_SQL,
+            (rs, rowNum) -> new Partition(rs.getLong("oid"), rs.getString("relname")), name);
+        for (Partition partition : partitions) {
+            String part = name + "_" + partition.oid();
+            List<Boolean> valid = session.queryForList(INDEX_VALID_SQL, Boolean.class, part);
+            if (valid.contains(false)) {
+                session.execute("DROP INDEX CONCURRENTLY " + part);
+            }
+            if (!valid.contains(true)) {
+                session.execute("CREATE INDEX CONCURRENTLY " + part + " ON " + partition.name()
+                    + " USING hnsw (" + definition + ")");
+            }
+            session.execute("ALTER INDEX " + name + " ATTACH PARTITION " + part);
+        }
+    }
+
+    private static void swap(Connection con, JdbcTemplate session, List<String> indexes) throws SQLException {
+        con.setAutoCommit(false);
+        try {
+            session.execute("LOCK TABLE vector_store IN ACCESS EXCLUSIVE MODE");
+            Long uncopied = session.queryForObject(UNCOPIED_SQL, Long.class);
+            if (uncopied != null && uncopied > 0) {
+                throw new IllegalStateException(uncopied + " embeddings were not copied to " + NEXT + "; keeping " + EMBEDDING);
+            }
+            session.execute(DROP_TRIGGER_SQL);
+            session.execute("ALTER TABLE vector_store DROP COLUMN " + EMBEDDING);
+            session.execute("ALTER TABLE vector_store RENAME COLUMN " + NEXT + " TO " + EMBEDDING);
+            for (String index : indexes) {
+                String nextIndex = nextIndex(index);
+                session.execute("ALTER INDEX " + nextIndex + " RENAME TO " + index);
+                for (String part : session.queryForList(INDEX_PARTS_SQL, String.class, index)) {
+                    if (part.startsWith(nextIndex)) {
+                        session.execute("ALTER INDEX " + part + " RENAME TO " + index + part.substring(nextIndex.length()));
+                    }
+                }
+            }
+            con.commit();
+        } catch (RuntimeException | SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Give a detached copy of {@code vector_store} the embedding columns the table has now, so it can still be attached
+     * as a partition after a layout change: the embedding column is cast to the current type, and the shadow column of
+     * an unfinished conversion is added or dropped. Must run under the layout lock.
+     *
+     * @param session connection holding the layout lock
+     * @param table   table created {@code LIKE vector_store}
+     */
+    static void matchEmbeddingColumns(JdbcTemplate session, String table) {
+        for (String column : List.of(EMBEDDING, NEXT)) {
+            ColumnType current = columnType(session, column);
+            ColumnType copy = columnType(session, table, column);
+            if (Objects.equals(current, copy)) {
+                continue;
+            }
+            if (copy == null) {
+                session.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + current.sql());
+            } else if (current == null) {
+                session.execute("ALTER TABLE " + table + " DROP COLUMN " + column);
+            } else {
+                session.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " TYPE " + current.sql()
+                    + " USING " + column + "::" + current.sql());
+            }
+        }
+    }
+
+    static ColumnType columnType(JdbcTemplate template, String column) {
+        return columnType(template, "vector_store", column);
+    }
+
+    private static ColumnType columnType(JdbcTemplate template, String table, String column) {
+        return template.query(COLUMN_TYPE_SQL, rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            String type = rs.getString("typname").toUpperCase(Locale.ROOT);
+            return new ColumnType(EmbeddingType.valueOf(type), rs.getInt("atttypmod"));
+        }, table, column);
+    }
+
+    private record Partition(long oid, String name) {
+
+    }
+
+    @FunctionalInterface
+    interface SchemaChange {
+
+        void apply(Connection con, JdbcTemplate session) throws SQLException;
+    }
+
+    /**
+     * HNSW indexes searches can use, from exact to coarsest.
+     */
+    public enum IndexKind {
+
+        /**
+         * Full vectors.
+         */
+        FULL,
+
+        /**
+         * Leading dimensions; candidates are rescored with the full vectors.
+         */
+        TRUNCATED,
+
+        /**
+         * Binary-quantized vectors under Hamming distance; candidates are rescored with the full vectors.
+         */
+        BINARY
+    }
+
+    /**
+     * Type and valid HNSW indexes of the embedding column.
+     *
+     * @param embedding     column type
+     * @param fullIndex     whether the full vectors are indexed
+     * @param coarseIndexes dimensions of the coarse (leading dimensions) indexes
+     * @param binaryIndex   whether the binary-quantized vectors are indexed
+     */
+    public record Layout(ColumnType embedding, boolean fullIndex, Set<Integer> coarseIndexes, boolean binaryIndex) {
+
+        /**
+         * Whether the indexes are exactly those {@link #reindex(int, boolean)} builds for the given settings.
+         */
+        public boolean indexedFor(int coarseDimensions, boolean binary) {
+            if (binary) {
+                return binaryIndex && !fullIndex && coarseIndexes.isEmpty();
+            }
+            return coarseDimensions > 0
+                ? !binaryIndex && !fullIndex && coarseIndexes.equals(Set.of(coarseDimensions))
+                : !binaryIndex && fullIndex && coarseIndexes.isEmpty();
+        }
+
+        /**
+         * Index searches should use: the full index while it exists, else the binary index, else the widest coarse
+         * index, and the (unindexed) full vectors when there is none.
+         */
+        public IndexKind searchIndex() {
+            if (fullIndex) {
+                return IndexKind.FULL;
+            }
+            if (binaryIndex) {
+                return IndexKind.BINARY;
+            }
+            return coarseIndexes.isEmpty() ? IndexKind.FULL : IndexKind.TRUNCATED;
+        }
+
+        /**
+         * Dimensions of the coarse index searches use with {@link IndexKind#TRUNCATED}.
+         */
+        public int searchDimensions() {
+            return coarseIndexes.stream().mapToInt(Integer::intValue).max().orElse(0);
+        }
+    }
+
+    /**
+     * pgvector type of an embedding column.
+     *
+     * @param type       column type
+     * @param dimensions declared dimensions; negative when the column has none
+     */
+    public record ColumnType(EmbeddingType type, int dimensions) {
+
+        /**
+         * SQL type name, e.g. {@code halfvec(1536)}.
+         */
+        public String sql() {
+            String name = type.name().toLowerCase(Locale.ROOT);
+            return dimensions > 0 ? name + "(" + dimensions + ")" : name;
+        }
+
+        /**
+         * Bind parameter for a {@link com.pgvector.PGvector} cast to this type.
+         */
+        public String parameter() {
+            return "?::vector::" + sql();
+        }
+
+        /**
+         * Expression of the leading dimensions of a column of this type, as indexed by a coarse index. Embeddings of
+         * Matryoshka-trained models such as {@code text-embedding-3-*} keep their meaning when truncated, and cosine
+         * distance needs no re-normalization.
+         *
+         * @param expression column name or bind parameter
+         * @param dimensions leading dimensions kept
+         * @return SQL expression, e.g. {@code subvector(embedding, 1, 256)::halfvec(256)}
+         */
+        public String prefix(String expression, int dimensions) {
+            return "subvector(" + expression + ", 1, " + dimensions + ")::" + new ColumnType(type, dimensions).sql();
+        }
+
+        /**
+         * Binary quantization of a vector expression of this type, as indexed by the binary index: one sign bit per
+         * dimension.
+         *
+         * @param expression column name or bind parameter
+         * @return SQL expression, e.g. {@code binary_quantize(embedding)::bit(1536)}
+         */
+        public String binary(String expression) {
+            return "binary_quantize(" + expression + ")::bit(" + dimensions + ")";
+        }
+
+        String opsClass() {
+            return type.name().toLowerCase(Locale.ROOT) + "_cosine_ops";
+        }
+    }
+}
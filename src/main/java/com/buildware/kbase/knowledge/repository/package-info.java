@@ -0,0 +1,10 @@
+@ApplicationModule(
+    displayName = "Knowledge Repository",
+    allowedDependencies = {
+        "knowledge.domain",
+        "knowledge.config"
+    }
+)
+package com.buildware.kbase.knowledge.repository;
+
+import org.springframework.modulith.ApplicationModule;
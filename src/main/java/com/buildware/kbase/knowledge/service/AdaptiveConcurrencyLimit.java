@@ -0,0 +1,93 @@
+package com.buildware.kbase.knowledge.service;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit adjusted by additive increase, multiplicative decrease: every success raises the limit by one over
+ * a full window of requests, a rate-limited response halves it and pauses all new requests for the backoff period.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private final int max;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private long pausedUntil;
+
+    AdaptiveConcurrencyLimit(int max) {
+        this.max = Math.max(1, max);
+        this.limit = this.max;
+        this.pausedUntil = System.nanoTime();
+    }
+
+    /**
+     * Wait until a pause is over and a slot under the current limit is free.
+     */
+    void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                long pause = pausedUntil - System.nanoTime();
+                if (pause > 0) {
+                    changed.awaitNanos(pause);
+                } else if (inFlight < (int) limit) {
+                    inFlight++;
+                    return;
+                } else {
+                    changed.await();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onSuccess() {
+        lock.lock();
+        try {
+            limit = Math.min(max, limit + 1.0 / limit);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Halve the limit and pause new requests. Responses of requests sent before an ongoing pause started only extend
+     * it, so one burst of rejections halves the limit once.
+     */
+    void onRateLimited(Duration backoff) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (pausedUntil - now <= 0) {
+                limit = Math.max(1, limit / 2);
+            }
+            pausedUntil = Math.max(pausedUntil - now, backoff.toNanos()) + now;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
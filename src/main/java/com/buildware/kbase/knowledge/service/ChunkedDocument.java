@@ -0,0 +1,22 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import java.util.List;
+import org.springframework.ai.document.Document;
+
+/**
+ * A bulk-ingested document that has been chunked and is waiting for its chunks to be embedded and stored.
+ *
+ * @param index       1-based position of the document in the bulk input
+ * @param source      the document as submitted
+ * @param contentHash SHA-256 of the document content
+ * @param chunks      chunks in order
+ */
+public record ChunkedDocument(
+    int index,
+    IngestDocument source,
+    String contentHash,
+    List<Document> chunks
+) {
+
+}
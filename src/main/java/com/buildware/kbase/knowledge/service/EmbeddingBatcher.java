@@ -0,0 +1,139 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+/**
+ * Collects texts to embed for a short window and embeds the distinct ones in one model request. A batch is sent when
+ * its window ends or when it is full, whichever comes first; callers block until their embedding is back. Windows are
+ * timed on virtual threads, and the lock is never held while waiting.
+ */
+final class EmbeddingBatcher {
+
+    private final EmbeddingModel embeddingModel;
+    private final long windowNanos;
+    private final int maxSize;
+    private final DistributionSummary batchSize;
+    private final Timer batchDuration;
+    private final Timer waitDuration;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Batch open;
+
+    EmbeddingBatcher(EmbeddingModel embeddingModel, KnowledgeProperties.QueryEmbeddingBatch settings,
+        MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.windowNanos = settings.window().toNanos();
+        this.maxSize = settings.maxSize();
+        this.batchSize = DistributionSummary.builder("kbase.query.embedding.batch.size")
+            .description("Distinct queries per embedding request")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.batchDuration = Timer.builder("kbase.query.embedding.batch.duration")
+            .description("Duration of batched embedding requests")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.waitDuration = Timer.builder("kbase.query.embedding.batch.latency")
+            .description("Time from queueing a query until its embedding is back")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Embed a text in the next batch.
+     *
+     * @param text text to embed
+     * @return its embedding
+     */
+    float[] embed(String text) {
+        long start = System.nanoTime();
+        CompletableFuture<float[]> embedding;
+        Batch full = null;
+        lock.lock();
+        try {
+            if (open == null) {
+                Batch batch = new Batch();
+                open = batch;
+                Thread.ofVirtual().name("query-embedding-batch").start(() -> sendAfterWindow(batch));
+            }
+            embedding = open.add(text);
+            if (open.size() >= maxSize) {
+                full = open;
+                open = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (full != null) {
+            full.send();
+        }
+        try {
+            return SingleFlight.await(embedding);
+        } finally {
+            waitDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void sendAfterWindow(Batch batch) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(windowNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            if (open != batch) {
+                // already sent when it filled up
+                return;
+            }
+            open = null;
+        } finally {
+            lock.unlock();
+        }
+        batch.send();
+    }
+
+    /**
+     * Distinct texts of one batch, each with the future its callers wait on.
+     */
+    private final class Batch {
+
+        private final Map<String, CompletableFuture<float[]>> texts = new LinkedHashMap<>();
+
+        CompletableFuture<float[]> add(String text) {
+            return texts.computeIfAbsent(text, t -> new CompletableFuture<>());
+        }
+
+        int size() {
+            return texts.size();
+        }
+
+        void send() {
+            List<String> inputs = new ArrayList<>(texts.keySet());
+            batchSize.record(inputs.size());
+            long start = System.nanoTime();
+            try {
+                List<float[]> embeddings = embeddingModel.embed(inputs);
+                if (embeddings.size() != inputs.size()) {
+                    throw new IllegalStateException("Expected " + inputs.size() + " embeddings, got " + embeddings.size());
+                }
+                for (int i = 0; i < inputs.size(); i++) {
+                    texts.get(inputs.get(i)).complete(embeddings.get(i));
+                }
+            } catch (RuntimeException e) {
+                texts.values().forEach(f -> f.completeExceptionally(e));
+            } finally {
+                batchDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.buildware.kbase.knowledge.service;
+
+import static com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.MD_CHUNK_HASH;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.DocumentChunker;
+import com.buildware.kbase.knowledge.repository.EmbeddingCacheRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Service;
+
+/**
+ * Content-addressed embedding cache for chunks. Embeddings are keyed by chunk SHA-256 and embedding model, looked up
+ * in an optional in-memory tier and then in Postgres; only misses are sent to the model through the
+ * {@link EmbeddingScheduler}.
+ */
+@Service
+public class EmbeddingCacheService {
+
+    private static final String METRIC_HITS = "kbase.embedding.cache.hits";
+    private static final String METRIC_MISSES = "kbase.embedding.cache.misses";
+
+    private final EmbeddingScheduler embeddingScheduler;
+    private final EmbeddingCacheRepository cacheRepository;
+    private final KnowledgeProperties properties;
+    private final Cache<String, float[]> memoryCache;
+    private final Counter memoryHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+
+    public EmbeddingCacheService(
+        EmbeddingScheduler embeddingScheduler,
+        EmbeddingCacheRepository cacheRepository,
+        KnowledgeProperties properties,
+        MeterRegistry meterRegistry
+    ) {
+        this.embeddingScheduler = embeddingScheduler;
+        this.cacheRepository = cacheRepository;
+        this.properties = properties;
+        long maxEntries = properties.embeddingCache().memoryMaxEntries();
+        this.memoryCache = maxEntries > 0 ? Caffeine.newBuilder().maximumSize(maxEntries).build() : null;
+        this.memoryHits = Counter.builder(METRIC_HITS).tag("tier", "memory").register(meterRegistry);
+        this.databaseHits = Counter.builder(METRIC_HITS).tag("tier", "database").register(meterRegistry);
+        this.misses = Counter.builder(METRIC_MISSES).register(meterRegistry);
+    }
+
+    /**
+     * Resolve embeddings for the given chunks, embedding only those not found in the cache.
+     *
+     * @param chunks chunk documents to embed
+     * @return embeddings in the same order as {@code chunks}
+     */
+    public List<float[]> embed(List<Document> chunks) {
+        if (chunks.isEmpty()) {
+            return List.of();
+        }
+        if (!properties.embeddingCache().enabled()) {
+            misses.increment(chunks.size());
+            return embedAll(chunks);
+        }
+
+        String model = properties.embeddingModel();
+        float[][] resolved = new float[chunks.size()][];
+        Map<String, List<Integer>> pending = new LinkedHashMap<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            String hash = chunkHash(chunks.get(i));
+            float[] cached = memoryCache != null ? memoryCache.getIfPresent(cacheKey(model, hash)) : null;
+            if (cached != null) {
+                resolved[i] = cached;
+                memoryHits.increment();
+            } else {
+                pending.computeIfAbsent(hash, h -> new ArrayList<>()).add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return Arrays.asList(resolved);
+        }
+
+        Map<String, float[]> stored = cacheRepository.findAll(model, pending.keySet());
+        stored.forEach((hash, embedding) -> {
+            resolve(resolved, pending.remove(hash), embedding);
+            remember(model, hash, embedding);
+            databaseHits.increment();
+        });
+        if (pending.isEmpty()) {
+            return Arrays.asList(resolved);
+        }
+
+        List<String> missingHashes = new ArrayList<>(pending.keySet());
+        List<Document> toEmbed = missingHashes.stream()
+            .map(hash -> chunks.get(pending.get(hash).getFirst()))
+            .toList();
+        List<float[]> embedded = embedAll(toEmbed);
+        Map<String, float[]> fresh = new LinkedHashMap<>();
+        for (int i = 0; i < missingHashes.size(); i++) {
+            String hash = missingHashes.get(i);
+            resolve(resolved, pending.get(hash), embedded.get(i));
+            remember(model, hash, embedded.get(i));
+            fresh.put(hash, embedded.get(i));
+        }
+        cacheRepository.saveAll(model, fresh);
+        misses.increment(missingHashes.size());
+        return Arrays.asList(resolved);
+    }
+
+    private List<float[]> embedAll(List<Document> chunks) {
+        return embeddingScheduler.embed(chunks);
+    }
+
+    private void remember(String model, String hash, float[] embedding) {
+        if (memoryCache != null) {
+            memoryCache.put(cacheKey(model, hash), embedding);
+        }
+    }
+
+    private static void resolve(float[][] resolved, List<Integer> positions, float[] embedding) {
+        for (int position : positions) {
+            resolved[position] = embedding;
+        }
+    }
+
+    private static String chunkHash(Document chunk) {
+        Object hash = chunk.getMetadata().get(MD_CHUNK_HASH);
+        return hash != null ? hash.toString() : DocumentChunker.sha256Hex(chunk.getText());
+    }
+
+    private static String cacheKey(String model, String hash) {
+        return model + ":" + hash;
+    }
+}
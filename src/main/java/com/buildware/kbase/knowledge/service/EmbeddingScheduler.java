@@ -0,0 +1,218 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.mapper.TokenTextChunker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+/**
+ * Sends embedding requests to the {@link EmbeddingModel} within the provider's limits. Inputs are counted with the
+ * local tokenizer and packed into batches of at most {@code kbase.knowledge.embedding.max-batch-tokens} tokens. Batches
+ * run concurrently under token and request buckets and an adaptive concurrency limit shared by all callers. A batch
+ * failing transiently (rate limit, server error or I/O error) is split in half and retried after an exponential
+ * backoff; batches that already succeeded are kept. Spring AI's own retry is disabled
+ * ({@code spring.ai.retry.max-attempts: 1}) so that this is the only retry loop.
+ */
+@Service
+@Slf4j
+public class EmbeddingScheduler {
+
+    private final EmbeddingModel embeddingModel;
+    private final KnowledgeProperties.Embedding settings;
+    private final AdaptiveConcurrencyLimit concurrency;
+    private final TokenBucket tokenBucket;
+    private final TokenBucket requestBucket;
+    private final Counter requests;
+    private final Counter tokens;
+    private final Counter rateLimited;
+    private final Timer latency;
+
+    public EmbeddingScheduler(EmbeddingModel embeddingModel, KnowledgeProperties properties, MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.settings = properties.embedding();
+        this.concurrency = new AdaptiveConcurrencyLimit(settings.maxConcurrency());
+        this.tokenBucket = settings.tokensPerMinute() > 0
+            ? new TokenBucket(settings.tokensPerMinute(), Duration.ofMinutes(1)) : null;
+        this.requestBucket = settings.requestsPerMinute() > 0
+            ? new TokenBucket(settings.requestsPerMinute(), Duration.ofMinutes(1)) : null;
+        this.requests = meterRegistry.counter("kbase.embedding.requests");
+        this.tokens = meterRegistry.counter("kbase.embedding.tokens");
+        this.rateLimited = meterRegistry.counter("kbase.embedding.rate-limited");
+        this.latency = meterRegistry.timer("kbase.embedding.request.duration");
+        meterRegistry.gauge("kbase.embedding.concurrency.limit", concurrency, AdaptiveConcurrencyLimit::limit);
+    }
+
+    /**
+     * Embed the text of the given documents.
+     *
+     * @param docs documents to embed
+     * @return embeddings in the same order as {@code docs}
+     */
+    public List<float[]> embed(List<Document> docs) {
+        if (docs.isEmpty()) {
+            return List.of();
+        }
+        List<String> texts = docs.stream().map(Document::getText).toList();
+        float[][] embeddings = new float[texts.size()][];
+        List<Batch> batches = pack(texts);
+        if (batches.size() == 1) {
+            run(batches.getFirst(), texts, embeddings);
+            return Arrays.asList(embeddings);
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>(batches.size());
+            for (Batch batch : batches) {
+                futures.add(executor.submit(() -> run(batch, texts, embeddings)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    executor.shutdownNow();
+                    throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while embedding", e);
+                }
+            }
+        }
+        return Arrays.asList(embeddings);
+    }
+
+    private List<Batch> pack(List<String> texts) {
+        List<Batch> batches = new ArrayList<>();
+        int from = 0;
+        int batchTokens = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            int count = TokenTextChunker.countTokens(texts.get(i));
+            boolean full = batchTokens + count > settings.maxBatchTokens() || i - from >= settings.maxBatchSize();
+            if (i > from && full) {
+                batches.add(new Batch(from, i, batchTokens));
+                from = i;
+                batchTokens = 0;
+            }
+            batchTokens += count;
+        }
+        batches.add(new Batch(from, texts.size(), batchTokens));
+        return batches;
+    }
+
+    private void run(Batch batch, List<String> texts, float[][] embeddings) {
+        Deque<Batch> work = new ArrayDeque<>();
+        work.push(batch);
+        int attempt = 0;
+        while (!work.isEmpty()) {
+            Batch current = work.pop();
+            try {
+                concurrency.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while embedding", e);
+            }
+            try {
+                List<float[]> result = send(current, texts);
+                for (int i = 0; i < result.size(); i++) {
+                    embeddings[current.from() + i] = result.get(i);
+                }
+                concurrency.onSuccess();
+                attempt = 0;
+            } catch (RuntimeException e) {
+                if (!isTransient(e) || ++attempt > settings.maxRetries()) {
+                    throw e;
+                }
+                Duration backoff = backoff(attempt);
+                rateLimited.increment();
+                concurrency.onRateLimited(backoff);
+                log.debug("Embedding batch of {} inputs failed transiently; retrying in {}", current.size(), backoff, e);
+                current.halves(texts).reversed().forEach(work::push);
+            } finally {
+                concurrency.release();
+            }
+        }
+    }
+
+    private List<float[]> send(Batch batch, List<String> texts) {
+        try {
+            if (requestBucket != null) {
+                requestBucket.acquire(1);
+            }
+            if (tokenBucket != null) {
+                tokenBucket.acquire(batch.tokens());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while embedding", e);
+        }
+        requests.increment();
+        tokens.increment(batch.tokens());
+        return latency.record(() -> embeddingModel.embed(texts.subList(batch.from(), batch.to())));
+    }
+
+    private Duration backoff(int attempt) {
+        long base = settings.initialBackoff().toMillis() << Math.min(attempt - 1, 20);
+        long capped = Math.min(base, settings.maxBackoff().toMillis());
+        return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+    }
+
+    /**
+     * Whether the failure may succeed when retried. Spring AI's response error handler reports 429 (listed in
+     * {@code spring.ai.retry.on-http-codes}) and 5xx responses as {@link TransientAiException} and other client errors
+     * as {@link NonTransientAiException}; I/O errors surface as {@link ResourceAccessException}.
+     */
+    static boolean isTransient(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof NonTransientAiException) {
+                return false;
+            }
+            if (t instanceof TransientAiException || t instanceof ResourceAccessException) {
+                return true;
+            }
+            if (t instanceof HttpStatusCodeException http) {
+                return http.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                    || http.getStatusCode().is5xxServerError();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inputs {@code from} (inclusive) to {@code to} (exclusive) and their token count.
+     */
+    private record Batch(int from, int to, int tokens) {
+
+        int size() {
+            return to - from;
+        }
+
+        List<Batch> halves(List<String> texts) {
+            if (size() < 2) {
+                return List.of(this);
+            }
+            int middle = from + size() / 2;
+            int firstTokens = texts.subList(from, middle).stream().mapToInt(TokenTextChunker::countTokens).sum();
+            return List.of(new Batch(from, middle, firstTokens), new Batch(middle, to, tokens - firstTokens));
+        }
+    }
+}
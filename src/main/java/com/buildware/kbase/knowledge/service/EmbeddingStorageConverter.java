@@ -0,0 +1,55 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.EmbeddingType;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.Layout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@code vector_store.embedding} column in the configured {@link EmbeddingType} and indexed for the
+ * configured coarse dimensions or binary quantization, changing it online when they differ. Every pass also re-reads
+ * the layout, so an instance follows a change made by another one.
+ */
+@Slf4j
+@Component
+public class EmbeddingStorageConverter {
+
+    private final VectorStoreSchemaRepository schema;
+    private final KnowledgeProperties.Storage storage;
+    private final Counter convertedRows;
+
+    public EmbeddingStorageConverter(VectorStoreSchemaRepository schema, KnowledgeProperties properties,
+        MeterRegistry meterRegistry) {
+        this.schema = schema;
+        this.storage = properties.storage();
+        this.convertedRows = meterRegistry.counter("kbase.storage.embedding.converted");
+    }
+
+    @Scheduled(fixedDelayString = "${kbase.knowledge.storage.conversion-interval:PT1M}")
+    public void convertIfNeeded() {
+        EmbeddingType target = storage.embeddingType();
+        Layout layout = schema.refresh();
+        try {
+            if (layout.embedding().type() != target) {
+                log.info("Converting vector_store.embedding from {} to {}", layout.embedding().type(), target);
+                if (schema.convert(target, storage.conversionBatchSize(), convertedRows::increment)) {
+                    log.info("Converted vector_store.embedding to {}", target);
+                }
+            } else if (!layout.indexedFor(storage.coarseDimensions(), storage.binaryQuantization())) {
+                log.info("Indexing vector_store.embedding for coarse dimensions {}, binary quantization {}",
+                    storage.coarseDimensions(), storage.binaryQuantization());
+                if (schema.reindex(storage.coarseDimensions(), storage.binaryQuantization())) {
+                    log.info("Indexed vector_store.embedding");
+                }
+            }
+        } catch (DataAccessException | IllegalArgumentException e) {
+            log.error("Changing the vector_store.embedding layout failed; retrying on the next pass", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.domain.IngestJob.Status;
+import com.buildware.kbase.knowledge.repository.IngestJobRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes ingestion queue depth and worker lag (age of the oldest queued job) as gauges. Values are refreshed on a
+ * schedule so that metric scrapes never hit the database.
+ */
+@Component
+@Slf4j
+public class IngestJobMetrics {
+
+    private final IngestJobRepository jobRepository;
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicReference<Instant> oldestQueued = new AtomicReference<>();
+
+    public IngestJobMetrics(IngestJobRepository jobRepository, MeterRegistry meterRegistry) {
+        this.jobRepository = jobRepository;
+        Gauge.builder("kbase.ingest.queue.depth", queueDepth, AtomicLong::get)
+            .description("Ingest jobs waiting for a worker")
+            .register(meterRegistry);
+        Gauge.builder("kbase.ingest.worker.lag", this, IngestJobMetrics::lagSeconds)
+            .description("Age of the oldest queued ingest job")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${kbase.knowledge.ingest-jobs.metrics-interval:PT10S}")
+    public void refresh() {
+        try {
+            queueDepth.set(jobRepository.countByStatus(Status.QUEUED));
+            oldestQueued.set(jobRepository.findOldestCreatedAt(Status.QUEUED).orElse(null));
+        } catch (RuntimeException e) {
+            log.debug("Unable to refresh ingest queue metrics", e);
+        }
+    }
+
+    private double lagSeconds() {
+        Instant oldest = oldestQueued.get();
+        return oldest == null ? 0 : Duration.between(oldest, Instant.now()).toMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,169 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestJob;
+import com.buildware.kbase.knowledge.domain.IngestJob.Status;
+import com.buildware.kbase.knowledge.repository.IngestJobRepository;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Postgres-backed queue of asynchronous ingestion jobs.
+ */
+@Service
+@RequiredArgsConstructor
+public class IngestJobService {
+
+    private final IngestJobRepository jobRepository;
+    private final ProjectInfoSPI projectInfoSPI;
+    private final ApplicationEventPublisher eventPublisher;
+    private final KnowledgeProperties properties;
+
+    /**
+     * Whether jobs are accepted. They are not when the in-process workers are disabled, since nothing would run them.
+     */
+    public boolean isEnabled() {
+        return properties.ingestJobs().enabled();
+    }
+
+    /**
+     * Validate and enqueue a document for asynchronous ingestion.
+     *
+     * @param doc document to ingest
+     * @return the queued job
+     * @throws IllegalStateException when asynchronous ingestion is disabled
+     */
+    @Transactional
+    public IngestJob submit(IngestDocument doc) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Asynchronous ingestion is disabled");
+        }
+        if (doc == null || StringUtils.isBlank(doc.projectCode())) {
+            throw new IllegalArgumentException("projectCode must not be blank");
+        }
+        if (StringUtils.isBlank(doc.content())) {
+            throw new IllegalArgumentException("content must not be blank");
+        }
+        projectInfoSPI.getByCode(doc.projectCode())
+            .orElseThrow(() -> new IllegalArgumentException("Project not found: " + doc.projectCode()));
+
+        IngestJob job = jobRepository.save(IngestJob.builder()
+            .projectCode(doc.projectCode())
+            .content(doc.content())
+            .tags(doc.tags())
+            .docPath(doc.docPath())
+            .title(doc.title())
+            .chunking(doc.chunking())
+            .status(Status.QUEUED)
+            .createdAt(Instant.now())
+            .build());
+        eventPublisher.publishEvent(new IngestJobSubmitted(job.getId()));
+        return job;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<IngestJob> find(UUID jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    /**
+     * Claim the next runnable job, marking it as running.
+     *
+     * @return the claimed job, or empty when nothing is runnable
+     */
+    @Transactional
+    public Optional<IngestJob> claimNext() {
+        return jobRepository.findNextClaimable().map(job -> {
+            Instant now = Instant.now();
+            job.setStatus(Status.RUNNING);
+            job.setStartedAt(now);
+            job.setHeartbeatAt(now);
+            return job;
+        });
+    }
+
+    /**
+     * Record chunk progress in its own transaction so it is visible while the ingest transaction is still open.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordProgress(UUID jobId, int chunksEmbedded, int chunksTotal) {
+        jobRepository.updateProgress(jobId, chunksEmbedded, chunksTotal);
+    }
+
+    @Transactional
+    public void complete(UUID jobId, int ingestedChunks) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(Status.SUCCEEDED);
+            job.setIngestedChunks(ingestedChunks);
+            if (job.getChunksTotal() == null) {
+                job.setChunksTotal(ingestedChunks);
+                job.setChunksEmbedded(ingestedChunks);
+            }
+            job.setFinishedAt(Instant.now());
+            job.setContent(null);
+        });
+    }
+
+    @Transactional
+    public void fail(UUID jobId, String error) {
+        jobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus(Status.FAILED);
+            job.setError(error);
+            job.setFinishedAt(Instant.now());
+            job.setContent(null);
+        });
+    }
+
+    /**
+     * Return a job this instance stopped processing, e.g. on shutdown, to the queue.
+     */
+    @Transactional
+    public void requeue(UUID jobId) {
+        jobRepository.findById(jobId).filter(job -> job.getStatus() == Status.RUNNING).ifPresent(job -> {
+            job.setStatus(Status.QUEUED);
+            job.setStartedAt(null);
+            job.setHeartbeatAt(null);
+        });
+    }
+
+    /**
+     * Renew the lease of jobs a worker of this instance is still processing.
+     *
+     * @param jobIds jobs in progress
+     */
+    @Transactional
+    public void heartbeat(Collection<UUID> jobIds) {
+        if (!jobIds.isEmpty()) {
+            jobRepository.renewHeartbeats(jobIds, Instant.now(), Status.RUNNING);
+        }
+    }
+
+    /**
+     * Return jobs left running by a worker that died back to the queue.
+     *
+     * @param staleAfter time since the last heartbeat of a running job for it to be considered abandoned
+     * @return number of re-queued jobs
+     */
+    @Transactional
+    public int requeueStale(Duration staleAfter) {
+        return jobRepository.requeueStale(Instant.now().minus(staleAfter), Status.RUNNING, Status.QUEUED);
+    }
+
+    /**
+     * Published after a job has been queued.
+     */
+    public record IngestJobSubmitted(UUID jobId) {
+
+    }
+}
@@ -0,0 +1,177 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestJob;
+import com.buildware.kbase.knowledge.service.IngestJobService.IngestJobSubmitted;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Pool of virtual-thread workers draining the ingestion job queue. Idle workers poll the queue periodically and are
+ * woken early when a job is submitted by this instance. The heartbeat of jobs in progress is renewed on a schedule, and
+ * running jobs whose heartbeat lapsed, because the instance processing them died, are returned to the queue. Jobs
+ * interrupted by a shutdown are returned to the queue right away.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(prefix = "kbase.knowledge.ingest-jobs", name = "enabled", havingValue = "true",
+    matchIfMissing = true)
+public class IngestJobWorker implements SmartLifecycle {
+
+    private final IngestJobService jobService;
+    private final KnowledgePersistenceService persistenceService;
+    private final KnowledgeProperties properties;
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final List<Thread> workers = new ArrayList<>();
+    private final Set<UUID> inProgress = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+
+    @Override
+    public synchronized void start() {
+        requeueStale();
+        running = true;
+        ThreadFactory factory = Thread.ofVirtual().name("ingest-worker-", 0).factory();
+        for (int i = 0; i < properties.ingestJobs().workers(); i++) {
+            Thread worker = factory.newThread(this::drain);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        try {
+            // lets interrupted workers return their jobs to the queue before the datasource closes
+            for (Thread worker : workers) {
+                worker.join(SHUTDOWN_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @TransactionalEventListener
+    public void onSubmitted(IngestJobSubmitted event) {
+        wakeUp.release();
+    }
+
+    @Scheduled(fixedDelayString = "${kbase.knowledge.ingest-jobs.heartbeat-interval:PT30S}")
+    public void renewHeartbeats() {
+        try {
+            jobService.heartbeat(Set.copyOf(inProgress));
+        } catch (RuntimeException e) {
+            log.warn("Unable to renew the heartbeat of ingest jobs {}", inProgress, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${kbase.knowledge.ingest-jobs.requeue-interval:PT1M}")
+    public void requeueStale() {
+        try {
+            int requeued = jobService.requeueStale(properties.ingestJobs().staleAfter());
+            if (requeued > 0) {
+                log.info("Re-queued {} stale ingest jobs", requeued);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to re-queue stale ingest jobs", e);
+        }
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                Optional<IngestJob> job = jobService.claimNext();
+                if (job.isPresent()) {
+                    process(job.get());
+                } else {
+                    idle();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Ingest worker failed to poll the job queue", e);
+                if (!idleQuietly()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void process(IngestJob job) {
+        IngestDocument doc = new IngestDocument(job.getProjectCode(), job.getContent(), job.getTags(), job.getDocPath(),
+            job.getTitle(), job.getChunking());
+        inProgress.add(job.getId());
+        try {
+            int ingested = persistenceService.ingestDocument(doc,
+                (embedded, total) -> jobService.recordProgress(job.getId(), embedded, total));
+            jobService.complete(job.getId(), ingested);
+        } catch (RuntimeException e) {
+            if (running) {
+                log.warn("Ingest job {} failed", job.getId(), e);
+                jobService.fail(job.getId(), e.getMessage());
+            } else {
+                log.info("Ingest job {} interrupted by shutdown; returning it to the queue", job.getId());
+                requeueInterrupted(job.getId());
+            }
+        } finally {
+            inProgress.remove(job.getId());
+        }
+    }
+
+    /**
+     * Re-queue a job with the interrupt flag cleared, so the interrupt of the shutdown does not abort the update.
+     */
+    private void requeueInterrupted(UUID jobId) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            jobService.requeue(jobId);
+        } catch (RuntimeException e) {
+            log.warn("Unable to re-queue ingest job {}; it is re-queued once its heartbeat lapses", jobId, e);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void idle() throws InterruptedException {
+        wakeUp.tryAcquire(properties.ingestJobs().pollInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private boolean idleQuietly() {
+        try {
+            idle();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.buildware.kbase.knowledge.service;
+
+/**
+ * Callback notified while a document's chunks are embedded and stored.
+ */
+@FunctionalInterface
+public interface IngestProgressListener {
+
+    IngestProgressListener NONE = (chunksEmbedded, chunksTotal) -> { };
+
+    void onProgress(int chunksEmbedded, int chunksTotal);
+}
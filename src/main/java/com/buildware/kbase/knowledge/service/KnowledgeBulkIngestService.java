@@ -0,0 +1,178 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.domain.BulkIngestResult;
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestedDocument;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.DocumentChunker;
+import com.buildware.kbase.knowledge.repository.IngestedDocumentRepository;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Service;
+
+/**
+ * Ingests a stream of documents, packing chunks of many documents into embedding batches sized by token count instead
+ * of embedding and storing every document on its own. Documents are buffered unsplit and the documents of a batch are
+ * chunked in parallel when the batch is flushed, so the reading thread only hashes and validates.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KnowledgeBulkIngestService {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final DocumentChunkMapper documentChunkMapper;
+    private final ProjectInfoSPI projectInfoSPI;
+    private final EmbeddingCacheService embeddingCacheService;
+    private final IngestedDocumentRepository ingestedDocumentRepository;
+    private final KnowledgePersistenceService persistenceService;
+    private final KnowledgeProperties properties;
+
+    /**
+     * Ingest documents as they are read from {@code docs}. A result is emitted for every document once its outcome is
+     * known; documents are processed in order but results of buffered documents are emitted when their batch is
+     * flushed. Reading stops at the first document that cannot be read.
+     *
+     * @param docs   documents to ingest
+     * @param result receives one result per document
+     */
+    public void ingest(Iterator<IngestDocument> docs, Consumer<BulkIngestResult> result) {
+        Batch batch = new Batch();
+        Map<String, Optional<ProjectInfo>> knownProjects = new HashMap<>();
+        int index = 0;
+        while (true) {
+            IngestDocument doc;
+            try {
+                if (!docs.hasNext()) {
+                    break;
+                }
+                doc = docs.next();
+            } catch (RuntimeException e) {
+                log.debug("Bulk ingest input unreadable after {} documents", index, e);
+                result.accept(BulkIngestResult.failed(index + 1, null, "Unreadable document: " + e.getMessage()));
+                break;
+            }
+            index++;
+            try {
+                accept(index, doc, knownProjects, batch, result);
+            } catch (IllegalArgumentException e) {
+                result.accept(BulkIngestResult.failed(index, doc == null ? null : doc.projectCode(), e.getMessage()));
+            }
+            if (batch.tokens >= properties.ingest().bulkBatchTokens()) {
+                flush(batch, result);
+            }
+        }
+        flush(batch, result);
+    }
+
+    private void accept(
+        int index,
+        IngestDocument doc,
+        Map<String, Optional<ProjectInfo>> knownProjects,
+        Batch batch,
+        Consumer<BulkIngestResult> result
+    ) {
+        if (doc == null || StringUtils.isBlank(doc.projectCode())) {
+            throw new IllegalArgumentException("projectCode must not be blank");
+        }
+        if (StringUtils.isBlank(doc.content())) {
+            throw new IllegalArgumentException("content must not be blank");
+        }
+        ProjectInfo project = knownProjects.computeIfAbsent(doc.projectCode(), projectInfoSPI::getByCode)
+            .orElseThrow(() -> new IllegalArgumentException("Project not found: " + doc.projectCode()));
+
+        String contentHash = DocumentChunker.sha256Hex(doc.content());
+        PendingDocument twin = batch.byKey.get(doc.projectCode() + "|" + contentHash);
+        if (twin != null) {
+            twin.duplicates().add(index);
+            return;
+        }
+        Optional<IngestedDocument> existing =
+            ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(doc.projectCode(), contentHash);
+        if (existing.isPresent()) {
+            result.accept(BulkIngestResult.duplicate(index, doc.projectCode(), existing.get().getChunkCount()));
+            return;
+        }
+
+        batch.add(new PendingDocument(index, KnowledgePersistenceService.withProjectChunking(doc, project), contentHash));
+    }
+
+    private void flush(Batch batch, Consumer<BulkIngestResult> result) {
+        if (batch.docs.isEmpty()) {
+            return;
+        }
+        try {
+            List<List<Document>> split = documentChunkMapper.toDocuments(
+                batch.docs.stream().map(PendingDocument::source).toList(),
+                batch.docs.stream().map(PendingDocument::contentHash).toList());
+            List<ChunkedDocument> docs = new ArrayList<>(batch.docs.size());
+            for (int i = 0; i < batch.docs.size(); i++) {
+                PendingDocument pending = batch.docs.get(i);
+                docs.add(new ChunkedDocument(pending.index(), pending.source(), pending.contentHash(), split.get(i)));
+            }
+            List<Document> chunks = docs.stream().flatMap(d -> d.chunks().stream()).toList();
+            List<float[]> embeddings = embeddingCacheService.embed(chunks);
+            persistenceService.persistAll(docs, embeddings).forEach(result);
+            for (int i = 0; i < docs.size(); i++) {
+                int chunkCount = docs.get(i).chunks().size();
+                String projectCode = docs.get(i).source().projectCode();
+                batch.docs.get(i).duplicates().forEach(d -> result.accept(
+                    BulkIngestResult.duplicate(d, projectCode, chunkCount)));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Bulk ingest batch of {} documents failed", batch.docs.size(), e);
+            batch.docs.forEach(d -> {
+                result.accept(BulkIngestResult.failed(d.index(), d.source().projectCode(), e.getMessage()));
+                d.duplicates().forEach(i -> result.accept(
+                    BulkIngestResult.failed(i, d.source().projectCode(), e.getMessage())));
+            });
+        }
+        batch.clear();
+    }
+
+    /**
+     * A document waiting for its batch to be chunked, with the indexes of identical documents later in the batch.
+     */
+    private record PendingDocument(int index, IngestDocument source, String contentHash, List<Integer> duplicates) {
+
+        PendingDocument(int index, IngestDocument source, String contentHash) {
+            this(index, source, contentHash, new ArrayList<>());
+        }
+    }
+
+    /**
+     * Documents accepted but not yet chunked and embedded. The token count is estimated from the text length so the
+     * documents need not be tokenized before the batch is split.
+     */
+    private static final class Batch {
+
+        private final List<PendingDocument> docs = new ArrayList<>();
+        private final Map<String, PendingDocument> byKey = new HashMap<>();
+        private int tokens;
+
+        void add(PendingDocument doc) {
+            docs.add(doc);
+            byKey.put(doc.source().projectCode() + "|" + doc.contentHash(), doc);
+            tokens += doc.source().content().length() / CHARS_PER_TOKEN + 1;
+        }
+
+        void clear() {
+            docs.clear();
+            byKey.clear();
+            tokens = 0;
+        }
+    }
+}
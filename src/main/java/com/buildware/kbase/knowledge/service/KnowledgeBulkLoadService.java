@@ -0,0 +1,152 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestedDocument;
+import com.buildware.kbase.knowledge.domain.LoadResult;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.DocumentChunker;
+import com.buildware.kbase.knowledge.repository.VectorStoreLoadRepository;
+import com.buildware.kbase.knowledge.repository.VectorStoreLoadRepository.ChunkSink;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Service;
+
+/**
+ * Admin bulk load replacing all chunks of a project, for initial loads and re-embedding. Documents are chunked and
+ * embedded in batches sized by token count like a bulk ingest, but streamed into a staging table with binary
+ * {@code COPY} whose indexes are built once at the end, instead of being inserted into the live HNSW indexes. The
+ * project keeps serving its previous chunks until the load is swapped in; any invalid document aborts the load and
+ * leaves them in place.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KnowledgeBulkLoadService {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final DocumentChunkMapper documentChunkMapper;
+    private final ProjectInfoSPI projectInfoSPI;
+    private final EmbeddingCacheService embeddingCacheService;
+    private final VectorStoreLoadRepository loadRepository;
+    private final KnowledgeProperties properties;
+    private final KnowledgeVersions knowledgeVersions;
+
+    /**
+     * Replace all chunks of a project with the chunks of {@code docs}. Documents without a project code are loaded
+     * into {@code projectCode}; documents repeating earlier content are skipped.
+     *
+     * @param projectCode project to load
+     * @param docs        documents of the project, read once
+     * @return counts of the load
+     * @throws IllegalArgumentException when the project does not exist or a document is invalid
+     * @throws IllegalStateException    when an ingest or another load of the project, or a storage layout change, is
+     *                                  running
+     */
+    public LoadResult load(String projectCode, Iterator<IngestDocument> docs) {
+        Validate.notBlank(projectCode, "projectCode must not be blank");
+        ProjectInfo project = projectInfoSPI.getByCode(projectCode)
+            .orElseThrow(() -> new IllegalArgumentException("Project not found: " + projectCode));
+        Load load = new Load(project, docs);
+        long start = System.nanoTime();
+        if (!loadRepository.replacePartition(projectCode, load::run)) {
+            throw new IllegalStateException("Project " + projectCode + " or its storage is being changed; retry the load later");
+        }
+        knowledgeVersions.bump(projectCode);
+        log.info("Loaded {} documents ({} chunks) into project {} in {} s", load.documents, load.chunks, projectCode,
+            (System.nanoTime() - start) / 1_000_000_000);
+        return new LoadResult(projectCode, load.documents, load.chunks, load.duplicates);
+    }
+
+    /**
+     * State of one load: the documents of the current batch and the counts so far.
+     */
+    private final class Load {
+
+        private final ProjectInfo project;
+        private final Iterator<IngestDocument> docs;
+        private final Set<String> contentHashes = new HashSet<>();
+        private final List<IngestDocument> batch = new ArrayList<>();
+        private final List<String> batchHashes = new ArrayList<>();
+        private final List<IngestedDocument> ledger = new ArrayList<>();
+        private int batchTokens;
+        private int documents;
+        private int chunks;
+        private int duplicates;
+
+        Load(ProjectInfo project, Iterator<IngestDocument> docs) {
+            this.project = project;
+            this.docs = docs;
+        }
+
+        List<IngestedDocument> run(ChunkSink sink) {
+            int index = 0;
+            while (docs.hasNext()) {
+                IngestDocument doc = docs.next();
+                index++;
+                accept(index, doc);
+                if (batchTokens >= properties.ingest().bulkBatchTokens()) {
+                    flush(sink);
+                }
+            }
+            flush(sink);
+            return ledger;
+        }
+
+        private void accept(int index, IngestDocument doc) {
+            if (doc == null || StringUtils.isBlank(doc.content())) {
+                throw new IllegalArgumentException("Document " + index + ": content must not be blank");
+            }
+            if (doc.projectCode() != null && !doc.projectCode().equals(project.code())) {
+                throw new IllegalArgumentException("Document " + index + " targets project " + doc.projectCode()
+                    + ", not " + project.code());
+            }
+            String contentHash = DocumentChunker.sha256Hex(doc.content());
+            if (!contentHashes.add(contentHash)) {
+                duplicates++;
+                return;
+            }
+            IngestDocument source = new IngestDocument(project.code(), doc.content(), doc.tags(), doc.docPath(),
+                doc.title(), doc.chunking());
+            batch.add(KnowledgePersistenceService.withProjectChunking(source, project));
+            batchHashes.add(contentHash);
+            batchTokens += doc.content().length() / CHARS_PER_TOKEN + 1;
+        }
+
+        private void flush(ChunkSink sink) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<List<Document>> split = documentChunkMapper.toDocuments(batch, batchHashes);
+            List<Document> batchChunks = split.stream().flatMap(List::stream).toList();
+            sink.write(batchChunks, embeddingCacheService.embed(batchChunks));
+            for (int i = 0; i < batch.size(); i++) {
+                ledger.add(IngestedDocument.builder()
+                    .projectCode(project.code())
+                    .contentHash(batchHashes.get(i))
+                    .chunkCount(split.get(i).size())
+                    .docPath(batch.get(i).docPath())
+                    .ingestedAt(Instant.now())
+                    .model(properties.embeddingModel())
+                    .build());
+            }
+            documents += batch.size();
+            chunks += batchChunks.size();
+            batch.clear();
+            batchHashes.clear();
+            batchTokens = 0;
+        }
+    }
+}
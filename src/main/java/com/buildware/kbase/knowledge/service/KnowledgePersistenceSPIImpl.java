@@ -3,6 +3,8 @@ package com.buildware.kbase.knowledge.service;
 import com.buildware.kbase.knowledge.domain.IngestDocument;
 import com.buildware.kbase.knowledge.mapper.KnowledgeIngestionMapper;
 import com.buildware.kbase.spi.KnowledgeIngestionSPI;
+import java.util.Optional;
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -11,6 +13,7 @@ import org.springframework.stereotype.Service;
 public class KnowledgePersistenceSPIImpl implements KnowledgeIngestionSPI {
 
     private final KnowledgePersistenceService maintenanceService;
+    private final IngestJobService jobService;
     private final KnowledgeIngestionMapper mapper;
 
     @Override
@@ -19,4 +22,19 @@ public class KnowledgePersistenceSPIImpl implements KnowledgeIngestionSPI {
         int count = maintenanceService.ingestDocument(doc);
         return mapper.toSummaryView(doc, count);
     }
+
+    @Override
+    public KnowledgeUpsertSummaryView upsert(KnowledgeIngestCommand command) {
+        return mapper.toUpsertView(maintenanceService.upsertDocument(mapper.toDomain(command)));
+    }
+
+    @Override
+    public KnowledgeIngestJobView submit(KnowledgeIngestCommand command) {
+        return mapper.toJobView(jobService.submit(mapper.toDomain(command)));
+    }
+
+    @Override
+    public Optional<KnowledgeIngestJobView> getJob(UUID jobId) {
+        return jobService.find(jobId).map(mapper::toJobView);
+    }
 }
@@ -1,40 +1,369 @@
 package com.buildware.kbase.knowledge.service;
 
+import static com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.MD_CHUNK_HASH;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.domain.BulkIngestResult;
+import com.buildware.kbase.knowledge.domain.ChunkingMode;
 import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestedDocument;
+import com.buildware.kbase.knowledge.domain.UpsertResult;
 import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.DocumentChunker;
+import com.buildware.kbase.knowledge.repository.IngestedDocumentRepository;
+import com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository;
+import com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository.StoredChunk;
 import com.buildware.kbase.spi.ProjectInfoSPI;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class KnowledgePersistenceService {
 
-    private final VectorStore vectorStore;
     private final DocumentChunkMapper documentChunkMapper;
     private final ProjectInfoSPI projectInfoSPI;
+    private final EmbeddingCacheService embeddingCacheService;
+    private final KnowledgeChunkRepository chunkRepository;
+    private final IngestedDocumentRepository ingestedDocumentRepository;
+    private final KnowledgeProperties properties;
+    private final KnowledgeVersions knowledgeVersions;
+    private final TransactionOperations transactionOperations;
 
     /**
-     * Ingest a long document by splitting into chunks and persisting to the vector store.
+     * Ingest a long document by splitting into chunks and persisting to the vector store. Chunk embeddings are
+     * resolved through the {@link EmbeddingCacheService}, so only chunks never seen before are sent to the model.
+     * Ingestion is idempotent: content already recorded in the ingest ledger for the project is not chunked again, and
+     * concurrent ingests of the same content are serialized on a transaction-scoped advisory lock. A document with a
+     * {@code docPath} also takes the path lock of {@link #upsertDocument(IngestDocument)}, so ingests, upserts and
+     * deletes of one path are serialized as well. Chunks are embedded before that transaction opens, so no connection
+     * is held during embedding requests; only the writes run in it.
      *
      * @param doc IngestDocument containing metadata and content
+     * @return number of stored chunks for the content
      */
     public int ingestDocument(IngestDocument doc) {
+        return ingestDocument(doc, IngestProgressListener.NONE);
+    }
+
+    /**
+     * Ingest a document, embedding chunks in batches and reporting progress after each batch, then storing them.
+     *
+     * @param doc      IngestDocument containing metadata and content
+     * @param listener progress callback
+     * @return number of stored chunks for the content
+     */
+    public int ingestDocument(IngestDocument doc, IngestProgressListener listener) {
+        IngestDocument valid = validate(doc);
+        String projectCode = valid.projectCode();
+        String contentHash = DocumentChunker.sha256Hex(valid.content());
+        Optional<IngestedDocument> existing =
+            ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(projectCode, contentHash);
+        if (existing.isPresent()) {
+            log.debug("Content {} already ingested into project {}", contentHash, projectCode);
+            return existing.get().getChunkCount();
+        }
+
+        List<Document> docs = documentChunkMapper.toDocuments(valid, contentHash);
+        List<float[]> embeddings = embed(docs, listener);
+        return transactionOperations.execute(status -> {
+            if (StringUtils.isNotBlank(valid.docPath())) {
+                chunkRepository.lockDocPath(projectCode, valid.docPath());
+            }
+            chunkRepository.lockContent(projectCode, contentHash);
+            // the same content may have been stored while it was being embedded
+            Optional<IngestedDocument> concurrent =
+                ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(projectCode, contentHash);
+            if (concurrent.isPresent()) {
+                log.debug("Content {} was ingested into project {} concurrently", contentHash, projectCode);
+                return concurrent.get().getChunkCount();
+            }
+            save(docs, embeddings);
+            knowledgeVersions.bump(projectCode);
+            ingestedDocumentRepository.save(IngestedDocument.builder()
+                .projectCode(projectCode)
+                .contentHash(contentHash)
+                .chunkCount(docs.size())
+                .docPath(valid.docPath())
+                .ingestedAt(Instant.now())
+                .model(properties.embeddingModel())
+                .build());
+            return docs.size();
+        });
+    }
+
+    /**
+     * Store the chunks of several already chunked and embedded documents in one transaction. Documents whose content
+     * was ingested concurrently are reported as duplicates and their chunks are discarded.
+     *
+     * @param docs       chunked documents
+     * @param embeddings embeddings of all chunks of {@code docs}, in order
+     * @return one result per document, in input order
+     */
+    @Transactional
+    public List<BulkIngestResult> persistAll(List<ChunkedDocument> docs, List<float[]> embeddings) {
+        // lock in a stable order so that overlapping bulk ingests cannot deadlock
+        docs.stream()
+            .sorted(Comparator.comparing((ChunkedDocument d) -> d.source().projectCode())
+                .thenComparing(ChunkedDocument::contentHash))
+            .forEach(d -> chunkRepository.lockContent(d.source().projectCode(), d.contentHash()));
+
+        List<BulkIngestResult> results = new ArrayList<>(docs.size());
+        List<Document> chunks = new ArrayList<>(embeddings.size());
+        List<float[]> chunkEmbeddings = new ArrayList<>(embeddings.size());
+        List<IngestedDocument> ledger = new ArrayList<>(docs.size());
+        int offset = 0;
+        for (ChunkedDocument doc : docs) {
+            String projectCode = doc.source().projectCode();
+            int size = doc.chunks().size();
+            Optional<IngestedDocument> existing =
+                ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(projectCode, doc.contentHash());
+            if (existing.isPresent()) {
+                results.add(BulkIngestResult.duplicate(doc.index(), projectCode, existing.get().getChunkCount()));
+            } else {
+                chunks.addAll(doc.chunks());
+                chunkEmbeddings.addAll(embeddings.subList(offset, offset + size));
+                ledger.add(IngestedDocument.builder()
+                    .projectCode(projectCode)
+                    .contentHash(doc.contentHash())
+                    .chunkCount(size)
+                    .docPath(doc.source().docPath())
+                    .ingestedAt(Instant.now())
+                    .model(properties.embeddingModel())
+                    .build());
+                results.add(BulkIngestResult.ingested(doc.index(), projectCode, size));
+            }
+            offset += size;
+        }
+        chunkRepository.saveAll(chunks, chunkEmbeddings);
+        ingestedDocumentRepository.saveAll(ledger);
+        // sorted, since bumps lock the version rows until commit
+        ledger.stream().map(IngestedDocument::getProjectCode).distinct().sorted().forEach(knowledgeVersions::bump);
+        return results;
+    }
+
+    /**
+     * Re-ingest a document identified by its path. The new version is chunked and compared with the chunks stored for
+     * the same project and path by chunk hash: matching chunks are kept and only have their position metadata updated,
+     * new chunks are embedded and inserted, and chunks that no longer occur are deleted. New chunks are embedded before
+     * the path is locked; the comparison is repeated under the lock, in the transaction that writes the changes.
+     *
+     * @param doc IngestDocument with a non-blank {@code docPath}
+     * @return counts of embedded, unchanged and deleted chunks
+     */
+    public UpsertResult upsertDocument(IngestDocument doc) {
+        IngestDocument valid = validate(doc);
+        if (StringUtils.isBlank(valid.docPath())) {
+            throw new IllegalArgumentException("docPath must not be blank");
+        }
+        String projectCode = valid.projectCode();
+        String docPath = valid.docPath();
+        String contentHash = DocumentChunker.sha256Hex(valid.content());
+        List<IngestedDocument> previous = ingestedDocumentRepository.findAllByProjectCodeAndDocPath(projectCode, docPath);
+        List<StoredChunk> stored = chunkRepository.findByDocPath(projectCode, docPath);
+        if (isUnchanged(previous, stored, contentHash)) {
+            log.debug("Document {} of project {} is unchanged", docPath, projectCode);
+            return new UpsertResult(projectCode, docPath, stored.size(), 0, stored.size(), 0);
+        }
+
+        List<Document> docs = documentChunkMapper.toDocuments(valid, contentHash);
+        List<Document> fresh = diff(docs, stored).fresh();
+        Map<String, float[]> embedded = new HashMap<>();
+        List<float[]> embeddings = embed(fresh, IngestProgressListener.NONE);
+        for (int i = 0; i < fresh.size(); i++) {
+            embedded.put(chunkHash(fresh.get(i)), embeddings.get(i));
+        }
+
+        return transactionOperations.execute(status -> {
+            chunkRepository.lockDocPath(projectCode, docPath);
+            // the path may have been written while the new chunks were being embedded
+            List<IngestedDocument> current = ingestedDocumentRepository.findAllByProjectCodeAndDocPath(projectCode, docPath);
+            List<StoredChunk> currentChunks = chunkRepository.findByDocPath(projectCode, docPath);
+            if (isUnchanged(current, currentChunks, contentHash)) {
+                return new UpsertResult(projectCode, docPath, currentChunks.size(), 0, currentChunks.size(), 0);
+            }
+            ChunkDiff changes = diff(docs, currentChunks);
+            if (!changes.removed().isEmpty()) {
+                chunkRepository.deleteAll(changes.removed());
+            }
+            if (!changes.keptIds().isEmpty()) {
+                chunkRepository.updatePositions(changes.keptIds(), changes.keptIndexes(), docs.size(), contentHash);
+            }
+            save(changes.fresh(), embeddingsOf(changes.fresh(), embedded));
+            knowledgeVersions.bump(projectCode);
+            recordUpsert(valid, contentHash, docs.size(), current);
+            return new UpsertResult(projectCode, docPath, docs.size(), changes.fresh().size(), changes.keptIds().size(),
+                changes.removed().size());
+        });
+    }
+
+    /**
+     * Remove a document identified by its path: its chunks and its ledger entries.
+     *
+     * @param projectCode project the document belongs to
+     * @param docPath     source path of the document
+     * @return number of deleted chunks
+     */
+    @Transactional
+    public int deleteDocument(String projectCode, String docPath) {
+        chunkRepository.lockDocPath(projectCode, docPath);
+        int deleted = chunkRepository.deleteByDocPath(projectCode, docPath);
+        if (deleted > 0) {
+            knowledgeVersions.bump(projectCode);
+        }
+        ingestedDocumentRepository.deleteAll(ingestedDocumentRepository.findAllByProjectCodeAndDocPath(projectCode, docPath));
+        return deleted;
+    }
+
+    /**
+     * Check the document and its project, returning the document with the project's chunking strategy when it did not
+     * request one.
+     */
+    private IngestDocument validate(IngestDocument doc) {
         if (doc == null || StringUtils.isBlank(doc.projectCode())) {
             throw new IllegalArgumentException("projectCode must not be blank");
         }
         if (StringUtils.isBlank(doc.content())) {
             throw new IllegalArgumentException("content must not be blank");
         }
-        projectInfoSPI.getByCode(doc.projectCode())
+        ProjectInfo project = projectInfoSPI.getByCode(doc.projectCode())
             .orElseThrow(() -> new IllegalArgumentException("Project not found: " + doc.projectCode()));
+        return withProjectChunking(doc, project);
+    }
 
-        List<Document> docs = documentChunkMapper.toDocuments(doc);
-        vectorStore.add(docs);
-        return docs.size();
+    static IngestDocument withProjectChunking(IngestDocument doc, ProjectInfo project) {
+        if (doc.chunking() != null || project.chunkingStrategy() == null) {
+            return doc;
+        }
+        return doc.withChunking(ChunkingMode.valueOf(project.chunkingStrategy().name()));
+    }
+
+    private static boolean isUnchanged(List<IngestedDocument> previous, List<StoredChunk> stored, String contentHash) {
+        return previous.size() == 1
+            && previous.getFirst().getContentHash().equals(contentHash)
+            && previous.getFirst().getChunkCount() == stored.size();
+    }
+
+    /**
+     * Match the chunks of a new version against the stored chunks of its path by chunk hash.
+     */
+    private static ChunkDiff diff(List<Document> docs, List<StoredChunk> stored) {
+        Map<String, Deque<UUID>> reusable = new HashMap<>();
+        List<UUID> removed = new ArrayList<>();
+        for (StoredChunk chunk : stored) {
+            if (chunk.chunkHash() == null) {
+                removed.add(chunk.id());
+            } else {
+                reusable.computeIfAbsent(chunk.chunkHash(), h -> new ArrayDeque<>()).add(chunk.id());
+            }
+        }
+
+        List<Document> fresh = new ArrayList<>();
+        List<UUID> keptIds = new ArrayList<>();
+        List<Integer> keptIndexes = new ArrayList<>();
+        for (int i = 0; i < docs.size(); i++) {
+            Deque<UUID> candidates = reusable.get(chunkHash(docs.get(i)));
+            if (candidates != null && !candidates.isEmpty()) {
+                keptIds.add(candidates.poll());
+                keptIndexes.add(i);
+            } else {
+                fresh.add(docs.get(i));
+            }
+        }
+        reusable.values().forEach(removed::addAll);
+        return new ChunkDiff(fresh, keptIds, keptIndexes, removed);
+    }
+
+    private static String chunkHash(Document doc) {
+        return String.valueOf(doc.getMetadata().get(MD_CHUNK_HASH));
+    }
+
+    /**
+     * Embeddings of chunks in order, taken from those computed before the transaction. A chunk that only became new
+     * under the lock, because the stored chunks changed meanwhile, is embedded here.
+     */
+    private List<float[]> embeddingsOf(List<Document> chunks, Map<String, float[]> embedded) {
+        List<Document> missing = chunks.stream().filter(c -> !embedded.containsKey(chunkHash(c))).toList();
+        if (!missing.isEmpty()) {
+            List<float[]> late = embeddingCacheService.embed(missing);
+            for (int i = 0; i < missing.size(); i++) {
+                embedded.put(chunkHash(missing.get(i)), late.get(i));
+            }
+        }
+        return chunks.stream().map(c -> embedded.get(chunkHash(c))).toList();
+    }
+
+    /**
+     * Embed chunks in batches through the embedding cache, reporting progress after each batch.
+     */
+    private List<float[]> embed(List<Document> docs, IngestProgressListener listener) {
+        int batchSize = Math.max(1, properties.ingest().batchSize());
+        List<float[]> embeddings = new ArrayList<>(docs.size());
+        for (int from = 0; from < docs.size(); from += batchSize) {
+            List<Document> batch = docs.subList(from, Math.min(from + batchSize, docs.size()));
+            embeddings.addAll(embeddingCacheService.embed(batch));
+            listener.onProgress(from + batch.size(), docs.size());
+        }
+        return embeddings;
+    }
+
+    /**
+     * Store embedded chunks in batches.
+     */
+    private void save(List<Document> docs, List<float[]> embeddings) {
+        int batchSize = Math.max(1, properties.ingest().batchSize());
+        for (int from = 0; from < docs.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, docs.size());
+            chunkRepository.saveAll(docs.subList(from, to), embeddings.subList(from, to));
+        }
+    }
+
+    /**
+     * Point the ledger of a document path at its new content. The path always gets its own row, even when another path
+     * of the project has the same content; a row of the path with the same content hash is updated in place.
+     */
+    private void recordUpsert(IngestDocument doc, String contentHash, int chunkCount, List<IngestedDocument> previous) {
+        IngestedDocument entry = previous.stream()
+            .filter(p -> p.getContentHash().equals(contentHash))
+            .findFirst()
+            .orElse(null);
+        ingestedDocumentRepository.deleteAll(previous.stream().filter(p -> p != entry).toList());
+        if (entry != null) {
+            entry.setChunkCount(chunkCount);
+            entry.setIngestedAt(Instant.now());
+            entry.setModel(properties.embeddingModel());
+        } else {
+            ingestedDocumentRepository.save(IngestedDocument.builder()
+                .projectCode(doc.projectCode())
+                .contentHash(contentHash)
+                .chunkCount(chunkCount)
+                .docPath(doc.docPath())
+                .ingestedAt(Instant.now())
+                .model(properties.embeddingModel())
+                .build());
+        }
+    }
+
+    /**
+     * Outcome of matching a new version of a document against its stored chunks.
+     */
+    private record ChunkDiff(List<Document> fresh, List<UUID> keptIds, List<Integer> keptIndexes, List<UUID> removed) {
     }
 }
@@ -1,83 +1,264 @@
 package com.buildware.kbase.knowledge.service;
 
-import static com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.MD_PROJECT_CODE;
-import static com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.MD_TAGS;
-
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
 import com.buildware.kbase.knowledge.domain.KnowledgeHit;
+import com.buildware.kbase.knowledge.domain.SearchOptions;
+import com.buildware.kbase.knowledge.repository.KnowledgeSearchRepository;
+import com.buildware.kbase.knowledge.repository.KnowledgeSearchRepository.SearchResult;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.IndexKind;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
-@lombok.RequiredArgsConstructor
 public class KnowledgeQueryService {
 
     private static final double DEFAULT_SIMILARITY_SCORE = 0.30;
 
-    private final VectorStore vectorStore;
+    /**
+     * Exact searches measuring recall that may run at once; further samples are skipped.
+     */
+    private static final int MAX_RECALL_SAMPLES = 2;
+
+    static final String RESULT_CACHE_NAME = "kbase.search.result";
+
+    private final QueryEmbeddingService queryEmbeddingService;
+    private final KnowledgeSearchRepository searchRepository;
+    private final KnowledgeVersions knowledgeVersions;
+    private final VectorStoreSchemaRepository schema;
+    private final String embeddingModel;
+    private final KnowledgeProperties.Search search;
+    private final Cache<ResultKey, List<KnowledgeHit>> results;
+    private final SemanticResultCache semanticResults;
+    private final SingleFlight<ResultKey, List<KnowledgeHit>> inFlight;
+    private final Map<IndexKind, Timer> durations = new EnumMap<>(IndexKind.class);
+    private final Map<IndexKind, DistributionSummary> recall = new EnumMap<>(IndexKind.class);
+    private final Semaphore recallSamples = new Semaphore(MAX_RECALL_SAMPLES);
+
+    public KnowledgeQueryService(QueryEmbeddingService queryEmbeddingService, KnowledgeSearchRepository searchRepository,
+        KnowledgeVersions knowledgeVersions, VectorStoreSchemaRepository schema, KnowledgeProperties properties,
+        MeterRegistry meterRegistry) {
+        this.queryEmbeddingService = queryEmbeddingService;
+        this.searchRepository = searchRepository;
+        this.knowledgeVersions = knowledgeVersions;
+        this.schema = schema;
+        this.embeddingModel = properties.embeddingModel();
+        this.search = properties.search();
+        KnowledgeProperties.ResultCache resultCache = properties.resultCache();
+        if (resultCache.enabled() && resultCache.maxEntries() > 0) {
+            this.results = Caffeine.newBuilder()
+                .maximumSize(resultCache.maxEntries())
+                .expireAfterWrite(resultCache.ttl())
+                .recordStats()
+                .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, results, RESULT_CACHE_NAME);
+        } else {
+            this.results = null;
+        }
+        KnowledgeProperties.SemanticCache semanticCache = properties.semanticCache();
+        this.semanticResults = semanticCache.enabled() && semanticCache.maxEntries() > 0
+            ? new SemanticResultCache(semanticCache, meterRegistry)
+            : null;
+        Counter coalesced = Counter.builder("kbase.search.coalesced")
+            .description("Searches that shared the result of an equal search already in flight")
+            .register(meterRegistry);
+        this.inFlight = new SingleFlight<>(coalesced::increment);
+        for (IndexKind index : IndexKind.values()) {
+            String tag = index.name().toLowerCase(Locale.ROOT);
+            durations.put(index, Timer.builder("kbase.search.duration")
+                .tag("index", tag)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry));
+            recall.put(index, DistributionSummary.builder("kbase.search.recall")
+                .tag("index", tag)
+                .description("Share of the exact top K found, for sampled searches")
+                .register(meterRegistry));
+        }
+    }
 
     public List<KnowledgeHit> query(String projectCode, String query, int topK, List<String> tags) {
+        return query(projectCode, query, topK, tags, SearchOptions.DEFAULTS);
+    }
+
+    /**
+     * Search the chunks of a project. Results of equal requests, and when enabled of requests whose query embedding
+     * is close enough, are served from cache until the project's knowledge version changes or they expire. Equal
+     * requests arriving while one is being searched wait for and share its hits.
+     *
+     * @param projectCode project scope
+     * @param query       query text
+     * @param topK        maximum number of hits; 5 when not positive, at most 50
+     * @param tags        when not empty, only chunks carrying at least one of these tags
+     * @param options     per-request index tuning
+     * @return hits above the score threshold, ordered by descending score
+     */
+    public List<KnowledgeHit> query(String projectCode, String query, int topK, List<String> tags, SearchOptions options) {
         Validate.notBlank(projectCode, "projectCode must not be blank");
-        var searchQuery = SearchRequest.builder()
-            .query(query)
-            .topK(topK > 0 ? Math.min(topK, 50) : 5)
-            .similarityThreshold(DEFAULT_SIMILARITY_SCORE)
-            .filterExpression(buildFilterExpression(projectCode, tags))
-            .build();
-        List<Document> docs = vectorStore.similaritySearch(searchQuery);
-        return docs.stream().map(KnowledgeQueryService::toHit).collect(Collectors.toList());
+        Validate.isTrue(StringUtils.isNotBlank(query), "query must not be blank");
+        List<String> tagFilter = tagFilter(tags);
+        SearchKey searchKey = searchKey(topK, tagFilter, options);
+        // the version is read first, so hits found while a write commits are cached under the version it replaces
+        long version = knowledgeVersions.current(projectCode);
+        ResultKey key = new ResultKey(projectCode, version, QueryEmbeddingService.normalize(query), searchKey);
+        List<KnowledgeHit> cached = results == null ? null : results.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        return inFlight.run(key, () -> {
+            List<KnowledgeHit> hits =
+                search(projectCode, version, queryEmbeddingService.embed(query), tagFilter, searchKey, true);
+            if (results != null) {
+                results.put(key, hits);
+            }
+            return hits;
+        });
+    }
+
+    /**
+     * Search the chunks of a project with a query vector the caller embedded. The query embedding and both result
+     * caches are skipped, so every call searches the index.
+     *
+     * @param projectCode project scope
+     * @param vector      query embedding; must have the dimensions of the stored embeddings
+     * @param model       embedding model that produced {@code vector}; must be the configured one
+     * @param topK        maximum number of hits; 5 when not positive, at most 50
+     * @param tags        when not empty, only chunks carrying at least one of these tags
+     * @param options     per-request index tuning
+     * @return hits above the score threshold, ordered by descending score
+     * @throws IllegalArgumentException when the vector does not fit the stored embeddings
+     */
+    public List<KnowledgeHit> queryByVector(String projectCode, float[] vector, String model, int topK, List<String> tags,
+        SearchOptions options) {
+        Validate.notBlank(projectCode, "projectCode must not be blank");
+        Validate.isTrue(vector != null && vector.length > 0, "vector must not be empty");
+        Validate.isTrue(embeddingModel.equals(model), "vector must be embedded with %s, not %s", embeddingModel, model);
+        int dimensions = schema.embeddingColumn().dimensions();
+        Validate.isTrue(dimensions <= 0 || vector.length == dimensions, "vector must have %d dimensions, not %d",
+            dimensions, vector.length);
+        for (float value : vector) {
+            Validate.isTrue(Float.isFinite(value), "vector must only contain finite values");
+        }
+        List<String> tagFilter = tagFilter(tags);
+        return search(projectCode, knowledgeVersions.current(projectCode), vector, tagFilter,
+            searchKey(topK, tagFilter, options), false);
     }
 
-    private static String buildFilterExpression(String projectCode, List<String> tags) {
-        String base = "%s == '%s'".formatted(MD_PROJECT_CODE, escape(projectCode));
+    private static List<String> tagFilter(List<String> tags) {
+        return tags == null ? List.of() : tags.stream().filter(StringUtils::isNotBlank).toList();
+    }
+
+    private SearchKey searchKey(int topK, List<String> tagFilter, SearchOptions options) {
+        int limit = topK > 0 ? Math.min(topK, 50) : 5;
+        return new SearchKey(limit, tagFilter.stream().sorted().distinct().toList(), candidates(limit, options),
+            efSearch(options));
+    }
 
-        if (tags == null || tags.isEmpty()) {
-            return base;
+    /**
+     * Search the index, through the semantic result cache when it is enabled and {@code cached} is set.
+     */
+    private List<KnowledgeHit> search(String projectCode, long version, float[] embedding, List<String> tagFilter,
+        SearchKey searchKey, boolean cached) {
+        SemanticResultCache semantic = cached ? semanticResults : null;
+        if (semantic != null) {
+            List<KnowledgeHit> similar = semantic.find(projectCode, version, searchKey, embedding);
+            if (similar != null) {
+                return similar;
+            }
         }
-        String values = tags.stream()
-            .filter(s -> s != null && !s.isBlank())
-            .map(KnowledgeQueryService::quote)
-            .collect(Collectors.joining(", "));
-        if (values.isBlank()) {
-            return base;
+        int limit = searchKey.limit();
+        long start = System.nanoTime();
+        SearchResult result = searchRepository.search(projectCode, tagFilter, embedding, limit, searchKey.candidates(),
+            searchKey.efSearch());
+        durations.get(result.index()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (ThreadLocalRandom.current().nextDouble() < search.recallSampleRate()) {
+            sampleRecall(projectCode, tagFilter, embedding, limit, result);
         }
-        return base + " && " + MD_TAGS + " IN [" + values + "]";
+        List<KnowledgeHit> hits = result.hits().stream()
+            .filter(hit -> hit.score() > DEFAULT_SIMILARITY_SCORE)
+            .toList();
+        if (semantic != null) {
+            semantic.put(projectCode, version, searchKey, embedding, hits);
+        }
+        return hits;
     }
 
-    private static String quote(String s) {
-        return "'" + escape(s) + "'";
+    /**
+     * Candidates taken from a coarse index: the requested oversampling (or the configured one) per hit, at least the
+     * configured minimum and at most the configured maximum.
+     */
+    private int candidates(int limit, SearchOptions options) {
+        int oversampling = options.oversampling() != null && options.oversampling() > 0
+            ? options.oversampling()
+            : search.oversampling();
+        return Math.min(Math.max(search.rescoreCandidates(), limit * oversampling), search.maxCandidates());
     }
 
-    private static String escape(String s) {
-        return s.replace("'", "''");
+    /**
+     * HNSW candidate list size: the requested one (or the configured one), at most the configured maximum.
+     */
+    private int efSearch(SearchOptions options) {
+        int efSearch = options.efSearch() != null && options.efSearch() > 0 ? options.efSearch() : search.efSearch();
+        return Math.min(efSearch, search.maxEfSearch());
     }
 
-    private static KnowledgeHit toHit(Document doc) {
-        String text = doc.getFormattedContent();
-        Map<String, Object> md = doc.getMetadata();
-        String docPath = md.get("docPath") != null ? String.valueOf(md.get("docPath")) : null;
-        String title = md.get("title") != null ? String.valueOf(md.get("title")) : null;
-        int chunkIndex = 0;
-        Object idx = md.get("chunkIndex");
-        if (idx instanceof Number n) {
-            chunkIndex = n.intValue();
+    /**
+     * Repeat a search exactly on a virtual thread and record which share of the exact hits it found.
+     */
+    private void sampleRecall(String projectCode, List<String> tags, float[] embedding, int limit, SearchResult result) {
+        if (!recallSamples.tryAcquire()) {
+            return;
         }
-
-        double scoreVal = 0.0;
-        try {
-            var scoreMethod = doc.getClass().getMethod("getScore");
-            Object score = scoreMethod.invoke(doc);
-            if (score instanceof Number n) {
-                scoreVal = n.doubleValue();
+        Thread.ofVirtual().name("search-recall").start(() -> {
+            try {
+                List<KnowledgeHit> exact = searchRepository.exactSearch(projectCode, tags, embedding, limit);
+                if (!exact.isEmpty()) {
+                    Set<String> found = result.hits().stream().map(KnowledgeQueryService::key).collect(Collectors.toSet());
+                    long matched = exact.stream().map(KnowledgeQueryService::key).filter(found::contains).count();
+                    recall.get(result.index()).record((double) matched / exact.size());
+                }
+            } catch (DataAccessException e) {
+                log.warn("Recall sample for project {} failed", projectCode, e);
+            } finally {
+                recallSamples.release();
             }
-        } catch (Exception ignore) {
-            // leave default score
-        }
-        return new KnowledgeHit(text, scoreVal, docPath, title, chunkIndex);
+        });
+    }
+
+    private static String key(KnowledgeHit hit) {
+        return hit.docPath() + "#" + hit.chunkIndex() + "#" + hit.text();
+    }
+
+    /**
+     * Parameters of a search besides project and query; tags in a canonical order since any of them matches.
+     */
+    record SearchKey(int limit, List<String> tags, int candidates, int efSearch) {
+
+    }
+
+    /**
+     * Everything a cached result depends on.
+     */
+    private record ResultKey(String projectCode, long version, String query, SearchKey search) {
+
     }
 }
@@ -1,5 +1,6 @@
 package com.buildware.kbase.knowledge.service;
 
+import com.buildware.kbase.knowledge.domain.SearchOptions;
 import com.buildware.kbase.knowledge.mapper.KnowledgeHitMapper;
 import com.buildware.kbase.spi.KnowledgeSearchSPI;
 import java.util.List;
@@ -20,6 +21,12 @@ public class KnowledgeSearchSPIImpl implements KnowledgeSearchSPI {
 
     @Override
     public List<KnowledgeHitView> semanticSearch(KnowledgeQuery query) {
-        return mapper.toViews(service.query(query.projectCode(), query.text(), query.topK(), query.tags()));
+        SearchOptions options = new SearchOptions(query.oversampling(), query.efSearch());
+        int topK = query.topK() != null ? query.topK() : 0;
+        if (query.vector() != null) {
+            return mapper.toViews(service.queryByVector(query.projectCode(), query.vector(), query.model(), topK,
+                query.tags(), options));
+        }
+        return mapper.toViews(service.query(query.projectCode(), query.text(), topK, query.tags(), options));
     }
 }
@@ -0,0 +1,36 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.repository.IngestedDocumentRepository;
+import com.buildware.kbase.knowledge.repository.SyncedFileRepository;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository;
+import com.buildware.kbase.spi.KnowledgeStorageSPI;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Adapter that maps project storage to partitions of the vector store.
+ */
+@Service
+@RequiredArgsConstructor
+public class KnowledgeStorageSPIImpl implements KnowledgeStorageSPI {
+
+    private final VectorStoreSchemaRepository schemaRepository;
+    private final IngestedDocumentRepository ingestedDocumentRepository;
+    private final SyncedFileRepository syncedFileRepository;
+    private final KnowledgeVersions knowledgeVersions;
+
+    @Override
+    public void createProjectStorage(String projectCode) {
+        schemaRepository.createPartition(projectCode);
+    }
+
+    @Override
+    @Transactional
+    public void dropProjectStorage(String projectCode) {
+        schemaRepository.dropPartition(projectCode);
+        ingestedDocumentRepository.deleteAllByProjectCode(projectCode);
+        syncedFileRepository.deleteAllByProjectCode(projectCode);
+        knowledgeVersions.bump(projectCode);
+    }
+}
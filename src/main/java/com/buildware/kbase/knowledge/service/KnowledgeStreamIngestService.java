@@ -0,0 +1,200 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.domain.IngestedDocument;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.DocumentChunker;
+import com.buildware.kbase.knowledge.mapper.StreamingDocumentChunker;
+import com.buildware.kbase.knowledge.repository.IngestedDocumentRepository;
+import com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Ingests documents too large to hold in memory. The content is hashed while it is spooled to a temporary file, so
+ * content already in the ingest ledger is recognized before anything is embedded. New content is then split while the
+ * file is read back, and chunks are embedded and stored in windows of {@code kbase.knowledge.ingest.batch-size}, so
+ * peak memory is proportional to the batch and window sizes rather than to the document size.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KnowledgeStreamIngestService {
+
+    private static final int READ_BUFFER_CHARS = 8192;
+
+    private final ProjectInfoSPI projectInfoSPI;
+    private final EmbeddingCacheService embeddingCacheService;
+    private final KnowledgeChunkRepository chunkRepository;
+    private final IngestedDocumentRepository ingestedDocumentRepository;
+    private final KnowledgeProperties properties;
+    private final KnowledgeVersions knowledgeVersions;
+    private final TransactionOperations transactionOperations;
+
+    /**
+     * Ingest UTF-8 text read from {@code content}. Each window of chunks is embedded outside any transaction and stored
+     * pending, hidden from searches, in its own short one; the chunks are completed with the chunk count, made visible
+     * and recorded in the ledger in a last short transaction under the content lock. When the upload fails midway, or
+     * the same content was ingested concurrently, the chunks stored so far are deleted again; pending chunks left by an
+     * attempt that died before it could clean up are deleted when the same content is streamed again.
+     *
+     * @param projectCode project to ingest into
+     * @param tags        optional tags applied to every chunk
+     * @param docPath     optional source path of the document
+     * @param content     UTF-8 encoded document content; not closed by this method
+     * @return number of stored chunks for the content
+     */
+    public int ingest(String projectCode, List<String> tags, String docPath, InputStream content) {
+        if (StringUtils.isBlank(projectCode)) {
+            throw new IllegalArgumentException("projectCode must not be blank");
+        }
+        projectInfoSPI.getByCode(projectCode)
+            .orElseThrow(() -> new IllegalArgumentException("Project not found: " + projectCode));
+
+        Path spool = createSpool();
+        try {
+            String contentHash = spool(content, spool);
+            Optional<IngestedDocument> existing =
+                ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(projectCode, contentHash);
+            if (existing.isPresent()) {
+                log.debug("Streamed content {} already ingested into project {}", contentHash, projectCode);
+                return existing.get().getChunkCount();
+            }
+
+            int orphans = chunkRepository.deletePending(projectCode, contentHash);
+            if (orphans > 0) {
+                log.info("Deleted {} pending chunks of an interrupted stream of {} in project {}", orphans, contentHash,
+                    projectCode);
+            }
+
+            List<UUID> storedIds = new ArrayList<>();
+            try {
+                storeChunks(projectCode, tags, docPath, contentHash, spool, storedIds);
+                if (storedIds.isEmpty()) {
+                    throw new IllegalArgumentException("content must not be blank");
+                }
+                return transactionOperations.execute(status -> complete(projectCode, docPath, contentHash, storedIds));
+            } catch (RuntimeException e) {
+                if (!storedIds.isEmpty()) {
+                    chunkRepository.deleteAll(storedIds);
+                }
+                throw e;
+            }
+        } finally {
+            deleteSpool(spool);
+        }
+    }
+
+    /**
+     * Split the spooled content, embedding and storing its chunks window by window.
+     */
+    private void storeChunks(String projectCode, List<String> tags, String docPath, String contentHash, Path spool,
+        List<UUID> storedIds) {
+        StreamingDocumentChunker chunker = new StreamingDocumentChunker(projectCode, tags, docPath, contentHash,
+            properties.ingest().streamWindowChars());
+        int batchSize = Math.max(1, properties.ingest().batchSize());
+        List<Document> pending = new ArrayList<>(batchSize);
+        char[] buffer = new char[READ_BUFFER_CHARS];
+        try (Reader reader = new InputStreamReader(Files.newInputStream(spool), StandardCharsets.UTF_8)) {
+            for (int read = reader.read(buffer); read != -1; read = reader.read(buffer)) {
+                pending.addAll(chunker.append(buffer, 0, read));
+                while (pending.size() >= batchSize) {
+                    store(pending.subList(0, batchSize), storedIds);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read document content", e);
+        }
+        pending.addAll(chunker.finish());
+        if (!pending.isEmpty()) {
+            store(pending, storedIds);
+        }
+    }
+
+    /**
+     * Complete the stored chunks and record the content, unless it was ingested concurrently.
+     */
+    private int complete(String projectCode, String docPath, String contentHash, List<UUID> storedIds) {
+        chunkRepository.lockContent(projectCode, contentHash);
+        Optional<IngestedDocument> existing =
+            ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(projectCode, contentHash);
+        if (existing.isPresent()) {
+            log.debug("Streamed content {} was ingested into project {} concurrently", contentHash, projectCode);
+            chunkRepository.deleteAll(storedIds);
+            return existing.get().getChunkCount();
+        }
+        if (chunkRepository.finalizeChunks(storedIds, contentHash, storedIds.size()) != storedIds.size()) {
+            // deleted by a restarted stream of the same content, or replaced by a bulk load
+            throw new IllegalStateException("Chunks of streamed content " + contentHash + " were removed before it completed");
+        }
+        knowledgeVersions.bump(projectCode);
+        ingestedDocumentRepository.save(IngestedDocument.builder()
+            .projectCode(projectCode)
+            .contentHash(contentHash)
+            .chunkCount(storedIds.size())
+            .docPath(docPath)
+            .ingestedAt(Instant.now())
+            .model(properties.embeddingModel())
+            .build());
+        return storedIds.size();
+    }
+
+    /**
+     * Embed a window of chunks, store it pending in its own transaction, then drop it from the pending list.
+     */
+    private void store(List<Document> window, List<UUID> storedIds) {
+        List<float[]> embeddings = embeddingCacheService.embed(window);
+        chunkRepository.savePending(window, embeddings);
+        window.forEach(d -> storedIds.add(UUID.fromString(d.getId())));
+        window.clear();
+    }
+
+    /**
+     * Copy the content to the spool file, returning its SHA-256.
+     */
+    private static String spool(InputStream content, Path spool) {
+        MessageDigest digest = DocumentChunker.sha256();
+        try (OutputStream out = Files.newOutputStream(spool)) {
+            new DigestInputStream(content, digest).transferTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read document content", e);
+        }
+        return DocumentChunker.toHex(digest.digest());
+    }
+
+    private static Path createSpool() {
+        try {
+            return Files.createTempFile("kbase-stream-", ".txt");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to buffer document content", e);
+        }
+    }
+
+    private static void deleteSpool(Path spool) {
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            log.warn("Unable to delete spooled document content {}", spool, e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.repository.KnowledgeVersionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Version of each project's knowledge, kept in Postgres. Every write to a project's chunks bumps its version in the
+ * writing transaction, so once the write commits, anything cached under an earlier version is never served again by
+ * any instance. Reading the version costs one primary-key lookup per search.
+ */
+@Component
+@RequiredArgsConstructor
+public class KnowledgeVersions {
+
+    private final KnowledgeVersionRepository versionRepository;
+
+    /**
+     * Current knowledge version of a project.
+     *
+     * @param projectCode project scope
+     * @return committed version, {@code 0} until the first write
+     */
+    public long current(String projectCode) {
+        return versionRepository.current(projectCode);
+    }
+
+    /**
+     * Bump the version of a project as part of the current transaction, or right away outside a transaction. Reads
+     * made before the commit still see the old version, even when they already saw the new chunks.
+     *
+     * @param projectCode project whose chunks changed
+     */
+    public void bump(String projectCode) {
+        versionRepository.bump(projectCode);
+    }
+}
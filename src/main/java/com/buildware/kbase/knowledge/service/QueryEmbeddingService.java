@@ -0,0 +1,74 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Locale;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.stereotype.Service;
+
+/**
+ * Embeds search queries through a bounded in-process cache. Queries differing only in whitespace or case share an
+ * entry per embedding model; concurrent misses of the same query wait for a single embedding request. Hits, misses,
+ * evictions and load time are published as {@code cache.*} meters tagged {@code cache=kbase.query.embedding}. Misses
+ * of different queries arriving within a short window are embedded in one model request.
+ */
+@Service
+public class QueryEmbeddingService {
+
+    static final String CACHE_NAME = "kbase.query.embedding";
+
+    private final EmbeddingModel embeddingModel;
+    private final String model;
+    private final Cache<String, float[]> cache;
+    private final EmbeddingBatcher batcher;
+
+    public QueryEmbeddingService(EmbeddingModel embeddingModel, KnowledgeProperties properties, MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.model = properties.embeddingModel();
+        KnowledgeProperties.QueryEmbeddingCache settings = properties.queryEmbeddingCache();
+        if (settings.enabled() && settings.maxEntries() > 0) {
+            this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.maxEntries())
+                .expireAfterWrite(settings.ttl())
+                .recordStats()
+                .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        } else {
+            this.cache = null;
+        }
+        KnowledgeProperties.QueryEmbeddingBatch batch = properties.queryEmbeddingBatch();
+        this.batcher = batch.window().isPositive() && batch.maxSize() > 1
+            ? new EmbeddingBatcher(embeddingModel, batch, meterRegistry)
+            : null;
+    }
+
+    /**
+     * Embed a search query, reusing the embedding of an equivalent query when cached. Whitespace runs are collapsed
+     * before embedding; a cached entry may come from a query differing in case.
+     *
+     * @param query search query
+     * @return query embedding
+     */
+    public float[] embed(String query) {
+        String text = StringUtils.normalizeSpace(query);
+        if (cache == null) {
+            return embedText(text);
+        }
+        return cache.get(model + ":" + normalize(text), key -> embedText(text));
+    }
+
+    private float[] embedText(String text) {
+        return batcher != null ? batcher.embed(text) : embeddingModel.embed(text);
+    }
+
+    /**
+     * Query text as compared by the caches: whitespace runs collapsed and case folded.
+     */
+    static String normalize(String query) {
+        return StringUtils.normalizeSpace(query).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,128 @@
+package com.buildware.kbase.knowledge.service;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.domain.KnowledgeHit;
+import com.buildware.kbase.knowledge.service.KnowledgeQueryService.SearchKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recent search results of each project, looked up by query embedding: a search whose query vector has at least
+ * {@code minSimilarity} cosine similarity to a recent one with the same parameters and knowledge version reuses its
+ * hits. Each project keeps its most recently used {@code maxEntries} queries and is scanned linearly, which for a few
+ * hundred vectors stays well below a database round trip.
+ */
+final class SemanticResultCache {
+
+    private static final String METRIC_HITS = "kbase.search.semantic.hits";
+    private static final String METRIC_MISSES = "kbase.search.semantic.misses";
+
+    private final double minSimilarity;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Cache<String, ProjectQueries> projects;
+    private final Counter hits;
+    private final Counter misses;
+
+    SemanticResultCache(KnowledgeProperties.SemanticCache settings, MeterRegistry meterRegistry) {
+        this.minSimilarity = settings.minSimilarity();
+        this.maxEntries = settings.maxEntries();
+        this.ttlNanos = settings.ttl().toNanos();
+        // projects nobody searched for a while (or that were deleted) are dropped as a whole
+        this.projects = Caffeine.newBuilder().expireAfterAccess(settings.ttl()).build();
+        this.hits = Counter.builder(METRIC_HITS).register(meterRegistry);
+        this.misses = Counter.builder(METRIC_MISSES).register(meterRegistry);
+    }
+
+    /**
+     * Hits of the most similar cached query of a project, or {@code null} when none is similar enough.
+     */
+    List<KnowledgeHit> find(String projectCode, long version, SearchKey key, float[] embedding) {
+        ProjectQueries queries = projects.getIfPresent(projectCode);
+        List<KnowledgeHit> found = queries == null ? null : queries.find(version, key, embedding, norm(embedding));
+        (found == null ? misses : hits).increment();
+        return found;
+    }
+
+    void put(String projectCode, long version, SearchKey key, float[] embedding, List<KnowledgeHit> result) {
+        projects.get(projectCode, code -> new ProjectQueries())
+            .add(new Entry(version, key, embedding, norm(embedding), System.nanoTime() + ttlNanos, result));
+    }
+
+    private static double norm(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return Math.sqrt(sum);
+    }
+
+    private record Entry(long version, SearchKey key, float[] embedding, double norm, long expiresAt,
+        List<KnowledgeHit> hits) {
+
+        double similarity(float[] other, double otherNorm) {
+            if (other.length != embedding.length || norm == 0 || otherNorm == 0) {
+                return -1;
+            }
+            double dot = 0;
+            for (int i = 0; i < other.length; i++) {
+                dot += other[i] * embedding[i];
+            }
+            return dot / (norm * otherNorm);
+        }
+    }
+
+    /**
+     * Cached queries of one project, least recently used first.
+     */
+    private final class ProjectQueries {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final List<Entry> entries = new ArrayList<>();
+
+        List<KnowledgeHit> find(long version, SearchKey key, float[] embedding, double norm) {
+            long now = System.nanoTime();
+            lock.lock();
+            try {
+                // entries of an older version can never match again
+                entries.removeIf(e -> e.version() < version || e.expiresAt() - now < 0);
+                Entry best = null;
+                double bestSimilarity = minSimilarity;
+                for (Entry entry : entries) {
+                    if (entry.version() == version && entry.key().equals(key)) {
+                        double similarity = entry.similarity(embedding, norm);
+                        if (similarity >= bestSimilarity) {
+                            best = entry;
+                            bestSimilarity = similarity;
+                        }
+                    }
+                }
+                if (best == null) {
+                    return null;
+                }
+                entries.remove(best);
+                entries.add(best);
+                return best.hits();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void add(Entry entry) {
+            lock.lock();
+            try {
+                entries.add(entry);
+                if (entries.size() > maxEntries) {
+                    entries.removeFirst();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.buildware.kbase.knowledge.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket refilled continuously at {@code capacity} permits per period. Waiting callers sleep outside the lock so
+ * virtual threads are not pinned.
+ */
+final class TokenBucket {
+
+    private static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final double capacity;
+    private final double permitsPerNano;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double available;
+    private long refilledAt;
+
+    TokenBucket(long capacity, Duration period) {
+        this.capacity = capacity;
+        this.permitsPerNano = capacity / (double) period.toNanos();
+        this.available = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Take {@code permits}, waiting until enough have been refilled. Requests larger than the capacity wait for a full
+     * bucket.
+     */
+    void acquire(long permits) throws InterruptedException {
+        double wanted = Math.min(permits, capacity);
+        while (true) {
+            long waitNanos;
+            lock.lock();
+            try {
+                refill();
+                if (available >= wanted) {
+                    available -= wanted;
+                    return;
+                }
+                waitNanos = (long) ((wanted - available) / permitsPerNano);
+            } finally {
+                lock.unlock();
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, MIN_WAIT_NANOS));
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+    }
+}
@@ -3,7 +3,9 @@
     allowedDependencies = {
         "spi",
         "knowledge.domain",
-        "knowledge.mapper"
+        "knowledge.mapper",
+        "knowledge.repository",
+        "knowledge.config"
     }
 )
 package com.buildware.kbase.knowledge.service;
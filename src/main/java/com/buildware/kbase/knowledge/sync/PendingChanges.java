@@ -0,0 +1,156 @@
+package com.buildware.kbase.knowledge.sync;
+
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded, debounced set of paths touched by file events, grouped by project. Repeated events for the same path only
+ * push its deadline back, a pending subtree absorbs the files below it, and when more than {@code maxPaths} paths are
+ * pending the project being added to collapses into a rescan of its whole base path.
+ */
+final class PendingChanges {
+
+    private final Duration debounce;
+    private final int maxPaths;
+    private final Map<String, ProjectChanges> byProject = new LinkedHashMap<>();
+    private int size;
+
+    PendingChanges(Duration debounce, int maxPaths) {
+        this.debounce = debounce;
+        this.maxPaths = Math.max(1, maxPaths);
+    }
+
+    /**
+     * Record an event for a single file.
+     */
+    synchronized void fileTouched(ProjectInfo project, Path file, Instant at) {
+        ProjectChanges changes = changes(project);
+        Path subtree = changes.subtreeOf(file);
+        if (subtree != null) {
+            changes.subtrees.put(subtree, at);
+            return;
+        }
+        if (changes.files.put(file, at) == null) {
+            size++;
+            collapseIfFull(changes, at);
+        }
+    }
+
+    /**
+     * Record that a directory needs a rescan, e.g. after an overflow or when it was created or deleted.
+     */
+    synchronized void subtreeTouched(ProjectInfo project, Path dir, Instant at) {
+        ProjectChanges changes = changes(project);
+        Path enclosing = changes.subtreeOf(dir);
+        if (enclosing != null) {
+            changes.subtrees.put(enclosing, at);
+            return;
+        }
+        size -= changes.removeBelow(dir);
+        changes.subtrees.put(dir, at);
+        size++;
+        collapseIfFull(changes, at);
+    }
+
+    /**
+     * Remove and return the paths whose last event is at least one debounce period old.
+     */
+    synchronized List<Batch> drainDue(Instant now) {
+        Instant cutoff = now.minus(debounce);
+        List<Batch> batches = new ArrayList<>();
+        Iterator<ProjectChanges> projects = byProject.values().iterator();
+        while (projects.hasNext()) {
+            ProjectChanges changes = projects.next();
+            Set<Path> files = drain(changes.files, cutoff);
+            Set<Path> subtrees = drain(changes.subtrees, cutoff);
+            size -= files.size() + subtrees.size();
+            if (!files.isEmpty() || !subtrees.isEmpty()) {
+                batches.add(new Batch(changes.project, files, subtrees));
+            }
+            if (changes.files.isEmpty() && changes.subtrees.isEmpty()) {
+                projects.remove();
+            }
+        }
+        return batches;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private ProjectChanges changes(ProjectInfo project) {
+        return byProject.computeIfAbsent(project.code(), code -> new ProjectChanges(project));
+    }
+
+    private void collapseIfFull(ProjectChanges changes, Instant at) {
+        if (size <= maxPaths) {
+            return;
+        }
+        Path root = Path.of(changes.project.basePath());
+        size -= changes.files.size() + changes.subtrees.size();
+        changes.files.clear();
+        changes.subtrees.clear();
+        changes.subtrees.put(root, at);
+        size++;
+    }
+
+    private static Set<Path> drain(Map<Path, Instant> paths, Instant cutoff) {
+        Set<Path> due = new LinkedHashSet<>();
+        paths.entrySet().removeIf(e -> {
+            if (e.getValue().isAfter(cutoff)) {
+                return false;
+            }
+            due.add(e.getKey());
+            return true;
+        });
+        return due;
+    }
+
+    /**
+     * Paths of one project that are ready to be synced.
+     *
+     * @param project  project the paths belong to
+     * @param files    files to sync individually
+     * @param subtrees directories to rescan
+     */
+    record Batch(ProjectInfo project, Set<Path> files, Set<Path> subtrees) {
+
+    }
+
+    private static final class ProjectChanges {
+
+        private final ProjectInfo project;
+        private final Map<Path, Instant> files = new HashMap<>();
+        private final Map<Path, Instant> subtrees = new HashMap<>();
+
+        private ProjectChanges(ProjectInfo project) {
+            this.project = project;
+        }
+
+        private Path subtreeOf(Path path) {
+            for (Path dir : subtrees.keySet()) {
+                if (path.startsWith(dir)) {
+                    return dir;
+                }
+            }
+            return null;
+        }
+
+        private int removeBelow(Path dir) {
+            int before = files.size() + subtrees.size();
+            files.keySet().removeIf(p -> p.startsWith(dir));
+            subtrees.keySet().removeIf(p -> p.startsWith(dir));
+            return before - files.size() - subtrees.size();
+        }
+    }
+}
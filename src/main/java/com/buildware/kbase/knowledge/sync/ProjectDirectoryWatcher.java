@@ -0,0 +1,224 @@
+package com.buildware.kbase.knowledge.sync;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.sync.PendingChanges.Batch;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Watches the base paths of all projects and syncs touched files shortly after they settle, so knowledge follows edits
+ * without waiting for the next full pass. Every directory below a base path is registered (new directories as they
+ * appear). Events go into a bounded {@link PendingChanges} queue that debounces bursts and coalesces repeated saves of
+ * a file; an {@code OVERFLOW} event, a created or deleted directory, or a full queue fall back to rescanning the
+ * affected subtree. Projects created after startup are picked up every {@code kbase.knowledge.sync.interval}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "kbase.knowledge.sync.watch", name = "enabled", havingValue = "true")
+public class ProjectDirectoryWatcher implements SmartLifecycle {
+
+    private final ProjectInfoSPI projectInfoSPI;
+    private final ProjectSyncService syncService;
+    private final KnowledgeProperties properties;
+    private final PendingChanges pending;
+    private final Counter overflows;
+    private final Map<WatchKey, WatchedDir> keys = new ConcurrentHashMap<>();
+    private final Set<Path> watchedDirs = ConcurrentHashMap.newKeySet();
+    private final Set<String> watchedProjects = ConcurrentHashMap.newKeySet();
+    private WatchService watchService;
+    private Thread watcher;
+    private ScheduledExecutorService flusher;
+    private Instant lastRefresh = Instant.MIN;
+    private volatile boolean running;
+
+    public ProjectDirectoryWatcher(ProjectInfoSPI projectInfoSPI, ProjectSyncService syncService,
+                                   KnowledgeProperties properties, MeterRegistry meterRegistry) {
+        this.projectInfoSPI = projectInfoSPI;
+        this.syncService = syncService;
+        this.properties = properties;
+        this.pending = new PendingChanges(properties.sync().watch().debounce(), properties.sync().watch().maxPendingPaths());
+        this.overflows = meterRegistry.counter("kbase.sync.watch.overflows");
+        meterRegistry.gauge("kbase.sync.watch.pending", pending, PendingChanges::size);
+        meterRegistry.gauge("kbase.sync.watch.directories", watchedDirs, Set::size);
+    }
+
+    @Override
+    public synchronized void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            log.warn("Unable to create a watch service; relying on scheduled sync only", e);
+            return;
+        }
+        running = true;
+        watcher = Thread.ofPlatform().daemon().name("kbase-sync-watch").start(this::watch);
+        flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("kbase-sync-flush").factory());
+        long period = Math.max(100, properties.sync().watch().debounce().toMillis() / 2);
+        flusher.scheduleWithFixedDelay(this::flush, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            log.debug("Unable to close watch service", e);
+        }
+        keys.clear();
+        watchedDirs.clear();
+        watchedProjects.clear();
+        lastRefresh = Instant.MIN;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void watch() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            WatchedDir watched = keys.get(key);
+            if (watched != null) {
+                handle(watched, key.pollEvents());
+            }
+            if (!key.reset()) {
+                keys.remove(key);
+                if (watched != null) {
+                    watchedDirs.remove(watched.dir());
+                }
+            }
+        }
+    }
+
+    private void handle(WatchedDir watched, Iterable<WatchEvent<?>> events) {
+        Instant now = Instant.now();
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == OVERFLOW) {
+                overflows.increment();
+                pending.subtreeTouched(watched.project(), watched.dir(), now);
+                continue;
+            }
+            Path child = watched.dir().resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                if (!ProjectSyncService.isHidden(child)) {
+                    register(watched.project(), child);
+                    pending.subtreeTouched(watched.project(), child, now);
+                }
+            } else if (event.kind() == ENTRY_DELETE && watchedDirs.contains(child)) {
+                pending.subtreeTouched(watched.project(), child, now);
+            } else {
+                pending.fileTouched(watched.project(), child, now);
+            }
+        }
+    }
+
+    private void flush() {
+        if (Duration.between(lastRefresh, Instant.now()).compareTo(properties.sync().interval()) >= 0) {
+            registerProjects();
+        }
+        for (Batch batch : pending.drainDue(Instant.now())) {
+            try {
+                for (Path dir : batch.subtrees()) {
+                    syncService.syncSubtree(batch.project(), dir);
+                }
+                if (!batch.files().isEmpty()) {
+                    syncService.syncFiles(batch.project(), batch.files());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Unable to sync watched changes of project {}", batch.project().code(), e);
+            }
+        }
+    }
+
+    private void registerProjects() {
+        lastRefresh = Instant.now();
+        try {
+            for (ProjectInfo project : projectInfoSPI.listSyncable()) {
+                Path root = Path.of(project.basePath());
+                if (Files.isDirectory(root) && watchedProjects.add(project.code())) {
+                    register(project, root);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh watched projects", e);
+        }
+    }
+
+    private void register(ProjectInfo project, Path start) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(start) && ProjectSyncService.isHidden(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (watchedDirs.add(dir)) {
+                        keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY),
+                            new WatchedDir(project, dir));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException | ClosedWatchServiceException e) {
+            log.warn("Unable to watch {} of project {}", start, project.code(), e);
+        }
+    }
+
+    private record WatchedDir(ProjectInfo project, Path dir) {
+
+    }
+}
@@ -0,0 +1,25 @@
+package com.buildware.kbase.knowledge.sync;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Triggers {@link ProjectSyncService#syncAll()} on a fixed delay, so passes never overlap.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "kbase.knowledge.sync", name = "enabled", havingValue = "true")
+public class ProjectSyncScheduler {
+
+    private final ProjectSyncService syncService;
+
+    @Scheduled(
+        fixedDelayString = "${kbase.knowledge.sync.interval:PT5M}",
+        initialDelayString = "${kbase.knowledge.sync.initial-delay:PT1M}"
+    )
+    public void syncAll() {
+        syncService.syncAll();
+    }
+}
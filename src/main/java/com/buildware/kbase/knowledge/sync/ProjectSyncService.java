@@ -0,0 +1,345 @@
+package com.buildware.kbase.knowledge.sync;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.SyncedFile;
+import com.buildware.kbase.knowledge.domain.UpsertResult;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.DocumentChunker;
+import com.buildware.kbase.knowledge.repository.SyncedFileRepository;
+import com.buildware.kbase.knowledge.service.KnowledgePersistenceService;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps a project's knowledge in line with the files under its base path. Each pass walks the base path, treats files
+ * whose size and modification time match the last pass as unchanged, and re-ingests the others by {@code docPath}
+ * (only chunks that actually changed are embedded). Knowledge of files that disappeared is deleted. Changed files are
+ * ingested in parallel on virtual threads, bounded by {@code kbase.knowledge.sync.parallelism}.
+ *
+ * <p>Besides full passes, single subtrees and individual files can be synced; the directory watcher uses these to
+ * process only what changed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectSyncService {
+
+    private final ProjectInfoSPI projectInfoSPI;
+    private final KnowledgePersistenceService persistenceService;
+    private final SyncedFileRepository syncedFileRepository;
+    private final KnowledgeProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Sync every project that has a base path. A failing project does not stop the others.
+     *
+     * @return one report per synced project
+     */
+    public List<SyncReport> syncAll() {
+        List<SyncReport> reports = new ArrayList<>();
+        for (ProjectInfo project : projectInfoSPI.listSyncable()) {
+            try {
+                reports.add(sync(project));
+            } catch (RuntimeException e) {
+                log.warn("Sync of project {} failed", project.code(), e);
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Run one sync pass over the project's base path and record it as the project's last sync.
+     *
+     * @param project project to sync
+     * @return pass summary
+     */
+    public SyncReport sync(ProjectInfo project) {
+        Instant startedAt = Instant.now();
+        Path root = Path.of(project.basePath());
+        if (!Files.isDirectory(root)) {
+            log.warn("Base path {} of project {} is not a directory; skipping sync", root, project.code());
+            return new SyncReport(project.code(), 0, 0, 0, 0, 0, Duration.ZERO);
+        }
+        SyncReport report = reconcile(project.code(), root, root, startedAt);
+        projectInfoSPI.markSynced(project.code(), startedAt);
+        return report;
+    }
+
+    /**
+     * Sync one directory below the project's base path, including deletions of files that vanished from it.
+     *
+     * @param project project to sync
+     * @param dir     directory inside the project's base path; may no longer exist
+     * @return pass summary
+     */
+    public SyncReport syncSubtree(ProjectInfo project, Path dir) {
+        Instant startedAt = Instant.now();
+        Path root = Path.of(project.basePath());
+        if (!dir.startsWith(root)) {
+            throw new IllegalArgumentException(dir + " is outside of the base path of project " + project.code());
+        }
+        return reconcile(project.code(), root, dir, startedAt);
+    }
+
+    /**
+     * Sync individual files: existing files are ingested when changed, missing files are removed.
+     *
+     * @param project project the files belong to
+     * @param files   files inside the project's base path
+     * @return pass summary
+     */
+    public SyncReport syncFiles(ProjectInfo project, Collection<Path> files) {
+        Instant startedAt = Instant.now();
+        Path root = Path.of(project.basePath());
+        Filter filter = filter();
+        List<FileCandidate> changed = new ArrayList<>();
+        Map<String, SyncedFile> known = new HashMap<>();
+        List<SyncedFile> gone = new ArrayList<>();
+        int scanned = 0;
+        for (Path file : files) {
+            String docPath = toDocPath(root, file);
+            Optional<SyncedFile> previous = syncedFileRepository.findByProjectCodeAndDocPath(project.code(), docPath);
+            previous.ifPresent(p -> known.put(docPath, p));
+            Optional<FileCandidate> candidate = candidate(root, file, filter);
+            if (candidate.isPresent()) {
+                scanned++;
+                if (isChanged(candidate.get(), previous.orElse(null))) {
+                    changed.add(candidate.get());
+                }
+            } else if (previous.isPresent() && !Files.exists(file)) {
+                gone.add(previous.get());
+            }
+        }
+        IngestOutcome outcome = ingestAll(project.code(), changed, known);
+        delete(project.code(), gone);
+        return report(project.code(), scanned, outcome, gone.size(), startedAt);
+    }
+
+    private SyncReport reconcile(String projectCode, Path root, Path scanRoot, Instant startedAt) {
+        List<FileCandidate> files = Files.isDirectory(scanRoot) ? scan(root, scanRoot) : List.of();
+        String prefix = root.equals(scanRoot) ? "" : toDocPath(root, scanRoot) + "/";
+        Map<String, SyncedFile> known = syncedFileRepository.findAllByProjectCode(projectCode).stream()
+            .filter(f -> f.getDocPath().startsWith(prefix))
+            .collect(Collectors.toMap(SyncedFile::getDocPath, f -> f));
+        List<FileCandidate> changed = files.stream().filter(f -> isChanged(f, known.get(f.docPath()))).toList();
+
+        IngestOutcome outcome = ingestAll(projectCode, changed, known);
+
+        Set<String> present = files.stream().map(FileCandidate::docPath).collect(Collectors.toSet());
+        List<SyncedFile> gone = known.values().stream().filter(f -> !present.contains(f.getDocPath())).toList();
+        delete(projectCode, gone);
+        return report(projectCode, files.size(), outcome, gone.size(), startedAt);
+    }
+
+    private IngestOutcome ingestAll(String projectCode, List<FileCandidate> changed, Map<String, SyncedFile> known) {
+        AtomicInteger ingested = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger embedded = new AtomicInteger();
+        Semaphore permits = new Semaphore(Math.max(1, properties.sync().parallelism()));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (FileCandidate file : changed) {
+                executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        embedded.addAndGet(syncFile(projectCode, file, known.get(file.docPath())));
+                        ingested.incrementAndGet();
+                    } catch (IOException | RuntimeException e) {
+                        failed.incrementAndGet();
+                        log.warn("Unable to sync {} of project {}", file.docPath(), projectCode, e);
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                });
+            }
+        }
+        return new IngestOutcome(ingested.get(), failed.get(), embedded.get());
+    }
+
+    private void delete(String projectCode, List<SyncedFile> gone) {
+        for (SyncedFile file : gone) {
+            persistenceService.deleteDocument(projectCode, file.getDocPath());
+            syncedFileRepository.delete(file);
+        }
+    }
+
+    /**
+     * Ingest one new or modified file.
+     *
+     * @return number of embedded chunks
+     */
+    private int syncFile(String projectCode, FileCandidate file, SyncedFile previous) throws IOException {
+        String content = Files.readString(file.path(), StandardCharsets.UTF_8);
+        String contentHash = DocumentChunker.sha256Hex(content);
+        SyncedFile entry = previous != null ? previous : SyncedFile.builder()
+            .projectCode(projectCode)
+            .docPath(file.docPath())
+            .build();
+        int embedded = 0;
+        if (!contentHash.equals(entry.getContentHash())) {
+            if (StringUtils.isBlank(content)) {
+                persistenceService.deleteDocument(projectCode, file.docPath());
+                entry.setChunkCount(0);
+            } else {
+                UpsertResult result = persistenceService.upsertDocument(
+                    new IngestDocument(projectCode, content, null, file.docPath(), titleOf(file, content), null));
+                entry.setChunkCount(result.totalChunks());
+                embedded = result.embeddedChunks();
+            }
+        }
+        entry.setContentHash(contentHash);
+        entry.setSizeBytes(file.size());
+        entry.setModifiedAt(file.modifiedAt());
+        entry.setSyncedAt(Instant.now());
+        syncedFileRepository.save(entry);
+        return embedded;
+    }
+
+    private List<FileCandidate> scan(Path root, Path scanRoot) {
+        Filter filter = filter();
+        List<FileCandidate> files = new ArrayList<>();
+        try {
+            Files.walkFileTree(scanRoot, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return !dir.equals(scanRoot) && isHidden(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (filter.accepts(file, attrs)) {
+                        files.add(new FileCandidate(file, toDocPath(root, file), attrs.size(),
+                            attrs.lastModifiedTime().toInstant()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    log.debug("Unable to read {}", file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to scan " + scanRoot, e);
+        }
+        return files;
+    }
+
+    private Optional<FileCandidate> candidate(Path root, Path file, Filter filter) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!filter.accepts(file, attrs)) {
+                return Optional.empty();
+            }
+            return Optional.of(new FileCandidate(file, toDocPath(root, file), attrs.size(),
+                attrs.lastModifiedTime().toInstant()));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private Filter filter() {
+        Set<String> extensions = properties.sync().extensions().stream()
+            .map(e -> e.toLowerCase(Locale.ROOT))
+            .collect(Collectors.toSet());
+        return new Filter(extensions, properties.sync().maxFileSize().toBytes());
+    }
+
+    private SyncReport report(String projectCode, int scanned, IngestOutcome outcome, int deleted, Instant startedAt) {
+        SyncReport report = new SyncReport(projectCode, scanned, outcome.ingested(), deleted, outcome.failed(),
+            outcome.embedded(), Duration.between(startedAt, Instant.now()));
+        meterRegistry.counter("kbase.sync.files.scanned", "project", projectCode).increment(report.filesScanned());
+        meterRegistry.counter("kbase.sync.files.changed", "project", projectCode).increment(report.filesChanged());
+        meterRegistry.counter("kbase.sync.files.deleted", "project", projectCode).increment(report.filesDeleted());
+        meterRegistry.counter("kbase.sync.files.failed", "project", projectCode).increment(report.filesFailed());
+        meterRegistry.counter("kbase.sync.chunks.embedded", "project", projectCode).increment(report.chunksEmbedded());
+        meterRegistry.timer("kbase.sync.duration", "project", projectCode).record(report.duration());
+        log.info("Synced project {}: {}", projectCode, report);
+        return report;
+    }
+
+    private static boolean isChanged(FileCandidate file, SyncedFile previous) {
+        return previous == null
+            || previous.getSizeBytes() != file.size()
+            || !file.modifiedAt().equals(previous.getModifiedAt());
+    }
+
+    static boolean isHidden(Path dir) {
+        return dir.getFileName() != null && dir.getFileName().toString().startsWith(".");
+    }
+
+    private static String toDocPath(Path root, Path file) {
+        return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * Title of a synced file: its first Markdown or AsciiDoc level-one heading, otherwise its file name.
+     */
+    static String titleOf(FileCandidate file, String content) {
+        for (String line : content.lines().limit(50).toList()) {
+            String trimmed = line.strip();
+            if (trimmed.startsWith("# ") || trimmed.startsWith("= ")) {
+                return trimmed.substring(2).strip();
+            }
+        }
+        return file.path().getFileName().toString();
+    }
+
+    /**
+     * A file found under a base path.
+     */
+    record FileCandidate(Path path, String docPath, long size, Instant modifiedAt) {
+
+    }
+
+    private record IngestOutcome(int ingested, int failed, int embedded) {
+
+    }
+
+    /**
+     * Which files are synced: regular files with a configured extension, up to the maximum size.
+     */
+    private record Filter(Set<String> extensions, long maxSize) {
+
+        boolean accepts(Path file, BasicFileAttributes attrs) {
+            String extension = StringUtils.substringAfterLast(file.getFileName().toString(), ".");
+            if (!attrs.isRegularFile() || !extensions.contains(extension.toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+            if (attrs.size() > maxSize) {
+                log.debug("Skipping {}: larger than {} bytes", file, maxSize);
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.buildware.kbase.knowledge.sync;
+
+import java.time.Duration;
+
+/**
+ * Summary of one sync pass over a project's base path.
+ *
+ * @param projectCode    synced project
+ * @param filesScanned   files matching the sync filters
+ * @param filesChanged   new or modified files that were ingested
+ * @param filesDeleted   previously synced files that no longer exist
+ * @param filesFailed    files that could not be read or ingested; retried on the next pass
+ * @param chunksEmbedded chunks embedded for changed files
+ * @param duration       wall-clock duration of the pass
+ */
+public record SyncReport(
+    String projectCode,
+    int filesScanned,
+    int filesChanged,
+    int filesDeleted,
+    int filesFailed,
+    int chunksEmbedded,
+    Duration duration
+) {
+
+}
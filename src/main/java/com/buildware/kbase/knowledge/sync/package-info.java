@@ -0,0 +1,14 @@
+@ApplicationModule(
+    displayName = "Knowledge Filesystem Sync",
+    allowedDependencies = {
+        "spi",
+        "knowledge.domain",
+        "knowledge.mapper",
+        "knowledge.service",
+        "knowledge.repository",
+        "knowledge.config"
+    }
+)
+package com.buildware.kbase.knowledge.sync;
+
+import org.springframework.modulith.ApplicationModule;
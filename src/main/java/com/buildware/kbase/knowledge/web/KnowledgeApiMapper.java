@@ -2,10 +2,15 @@ package com.buildware.kbase.knowledge.web;
 
 import static org.mapstruct.MappingConstants.ComponentModel.SPRING;
 
+import com.buildware.kbase.knowledge.domain.BulkIngestResult;
 import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestJob;
 import com.buildware.kbase.knowledge.domain.KnowledgeHit;
+import com.buildware.kbase.knowledge.domain.LoadResult;
+import com.buildware.kbase.knowledge.domain.UpsertResult;
 import java.util.List;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.ReportingPolicy;
 
 @Mapper(
@@ -25,4 +30,13 @@ public interface KnowledgeApiMapper {
      * Map ingest response from domain document and ingested chunk count.
      */
     KnowledgeIngestResponseDTO toIngestResponse(IngestDocument doc, int ingestedChunks);
+
+    KnowledgeUpsertResponseDTO toUpsertResponse(UpsertResult result);
+
+    @Mapping(target = "jobId", source = "id")
+    KnowledgeIngestJobDTO toJobDto(IngestJob job);
+
+    KnowledgeBulkIngestResultDTO toBulkResultDto(BulkIngestResult result);
+
+    KnowledgeLoadResponseDTO toLoadResponse(LoadResult result);
 }
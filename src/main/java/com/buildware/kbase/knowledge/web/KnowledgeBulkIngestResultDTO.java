@@ -0,0 +1,25 @@
+package com.buildware.kbase.knowledge.web;
+
+/**
+ * One line of the bulk ingest response, describing the outcome of one input document.
+ *
+ * @param index          1-based line number of the document in the request body
+ * @param projectCode    project identifier of the document
+ * @param outcome        {@code INGESTED}, {@code DUPLICATE} when the content was already ingested, or {@code FAILED}
+ * @param ingestedChunks number of vector chunks stored for the content
+ * @param error          failure reason for {@code FAILED} documents
+ */
+public record KnowledgeBulkIngestResultDTO(
+    int index,
+    String projectCode,
+    OutcomeDTO outcome,
+    int ingestedChunks,
+    String error
+) {
+
+    public enum OutcomeDTO {
+        INGESTED,
+        DUPLICATE,
+        FAILED
+    }
+}
@@ -1,16 +1,37 @@
 package com.buildware.kbase.knowledge.web;
 
 import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestJob;
 import com.buildware.kbase.knowledge.domain.KnowledgeHit;
+import com.buildware.kbase.knowledge.domain.SearchOptions;
+import com.buildware.kbase.knowledge.service.IngestJobService;
+import com.buildware.kbase.knowledge.service.KnowledgeBulkIngestService;
+import com.buildware.kbase.knowledge.service.KnowledgeBulkLoadService;
 import com.buildware.kbase.knowledge.service.KnowledgePersistenceService;
 import com.buildware.kbase.knowledge.service.KnowledgeQueryService;
+import com.buildware.kbase.knowledge.service.KnowledgeStreamIngestService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -28,7 +49,12 @@ public class KnowledgeController {
 
     private final KnowledgeQueryService knowledgeQueryService;
     private final KnowledgePersistenceService persistenceService;
+    private final IngestJobService ingestJobService;
+    private final KnowledgeBulkIngestService bulkIngestService;
+    private final KnowledgeBulkLoadService bulkLoadService;
+    private final KnowledgeStreamIngestService streamIngestService;
     private final KnowledgeApiMapper mapper;
+    private final ObjectMapper objectMapper;
 
 
     @GetMapping(path = "/search")
@@ -36,10 +62,30 @@ public class KnowledgeController {
         @RequestParam String projectCode,
         @RequestParam String query,
         @RequestParam(required = false) Integer topK,
-        @RequestParam(required = false) List<String> tags
+        @RequestParam(required = false) List<String> tags,
+        @RequestParam(required = false) Integer oversampling,
+        @RequestParam(required = false) Integer efSearch
     ) {
         int k = topK != null ? topK : 5;
-        List<KnowledgeHit> hits = knowledgeQueryService.query(projectCode, query, k, tags);
+        SearchOptions options = new SearchOptions(oversampling, efSearch);
+        List<KnowledgeHit> hits = knowledgeQueryService.query(projectCode, query, k, tags, options);
+        return mapper.toDtoList(hits);
+    }
+
+    /**
+     * Search with a JSON body, either by query text or by a precomputed query vector, which skips the server-side
+     * embedding.
+     *
+     * @param req search request body
+     * @return ranked hits
+     */
+    @PostMapping(path = "/search", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<KnowledgeChunkDTO> search(@Valid @RequestBody KnowledgeSearchDTO req) {
+        int k = req.topK() != null ? req.topK() : 5;
+        SearchOptions options = new SearchOptions(req.oversampling(), req.efSearch());
+        List<KnowledgeHit> hits = req.vector() != null
+            ? knowledgeQueryService.queryByVector(req.projectCode(), req.vector(), req.model(), k, req.tags(), options)
+            : knowledgeQueryService.query(req.projectCode(), req.query(), k, req.tags(), options);
         return mapper.toDtoList(hits);
     }
 
@@ -52,4 +98,126 @@ public class KnowledgeController {
         int count = persistenceService.ingestDocument(doc);
         return mapper.toIngestResponse(doc, count);
     }
+
+    /**
+     * Re-ingest a document by its {@code docPath}: only changed chunks are embedded, removed chunks are deleted and
+     * unchanged chunks are kept.
+     */
+    @PutMapping(path = "/ingest", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public KnowledgeUpsertResponseDTO upsert(@Valid @RequestBody KnowledgeIngestDTO req) {
+        return mapper.toUpsertResponse(persistenceService.upsertDocument(mapper.toDomain(req)));
+    }
+
+    /**
+     * Queue a document for asynchronous ingestion.
+     *
+     * @param req ingest request body
+     * @return 202 with the queued job and its status URL in the {@code Location} header, or 503 when asynchronous
+     *     ingestion is disabled
+     */
+    @PostMapping(path = "/ingest/async", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<KnowledgeIngestJobDTO> submit(@Valid @RequestBody KnowledgeIngestDTO req) {
+        if (!ingestJobService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        IngestJob job = ingestJobService.submit(mapper.toDomain(req));
+        return ResponseEntity.accepted()
+            .location(URI.create("/knowledge/ingest/" + job.getId()))
+            .body(mapper.toJobDto(job));
+    }
+
+    /**
+     * Get the status and progress of an asynchronous ingest job.
+     *
+     * @param jobId job identifier returned on submission
+     * @return 200 with the job when found, or 404 when missing
+     */
+    @GetMapping(path = "/ingest/{jobId}")
+    public ResponseEntity<KnowledgeIngestJobDTO> getJob(@PathVariable UUID jobId) {
+        return ingestJobService.find(jobId)
+            .map(mapper::toJobDto)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Ingest newline-delimited JSON documents ({@link KnowledgeIngestDTO} per line). The body is parsed incrementally
+     * and one {@link KnowledgeBulkIngestResultDTO} line is streamed back per document as soon as its outcome is known.
+     *
+     * @param body     NDJSON request body
+     * @param response servlet response the NDJSON results are written to
+     */
+    @PostMapping(path = "/ingest/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void bulkIngest(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        OutputStream out = response.getOutputStream();
+        try (MappingIterator<KnowledgeIngestDTO> lines = objectMapper.readerFor(KnowledgeIngestDTO.class).readValues(body)) {
+            bulkIngestService.ingest(documents(lines), result -> writeLine(out, mapper.toBulkResultDto(result)));
+        }
+    }
+
+    /**
+     * Replace all chunks of a project with newline-delimited JSON documents ({@link KnowledgeIngestDTO} per line), for
+     * initial loads and re-embedding. Rows are copied into a staging table whose indexes are built at the end, so the
+     * project keeps serving its previous chunks until the load is complete; any invalid document aborts the load.
+     *
+     * @param projectCode project to load
+     * @param body        NDJSON request body
+     * @return load summary
+     * @throws IOException when the body cannot be read
+     */
+    @PutMapping(path = "/load", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public KnowledgeLoadResponseDTO load(@RequestParam String projectCode, InputStream body) throws IOException {
+        try (MappingIterator<KnowledgeIngestDTO> lines = objectMapper.readerFor(KnowledgeIngestDTO.class).readValues(body)) {
+            return mapper.toLoadResponse(bulkLoadService.load(projectCode, documents(lines)));
+        }
+    }
+
+    /**
+     * Ingest a very large document sent as the raw request body. The body is hashed, split and embedded while it is
+     * read, so the document is never held in memory as a whole.
+     *
+     * @param projectCode project to ingest into
+     * @param tags        optional tags applied to every chunk
+     * @param docPath     optional source path of the document
+     * @param body        UTF-8 document content
+     * @return ingest summary
+     */
+    @PostMapping(path = "/ingest/stream",
+        consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.TEXT_MARKDOWN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public KnowledgeIngestResponseDTO ingestStream(
+        @RequestParam String projectCode,
+        @RequestParam(required = false) List<String> tags,
+        @RequestParam(required = false) String docPath,
+        InputStream body
+    ) {
+        int count = streamIngestService.ingest(projectCode, tags, docPath, body);
+        return new KnowledgeIngestResponseDTO(projectCode, count);
+    }
+
+    private Iterator<IngestDocument> documents(MappingIterator<KnowledgeIngestDTO> lines) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return lines.hasNext();
+            }
+
+            @Override
+            public IngestDocument next() {
+                return mapper.toDomain(lines.next());
+            }
+        };
+    }
+
+    private void writeLine(OutputStream out, KnowledgeBulkIngestResultDTO line) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
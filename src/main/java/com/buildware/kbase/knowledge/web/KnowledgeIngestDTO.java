@@ -11,11 +11,23 @@ import java.util.List;
  * @param projectCode unique project identifier to scope the knowledge
  * @param content     full text content to ingest (will be chunked internally)
  * @param tags        optional labels to categorize the document for later filtering
+ * @param docPath     optional source path of the document; required for upserts
+ * @param title       optional human-readable title returned with search hits
+ * @param chunking    optional chunking strategy; defaults to the project's strategy
  */
 public record KnowledgeIngestDTO(
     @NotBlank String projectCode,
     @NotBlank String content,
-    List<String> tags
+    List<String> tags,
+    String docPath,
+    String title,
+    ChunkingDTO chunking
 ) {
 
+    public enum ChunkingDTO {
+        AUTO,
+        TOKEN,
+        MARKDOWN,
+        CODE
+    }
 }
@@ -0,0 +1,39 @@
+package com.buildware.kbase.knowledge.web;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Status of an asynchronous ingest job.
+ *
+ * @param jobId          job identifier to poll with
+ * @param projectCode    project identifier the content is ingested into
+ * @param status         current lifecycle state
+ * @param chunksTotal    number of chunks produced for the content, once known
+ * @param chunksEmbedded number of chunks embedded so far
+ * @param ingestedChunks number of chunks stored, once the job succeeded
+ * @param error          failure reason, when the job failed
+ * @param createdAt      submission time
+ * @param startedAt      time a worker picked the job up
+ * @param finishedAt     completion time
+ */
+public record KnowledgeIngestJobDTO(
+    UUID jobId,
+    String projectCode,
+    StatusDTO status,
+    Integer chunksTotal,
+    int chunksEmbedded,
+    Integer ingestedChunks,
+    String error,
+    Instant createdAt,
+    Instant startedAt,
+    Instant finishedAt
+) {
+
+    public enum StatusDTO {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+}
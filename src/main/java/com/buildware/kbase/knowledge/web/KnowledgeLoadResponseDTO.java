@@ -0,0 +1,18 @@
+package com.buildware.kbase.knowledge.web;
+
+/**
+ * Response payload returned after a bulk load replaced the chunks of a project.
+ *
+ * @param projectCode project whose chunks were replaced
+ * @param documents   distinct documents loaded
+ * @param chunks      chunks stored for the loaded documents
+ * @param duplicates  documents skipped because their content occurred earlier in the load
+ */
+public record KnowledgeLoadResponseDTO(
+    String projectCode,
+    int documents,
+    int chunks,
+    int duplicates
+) {
+
+}
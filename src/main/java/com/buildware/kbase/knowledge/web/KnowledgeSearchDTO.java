@@ -0,0 +1,29 @@
+package com.buildware.kbase.knowledge.web;
+
+import jakarta.validation.constraints.NotBlank;
+import java.util.List;
+
+/**
+ * Search request payload. Either {@code query} is embedded server-side, or {@code vector} is searched as is.
+ *
+ * @param projectCode  unique project identifier to scope the search
+ * @param query        query text; required unless {@code vector} is given
+ * @param vector       optional precomputed query embedding with the dimensions of the stored embeddings
+ * @param model        embedding model that produced {@code vector}; must match the server's model
+ * @param topK         optional maximum number of hits, 5 by default
+ * @param tags         optional tags; only chunks carrying at least one of them are returned
+ * @param oversampling optional candidates per hit taken from a coarse index before rescoring
+ * @param efSearch     optional HNSW candidate list size, capped server-side
+ */
+public record KnowledgeSearchDTO(
+    @NotBlank String projectCode,
+    String query,
+    float[] vector,
+    String model,
+    Integer topK,
+    List<String> tags,
+    Integer oversampling,
+    Integer efSearch
+) {
+
+}
@@ -0,0 +1,22 @@
+package com.buildware.kbase.knowledge.web;
+
+/**
+ * Response payload returned after re-ingesting a document by its path.
+ *
+ * @param projectCode     project identifier used for the upsert
+ * @param docPath         source path of the document
+ * @param totalChunks     number of chunks of the new document version
+ * @param embeddedChunks  new chunks that were embedded and stored
+ * @param unchangedChunks chunks kept from the previous version without re-embedding
+ * @param deletedChunks   chunks of the previous version that were removed
+ */
+public record KnowledgeUpsertResponseDTO(
+    String projectCode,
+    String docPath,
+    int totalChunks,
+    int embeddedChunks,
+    int unchangedChunks,
+    int deletedChunks
+) {
+
+}
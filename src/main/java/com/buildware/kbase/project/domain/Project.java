@@ -60,9 +60,20 @@ public class Project {
     @Column(name = "last_sync_at")
     private Instant lastSyncAt;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "chunking_strategy", nullable = false, length = 32)
+    @Builder.Default
+    private ChunkingStrategy chunkingStrategy = ChunkingStrategy.AUTO;
 
     public enum Visibility {
         PUBLIC,
         CONFIDENTIAL
     }
+
+    public enum ChunkingStrategy {
+        AUTO,
+        TOKEN,
+        MARKDOWN,
+        CODE
+    }
 }
@@ -4,10 +4,12 @@ import com.buildware.kbase.project.mapper.ProjectMapper;
 import com.buildware.kbase.spi.ProjectInfoSPI;
 import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
 import com.buildware.kbase.spi.ProjectInfoSPI.ProjectUpsert;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -31,6 +33,20 @@ public class ProjectInfoSPIImpl implements ProjectInfoSPI {
             .collect(Collectors.toList());
     }
 
+    @Override
+    public List<ProjectInfo> listSyncable() {
+        return projectService.listProjects(true)
+            .stream()
+            .filter(p -> StringUtils.isNotBlank(p.getBasePath()))
+            .map(projectMapper::toView)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public void markSynced(String code, Instant syncedAt) {
+        projectService.markSynced(code, syncedAt);
+    }
+
     @Override
     public ProjectInfo create(ProjectUpsert upsert) {
         var saved = projectService.create(projectMapper.toDomain(upsert));
@@ -1,8 +1,11 @@
 package com.buildware.kbase.project.service;
 
 import com.buildware.kbase.project.domain.Project;
+import com.buildware.kbase.project.domain.Project.ChunkingStrategy;
 import com.buildware.kbase.project.domain.Project.Visibility;
 import com.buildware.kbase.project.repository.ProjectRepository;
+import com.buildware.kbase.spi.KnowledgeStorageSPI;
+import java.time.Instant;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class ProjectService {
 
     private final ProjectRepository projectRepository;
+    private final KnowledgeStorageSPI knowledgeStorage;
 
     @Transactional(readOnly = true)
     public List<Project> listProjects(boolean includeConfidential) {
@@ -44,7 +48,12 @@ public class ProjectService {
         if (project.getVisibility() == null) {
             project.setVisibility(Visibility.PUBLIC);
         }
-        return projectRepository.save(project);
+        if (project.getChunkingStrategy() == null) {
+            project.setChunkingStrategy(ChunkingStrategy.AUTO);
+        }
+        Project saved = projectRepository.save(project);
+        knowledgeStorage.createProjectStorage(saved.getCode());
+        return saved;
     }
 
     @Transactional
@@ -65,14 +74,25 @@ public class ProjectService {
             if (update.getVisibility() != null) {
                 existing.setVisibility(update.getVisibility());
             }
+            if (update.getChunkingStrategy() != null) {
+                existing.setChunkingStrategy(update.getChunkingStrategy());
+            }
             return projectRepository.save(existing);
         });
     }
 
+    @Transactional
+    public void markSynced(String code, Instant syncedAt) {
+        projectRepository.findByCode(code).ifPresent(it -> it.setLastSyncAt(syncedAt));
+    }
+
     @Transactional
     public void deleteByCode(String code) {
         projectRepository.findByCode(code)
-            .ifPresent(it -> projectRepository.deleteById(it.getId()));
+            .ifPresent(it -> {
+                projectRepository.deleteById(it.getId());
+                knowledgeStorage.dropProjectStorage(it.getCode());
+            });
     }
 
     private static void validateNewProject(Project p) {
@@ -7,13 +7,15 @@ import lombok.Builder;
 /**
  * Project representation exposed by the HTTP API.
  *
- * @param code        unique, URL-safe identifier for the project (e.g. {@code gift-boxes})
- * @param name        human-friendly name (e.g. {@code Gift Boxes})
- * @param basePath    absolute filesystem path backing this project
- * @param domainTags  optional domain tags used for organization and filtering
- * @param description optional free-form description of the project
- * @param visibility  visibility of the project; {@link VisibilityDTO#PUBLIC} by default
- * @param lastSyncAt  timestamp of the last successful filesystem synchronization
+ * @param code             unique, URL-safe identifier for the project (e.g. {@code gift-boxes})
+ * @param name             human-friendly name (e.g. {@code Gift Boxes})
+ * @param basePath         absolute filesystem path backing this project
+ * @param domainTags       optional domain tags used for organization and filtering
+ * @param description      optional free-form description of the project
+ * @param visibility       visibility of the project; {@link VisibilityDTO#PUBLIC} by default
+ * @param lastSyncAt       timestamp of the last successful filesystem synchronization
+ * @param chunkingStrategy how the project's documents are split into chunks; {@link ChunkingStrategyDTO#AUTO} by
+ *                         default
  */
 @Builder
 public record ProjectDTO(
@@ -23,7 +25,8 @@ public record ProjectDTO(
     List<String> domainTags,
     String description,
     VisibilityDTO visibility,
-    Instant lastSyncAt
+    Instant lastSyncAt,
+    ChunkingStrategyDTO chunkingStrategy
 ) {
 
     public enum VisibilityDTO {
@@ -39,4 +42,27 @@ public record ProjectDTO(
         CONFIDENTIAL
     }
 
+    public enum ChunkingStrategyDTO {
+
+        /**
+         * Pick a strategy from the document path and content.
+         */
+        AUTO,
+
+        /**
+         * Fixed-size token windows.
+         */
+        TOKEN,
+
+        /**
+         * Markdown sections split at headings, never inside code blocks.
+         */
+        MARKDOWN,
+
+        /**
+         * Source code split at top-level declarations.
+         */
+        CODE
+    }
+
 }
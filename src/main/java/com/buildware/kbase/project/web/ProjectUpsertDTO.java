@@ -1,5 +1,6 @@
 package com.buildware.kbase.project.web;
 
+import com.buildware.kbase.project.web.ProjectDTO.ChunkingStrategyDTO;
 import com.buildware.kbase.project.web.ProjectDTO.VisibilityDTO;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
@@ -31,4 +32,6 @@ public class ProjectUpsertDTO {
     private String description;
 
     private VisibilityDTO visibility;
+
+    private ChunkingStrategyDTO chunkingStrategy;
 }
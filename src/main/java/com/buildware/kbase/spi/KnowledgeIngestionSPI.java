@@ -1,7 +1,11 @@
 package com.buildware.kbase.spi;
 
+import com.buildware.kbase.spi.ProjectInfoSPI.ChunkingStrategy;
 import jakarta.validation.constraints.NotBlank;
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
  * SPI for knowledge base ingestion operations (e.g., document ingestion).
@@ -18,12 +22,40 @@ public interface KnowledgeIngestionSPI {
     KnowledgeIngestSummaryView ingest(KnowledgeIngestCommand command);
 
     /**
-     * Command payload for ingestion.
+     * Re-ingest a document identified by {@code docPath}, embedding only chunks that changed since the stored version
+     * and deleting chunks that no longer exist.
+     *
+     * @param command ingest command payload with a non-blank {@code docPath}
+     * @return view containing embedded, unchanged and deleted chunk counts
+     */
+    KnowledgeUpsertSummaryView upsert(KnowledgeIngestCommand command);
+
+    /**
+     * Queue a document for asynchronous ingestion. Jobs of the same project are processed in submission order.
+     *
+     * @param command ingest command payload
+     * @return view of the queued job
+     */
+    KnowledgeIngestJobView submit(KnowledgeIngestCommand command);
+
+    /**
+     * Look up an asynchronous ingestion job.
+     *
+     * @param jobId job identifier returned by {@link #submit(KnowledgeIngestCommand)}
+     * @return job view, or empty when unknown
+     */
+    Optional<KnowledgeIngestJobView> getJob(UUID jobId);
+
+    /**
+     * Command payload for ingestion. A {@code null} chunking strategy falls back to the project's strategy.
      */
     record KnowledgeIngestCommand(
         @NotBlank String projectCode,
         @NotBlank String content,
-        List<String> tags
+        List<String> tags,
+        String docPath,
+        String title,
+        ChunkingStrategy chunking
     ) {
 
     }
@@ -37,4 +69,46 @@ public interface KnowledgeIngestionSPI {
     ) {
 
     }
+
+    /**
+     * Summary view returned after an upsert by document path.
+     */
+    record KnowledgeUpsertSummaryView(
+        String projectCode,
+        String docPath,
+        int totalChunks,
+        int embeddedChunks,
+        int unchangedChunks,
+        int deletedChunks
+    ) {
+
+    }
+
+    /**
+     * Status and progress of an asynchronous ingestion job.
+     */
+    record KnowledgeIngestJobView(
+        UUID jobId,
+        String projectCode,
+        KnowledgeIngestJobStatus status,
+        Integer chunksTotal,
+        int chunksEmbedded,
+        Integer ingestedChunks,
+        String error,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt
+    ) {
+
+    }
+
+    /**
+     * Lifecycle of an asynchronous ingestion job.
+     */
+    enum KnowledgeIngestJobStatus {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
 }
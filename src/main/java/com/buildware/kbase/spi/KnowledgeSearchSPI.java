@@ -16,11 +16,30 @@ public interface KnowledgeSearchSPI {
      */
     List<KnowledgeHitView> semanticSearch(KnowledgeQuery query);
 
+    /**
+     * Semantic query by text, or by a query vector the caller already embedded.
+     *
+     * @param projectCode  project scope
+     * @param text         query text; required unless {@code vector} is given
+     * @param topK         maximum number of hits
+     * @param tags         when set, only chunks carrying at least one of these tags
+     * @param oversampling optional candidates per hit taken from a coarse index before exact rescoring; higher trades
+     *                     latency for recall
+     * @param efSearch     optional HNSW candidate list size (e.g. 40-400); higher trades latency for recall, capped
+     *                     server-side
+     * @param vector       optional precomputed query embedding, searched as is instead of embedding {@code text}; must
+     *                     have the dimensions of the stored embeddings
+     * @param model        embedding model that produced {@code vector}; must match the server's model
+     */
     record KnowledgeQuery(
         @NotBlank String projectCode,
-        @NotBlank String text,
+        String text,
         Integer topK,
-        List<String> tags
+        List<String> tags,
+        Integer oversampling,
+        Integer efSearch,
+        float[] vector,
+        String model
     ) {
 
     }
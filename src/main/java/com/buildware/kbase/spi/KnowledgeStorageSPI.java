@@ -0,0 +1,24 @@
+package com.buildware.kbase.spi;
+
+/**
+ * SPI for the per-project storage of the knowledge base, kept in step with the project lifecycle.
+ */
+public interface KnowledgeStorageSPI {
+
+    /**
+     * Create the storage of a new project: its partition of the vector store with its own HNSW indexes. Runs in the
+     * caller's transaction; no-op when it exists.
+     *
+     * @param projectCode unique project code
+     */
+    void createProjectStorage(String projectCode);
+
+    /**
+     * Drop the storage of a project together with all its chunks, its ingest ledger and its synced files, so that a
+     * project recreated under the same code ingests its documents again. Runs in the caller's transaction; no-op when
+     * it does not exist.
+     *
+     * @param projectCode unique project code
+     */
+    void dropProjectStorage(String projectCode);
+}
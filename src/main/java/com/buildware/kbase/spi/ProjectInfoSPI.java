@@ -1,6 +1,7 @@
 package com.buildware.kbase.spi;
 
 import jakarta.validation.constraints.NotBlank;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -11,6 +12,21 @@ public interface ProjectInfoSPI {
 
     List<ProjectInfo> listAll();
 
+    /**
+     * List all projects, including confidential ones, that have a base path to sync knowledge from.
+     *
+     * @return projects with a non-blank base path
+     */
+    List<ProjectInfo> listSyncable();
+
+    /**
+     * Record that a sync pass of the project's base path finished.
+     *
+     * @param code     unique project code
+     * @param syncedAt time the pass started; files modified later are picked up by the next pass
+     */
+    void markSynced(String code, Instant syncedAt);
+
     /**
      * Create a new project.
      *
@@ -35,7 +51,7 @@ public interface ProjectInfoSPI {
      */
     void deleteByCode(String code);
 
-    record ProjectInfo(UUID id, String code, String basePath) {
+    record ProjectInfo(UUID id, String code, String basePath, Instant lastSyncAt, ChunkingStrategy chunkingStrategy) {
 
     }
 
@@ -45,7 +61,8 @@ public interface ProjectInfoSPI {
         @NotBlank String basePath,
         List<String> domainTags,
         String description,
-        Visibility visibility
+        Visibility visibility,
+        ChunkingStrategy chunkingStrategy
     ) {
 
     }
@@ -54,4 +71,15 @@ public interface ProjectInfoSPI {
         PUBLIC,
         CONFIDENTIAL
     }
+
+    /**
+     * How documents are split into chunks. {@code AUTO} picks {@code MARKDOWN} or {@code CODE} from the document path
+     * (or Markdown headings in the content) and falls back to {@code TOKEN}.
+     */
+    enum ChunkingStrategy {
+        AUTO,
+        TOKEN,
+        MARKDOWN,
+        CODE
+    }
 }
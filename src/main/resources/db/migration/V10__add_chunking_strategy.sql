@@ -0,0 +1,5 @@
+-- Chunking strategy used for a project's documents; AUTO picks one from the document path and content
+ALTER TABLE projects ADD COLUMN IF NOT EXISTS chunking_strategy VARCHAR(32) NOT NULL DEFAULT 'AUTO';
+
+-- Per-request chunking strategy of queued ingest jobs; NULL falls back to the project's strategy
+ALTER TABLE ingest_jobs ADD COLUMN IF NOT EXISTS chunking VARCHAR(32);
@@ -0,0 +1,10 @@
+-- Online conversion of vector_store.embedding between vector and halfvec (kbase.knowledge.storage.embedding-type).
+-- While a conversion runs, rows are copied into the shadow column embedding_next in batches, and this trigger keeps
+-- rows written in the meantime in step; the column is cast to the shadow column's type on assignment.
+CREATE OR REPLACE FUNCTION vector_store_copy_embedding() RETURNS trigger AS
+$$
+BEGIN
+    NEW.embedding_next := NEW.embedding;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
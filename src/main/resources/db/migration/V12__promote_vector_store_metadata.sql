@@ -0,0 +1,23 @@
+-- Promote the metadata keys that searches, re-ingestion and deletes filter on to typed, indexed columns, and store
+-- metadata as jsonb. The application writes the columns together with metadata. Rewrites vector_store once.
+ALTER TABLE vector_store
+    ALTER COLUMN metadata TYPE jsonb USING metadata::jsonb,
+    ADD COLUMN IF NOT EXISTS project_code VARCHAR(128),
+    ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64),
+    ADD COLUMN IF NOT EXISTS doc_path     VARCHAR(1024),
+    ADD COLUMN IF NOT EXISTS chunk_index  INTEGER;
+
+UPDATE vector_store
+SET project_code = metadata ->> 'projectCode',
+    content_hash = metadata ->> 'contentHash',
+    doc_path     = metadata ->> 'docPath',
+    chunk_index  = (metadata ->> 'chunkIndex')::int;
+
+-- Replaces the expression index of V8; its leading column also serves the project filter of searches
+DROP INDEX IF EXISTS vector_store_doc_path_idx;
+
+CREATE INDEX IF NOT EXISTS vector_store_project_doc_path_idx
+    ON vector_store (project_code, doc_path, chunk_index);
+
+CREATE INDEX IF NOT EXISTS vector_store_project_content_hash_idx
+    ON vector_store (project_code, content_hash);
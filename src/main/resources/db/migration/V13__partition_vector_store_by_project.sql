@@ -0,0 +1,52 @@
+-- List-partition vector_store by project_code, one partition per project, so every project gets its own HNSW graphs
+-- and searches scan a single partition. Partitions of new projects are created and dropped with the project.
+
+-- Partition table name of a project: readable prefix of the code plus a hash, within the 63-byte identifier limit
+CREATE OR REPLACE FUNCTION vector_store_partition_name(project_code TEXT) RETURNS TEXT AS
+$$
+SELECT 'vector_store_' || left(regexp_replace(lower(project_code), '[^a-z0-9]+', '_', 'g'), 40)
+           || '_' || left(md5(project_code), 8)
+$$ LANGUAGE sql IMMUTABLE;
+
+-- An interrupted embedding type conversion restarts from scratch on the partitioned table
+DROP TRIGGER IF EXISTS vector_store_copy_embedding ON vector_store;
+ALTER TABLE vector_store DROP COLUMN IF EXISTS embedding_next;
+
+ALTER TABLE vector_store RENAME TO vector_store_unpartitioned;
+
+-- Keeps the current column order and embedding type; the primary key must include the partition key
+CREATE TABLE vector_store (
+    LIKE vector_store_unpartitioned INCLUDING DEFAULTS INCLUDING STORAGE,
+    PRIMARY KEY (id, project_code)
+) PARTITION BY LIST (project_code);
+
+DO
+$$
+    DECLARE
+        code TEXT;
+    BEGIN
+        FOR code IN SELECT p.code FROM projects p
+                    UNION
+                    SELECT DISTINCT v.project_code FROM vector_store_unpartitioned v WHERE v.project_code IS NOT NULL
+            LOOP
+                EXECUTE format('CREATE TABLE %I PARTITION OF vector_store FOR VALUES IN (%L)',
+                               vector_store_partition_name(code), code);
+            END LOOP;
+    END
+$$;
+
+-- Chunks without a project were never matched by a search
+INSERT INTO vector_store
+SELECT * FROM vector_store_unpartitioned WHERE project_code IS NOT NULL;
+
+DROP TABLE vector_store_unpartitioned;
+
+-- Within a partition project_code is constant, so the lookups of V12 only need the remaining columns
+CREATE INDEX IF NOT EXISTS vector_store_project_doc_path_idx
+    ON vector_store (doc_path, chunk_index);
+
+CREATE INDEX IF NOT EXISTS vector_store_project_content_hash_idx
+    ON vector_store (content_hash);
+
+-- HNSW indexes are built per partition by EmbeddingStorageConverter for the configured layout on startup; until then
+-- searches scan their project's partition exactly
@@ -0,0 +1,14 @@
+-- Every document path keeps its own ledger row, also when another path of the project has the same content.
+-- Content without a path is still recorded once per project.
+ALTER TABLE ingested_documents DROP CONSTRAINT IF EXISTS ingested_documents_project_hash_uk;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ingested_documents_project_hash_uk
+    ON ingested_documents (project_code, content_hash)
+    WHERE doc_path IS NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ingested_documents_project_path_hash_uk
+    ON ingested_documents (project_code, doc_path, content_hash)
+    WHERE doc_path IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS ingested_documents_project_hash_idx
+    ON ingested_documents (project_code, content_hash);
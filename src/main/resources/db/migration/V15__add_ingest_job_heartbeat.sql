@@ -0,0 +1,4 @@
+-- Lease of a running job, renewed by its worker; jobs whose lease lapsed are returned to the queue
+ALTER TABLE ingest_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP WITH TIME ZONE;
+
+UPDATE ingest_jobs SET heartbeat_at = started_at WHERE status = 'RUNNING';
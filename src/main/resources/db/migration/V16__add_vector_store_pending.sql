@@ -0,0 +1,4 @@
+-- Chunks of a streamed document are stored window by window before the whole document has been read. They stay
+-- pending, hidden from searches and upserts, until the stream completes; pending rows of a stream that crashed are
+-- deleted when the same content is streamed again. Adding a column with a constant default does not rewrite the table.
+ALTER TABLE vector_store ADD COLUMN IF NOT EXISTS pending BOOLEAN NOT NULL DEFAULT false;
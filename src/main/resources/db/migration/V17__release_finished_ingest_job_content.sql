@@ -0,0 +1,4 @@
+-- Content of an ingest job is only needed until the job finishes; finished jobs keep their status and counts only
+ALTER TABLE ingest_jobs ALTER COLUMN content DROP NOT NULL;
+
+UPDATE ingest_jobs SET content = NULL WHERE status IN ('SUCCEEDED', 'FAILED');
@@ -0,0 +1,6 @@
+-- Version of each project's knowledge, bumped in every transaction that writes the project's chunks. Search result
+-- caches of all instances are keyed by it, so a write through one instance invalidates the caches of every instance.
+CREATE TABLE IF NOT EXISTS knowledge_versions (
+    project_code VARCHAR(128) PRIMARY KEY,
+    version      BIGINT NOT NULL
+);
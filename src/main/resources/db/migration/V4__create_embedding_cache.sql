@@ -0,0 +1,9 @@
+-- Content-addressed cache of chunk embeddings, keyed by chunk SHA-256 and embedding model.
+-- The vector column is left unconstrained so that models with different dimensions can share the table.
+CREATE TABLE IF NOT EXISTS embedding_cache (
+    content_hash VARCHAR(64)              NOT NULL,
+    model        VARCHAR(128)             NOT NULL,
+    embedding    vector                   NOT NULL,
+    created_at   TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    PRIMARY KEY (content_hash, model)
+);
@@ -0,0 +1,4 @@
+-- Index ingest markers by (projectCode, contentHash) so re-ingesting known content is a cheap lookup
+CREATE INDEX IF NOT EXISTS vector_store_marker_idx
+    ON vector_store ((metadata ->> 'projectCode'), (metadata ->> 'contentHash'))
+    WHERE metadata ->> 'type' = 'marker';
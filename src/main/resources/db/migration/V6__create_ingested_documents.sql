@@ -0,0 +1,38 @@
+-- Relational ledger of ingested documents; replaces the marker documents previously embedded into vector_store
+CREATE TABLE IF NOT EXISTS ingested_documents (
+    id           UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    project_code VARCHAR(128)             NOT NULL,
+    content_hash VARCHAR(64)              NOT NULL,
+    chunk_count  INTEGER                  NOT NULL,
+    doc_path     VARCHAR(1024),
+    ingested_at  TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    model        VARCHAR(128),
+    CONSTRAINT ingested_documents_project_hash_uk UNIQUE (project_code, content_hash)
+);
+
+CREATE INDEX IF NOT EXISTS ingested_documents_project_path_idx
+    ON ingested_documents (project_code, doc_path);
+
+-- Carry existing markers over to the ledger. Marker rows were counted in totalChunks, so subtract them.
+INSERT INTO ingested_documents (project_code, content_hash, chunk_count, ingested_at)
+SELECT metadata ->> 'projectCode',
+       metadata ->> 'contentHash',
+       GREATEST((metadata ->> 'totalChunks')::int - 1, 0),
+       now()
+FROM vector_store
+WHERE metadata ->> 'type' = 'marker'
+ON CONFLICT (project_code, content_hash) DO NOTHING;
+
+UPDATE vector_store chunk
+SET metadata = jsonb_set(chunk.metadata::jsonb, '{totalChunks}',
+                         to_jsonb((chunk.metadata ->> 'totalChunks')::int - 1))::json
+WHERE chunk.metadata ->> 'type' IS NULL
+  AND EXISTS (SELECT 1
+              FROM vector_store marker
+              WHERE marker.metadata ->> 'type' = 'marker'
+                AND marker.metadata ->> 'projectCode' = chunk.metadata ->> 'projectCode'
+                AND marker.metadata ->> 'contentHash' = chunk.metadata ->> 'contentHash');
+
+DELETE FROM vector_store WHERE metadata ->> 'type' = 'marker';
+
+DROP INDEX IF EXISTS vector_store_marker_idx;
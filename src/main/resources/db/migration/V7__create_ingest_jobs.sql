@@ -0,0 +1,20 @@
+-- Queue of asynchronous ingestion requests drained by in-process workers
+CREATE TABLE IF NOT EXISTS ingest_jobs (
+    id              UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    project_code    VARCHAR(128)             NOT NULL,
+    content         TEXT                     NOT NULL,
+    tags            JSONB,
+    status          VARCHAR(32)              NOT NULL,
+    chunks_total    INTEGER,
+    chunks_embedded INTEGER                  NOT NULL DEFAULT 0,
+    ingested_chunks INTEGER,
+    error           TEXT,
+    created_at      TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    started_at      TIMESTAMP WITH TIME ZONE,
+    finished_at     TIMESTAMP WITH TIME ZONE
+);
+
+-- Claim order is per project, oldest first; only pending work is indexed
+CREATE INDEX IF NOT EXISTS ingest_jobs_pending_idx
+    ON ingest_jobs (project_code, created_at)
+    WHERE status IN ('QUEUED', 'RUNNING');
@@ -0,0 +1,6 @@
+-- Look up the stored chunks of a document by (projectCode, docPath) for incremental re-ingestion
+CREATE INDEX IF NOT EXISTS vector_store_doc_path_idx
+    ON vector_store ((metadata ->> 'projectCode'), (metadata ->> 'docPath'))
+    WHERE metadata ->> 'docPath' IS NOT NULL;
+
+ALTER TABLE ingest_jobs ADD COLUMN IF NOT EXISTS doc_path VARCHAR(1024);
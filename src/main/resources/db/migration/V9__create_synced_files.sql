@@ -0,0 +1,14 @@
+-- Files ingested from a project's basePath by the filesystem sync, used to detect new, changed and deleted files
+CREATE TABLE IF NOT EXISTS synced_files (
+    id            UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    project_code  VARCHAR(128)             NOT NULL,
+    doc_path      VARCHAR(1024)            NOT NULL,
+    size_bytes    BIGINT                   NOT NULL,
+    modified_at   TIMESTAMP WITH TIME ZONE NOT NULL,
+    content_hash  VARCHAR(64)              NOT NULL,
+    chunk_count   INTEGER                  NOT NULL,
+    synced_at     TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    CONSTRAINT synced_files_project_path_uk UNIQUE (project_code, doc_path)
+);
+
+ALTER TABLE ingest_jobs ADD COLUMN IF NOT EXISTS title VARCHAR(512);
@@ -0,0 +1,47 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.buildware.kbase.knowledge.mapper.ChunkingStrategy.TextChunk;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class CodeChunkingStrategyTest {
+
+    private final CodeChunkingStrategy strategy = new CodeChunkingStrategy();
+
+    @Test
+    void should_packSmallDeclarationsTogether() {
+        // GIVEN
+        String text = "import a.b.C;\n\nclass Foo {\n\n    void run() {\n    }\n}\n\nclass Bar {\n}\n";
+
+        // WHEN
+        List<TextChunk> chunks = strategy.split(text).chunks();
+
+        // THEN
+        assertThat(chunks).singleElement().satisfies(c -> {
+            assertThat(c.text()).isEqualTo(text.strip());
+            assertThat(c.section()).isEqualTo("import a.b.C;");
+        });
+    }
+
+    @Test
+    void should_splitLargeClassAtMembers_when_overBudget() {
+        // GIVEN
+        String method = "    /** Doc. */\n    void method%d() {\n" + IntStream.range(0, 30)
+            .mapToObj(i -> "        call(" + i + ");\n").collect(Collectors.joining()) + "    }\n";
+        String text = "public class Service {\n\n" + IntStream.range(0, 12).mapToObj(method::formatted)
+            .collect(Collectors.joining("\n")) + "}\n";
+
+        // WHEN
+        List<TextChunk> chunks = strategy.split(text).chunks();
+
+        // THEN
+        assertThat(chunks).hasSizeGreaterThan(1)
+            .allSatisfy(c -> assertThat(TokenTextChunker.countTokens(c.text())).isLessThanOrEqualTo(ChunkPacker.MAX_TOKENS));
+        assertThat(chunks.get(1).section()).startsWith("public class Service {").contains("void method");
+        assertThat(chunks.get(1).text()).startsWith("/** Doc. */");
+    }
+}
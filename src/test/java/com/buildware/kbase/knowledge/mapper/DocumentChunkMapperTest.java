@@ -3,7 +3,9 @@ package com.buildware.kbase.knowledge.mapper;
 import static com.buildware.kbase.toolkit.instancio.InstancioUtils.random;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.buildware.kbase.knowledge.domain.ChunkingMode;
 import com.buildware.kbase.knowledge.domain.IngestDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.util.List;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -11,13 +13,14 @@ import org.springframework.ai.document.Document;
 
 class DocumentChunkMapperTest {
 
-    private final DocumentChunkMapper mapper = new DocumentChunkMapper();
+    private final DocumentChunkMapper mapper = new DocumentChunkMapper(new SimpleMeterRegistry(), List.of(
+        new TokenChunkingStrategy(), new MarkdownChunkingStrategy(), new CodeChunkingStrategy()));
 
     @Nested
     class SplitAndBuild {
 
         @Test
-        void should_buildDocumentsAndMarker_withMetadata() {
+        void should_buildDocuments_withMetadata() {
             // GIVEN
             IngestDocument doc = random(IngestDocument.class);
 
@@ -25,24 +28,64 @@ class DocumentChunkMapperTest {
             List<Document> docs = mapper.toDocuments(doc);
 
             // THEN
-            assertThat(docs.size()).isGreaterThanOrEqualTo(2);
+            assertThat(docs).isNotEmpty();
 
             Document document = docs.getLast();
-            assertThat(document.getMetadata().keySet()).containsAll(document.getMetadata().keySet());
+            assertThat(document.getMetadata())
+                .containsEntry("projectCode", doc.projectCode())
+                .containsEntry("totalChunks", docs.size())
+                .containsKeys("chunkIndex", "contentHash", "chunkHash");
         }
 
         @Test
-        void should_includeMarker_evenWhen_textShort() {
+        void should_notEmitMarker_when_textShort() {
             // GIVEN
-            IngestDocument doc = random(IngestDocument.class);
+            IngestDocument doc = new IngestDocument("proj", "short text", List.of(), null, null, null);
+
+            // WHEN
+            List<Document> docs = mapper.toDocuments(doc);
+
+            // THEN
+            assertThat(docs).hasSize(1);
+            assertThat(docs.getFirst().getText()).isEqualTo("short text");
+            assertThat(docs.getFirst().getMetadata()).doesNotContainKey("type");
+        }
+    }
+
+    @Nested
+    class StrategySelection {
+
+        @Test
+        void should_pickStrategyFromDocPath_when_auto() {
+            // GIVEN
+            var markdown = new IngestDocument("proj", "text", null, "docs/guide.md", null, ChunkingMode.AUTO);
+            var code = new IngestDocument("proj", "text", null, "src/Main.java", null, null);
+            var headings = new IngestDocument("proj", "# Title\n\ntext", null, null, null, null);
+            var plain = new IngestDocument("proj", "text", null, "notes.txt", null, null);
+
+            // WHEN / THEN
+            assertThat(mapper.strategyFor(markdown).mode()).isEqualTo(ChunkingMode.MARKDOWN);
+            assertThat(mapper.strategyFor(code).mode()).isEqualTo(ChunkingMode.CODE);
+            assertThat(mapper.strategyFor(headings).mode()).isEqualTo(ChunkingMode.MARKDOWN);
+            assertThat(mapper.strategyFor(plain).mode()).isEqualTo(ChunkingMode.TOKEN);
+        }
+
+        @Test
+        void should_titleChunksWithSection_when_markdown() {
+            // GIVEN
+            String content = "# Guide\n\nIntro paragraph.\n\n## Install\n\nRun the installer.\n";
+            var doc = new IngestDocument("proj", content, null, "docs/guide.md", null, null);
 
             // WHEN
             List<Document> docs = mapper.toDocuments(doc);
 
             // THEN
-            assertThat(docs.size()).isGreaterThanOrEqualTo(1);
-            Document marker = docs.getLast();
-            assertThat(marker.getMetadata().get("type")).isEqualTo("marker");
+            assertThat(docs).singleElement().satisfies(d -> {
+                assertThat(d.getText()).isEqualTo(content.strip());
+                assertThat(d.getMetadata())
+                    .containsEntry("title", "Guide")
+                    .containsEntry("docPath", "docs/guide.md");
+            });
         }
     }
 }
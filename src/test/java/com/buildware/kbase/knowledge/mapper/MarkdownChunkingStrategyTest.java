@@ -0,0 +1,61 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.buildware.kbase.knowledge.mapper.ChunkingStrategy.TextChunk;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class MarkdownChunkingStrategyTest {
+
+    private final MarkdownChunkingStrategy strategy = new MarkdownChunkingStrategy();
+
+    @Test
+    void should_startChunksAtHeadings_when_sectionsExceedBudget() {
+        // GIVEN
+        String body = IntStream.range(0, 60).mapToObj(i -> "Sentence " + i + " of the section.")
+            .collect(Collectors.joining(" "));
+        String text = "# Guide\n\n## Install\n\n" + body + "\n\n## Configure\n\n" + body + "\n";
+
+        // WHEN
+        List<TextChunk> chunks = strategy.split(text).chunks();
+
+        // THEN
+        assertThat(chunks).extracting(TextChunk::section)
+            .containsExactly("Guide", "Guide › Configure");
+        assertThat(chunks.get(1).text()).startsWith("## Configure");
+    }
+
+    @Test
+    void should_notSplitAtHeadingInsideCodeFence() {
+        // GIVEN
+        String text = "# Shell\n\n```bash\n# not a heading\necho hi\n```\n";
+
+        // WHEN
+        List<TextChunk> chunks = strategy.split(text).chunks();
+
+        // THEN
+        assertThat(chunks).singleElement().satisfies(c -> {
+            assertThat(c.section()).isEqualTo("Shell");
+            assertThat(c.text()).contains("# not a heading");
+        });
+        assertThat(strategy.title(text, "docs/shell.md")).isEqualTo("Shell");
+    }
+
+    @Test
+    void should_keepEveryTokenBudget_when_sectionHuge() {
+        // GIVEN
+        String paragraph = IntStream.range(0, 60).mapToObj(i -> "Word" + i).collect(Collectors.joining(" "));
+        String text = "# Big\n\n" + IntStream.range(0, 40).mapToObj(i -> paragraph).collect(Collectors.joining("\n\n"));
+
+        // WHEN
+        List<TextChunk> chunks = strategy.split(text).chunks();
+
+        // THEN
+        assertThat(chunks).hasSizeGreaterThan(1)
+            .allSatisfy(c -> assertThat(TokenTextChunker.countTokens(c.text())).isLessThanOrEqualTo(ChunkPacker.MAX_TOKENS))
+            .allSatisfy(c -> assertThat(c.section()).isEqualTo("Big"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+class StreamingDocumentChunkerTest {
+
+    @Test
+    void should_emitSequentialChunks_when_textArrivesInPieces() {
+        // GIVEN
+        String text = String.join(" ", IntStream.range(0, 800).mapToObj(i -> "Sentence number " + i + ".").toList());
+        StreamingDocumentChunker chunker = new StreamingDocumentChunker("proj", List.of("log"), "logs/app.log", "hash", 2048);
+        char[] chars = text.toCharArray();
+
+        // WHEN
+        List<Document> chunks = new ArrayList<>();
+        for (int offset = 0; offset < chars.length; offset += 100) {
+            chunks.addAll(chunker.append(chars, offset, Math.min(100, chars.length - offset)));
+        }
+        chunks.addAll(chunker.finish());
+
+        // THEN
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunker.chunkCount()).isEqualTo(chunks.size());
+        assertThat(chunks).extracting(d -> d.getMetadata().get("chunkIndex"))
+            .containsExactlyElementsOf(IntStream.range(0, chunks.size()).boxed().toList());
+        assertThat(chunks.getFirst().getMetadata())
+            .containsEntry("projectCode", "proj")
+            .containsEntry("tags", List.of("log"))
+            .containsEntry("docPath", "logs/app.log")
+            .containsEntry("contentHash", "hash")
+            .containsKey("chunkHash");
+        assertThat(chunks.getFirst().getText()).startsWith("Sentence number 0.");
+        assertThat(chunks.getLast().getText()).endsWith("Sentence number 799.");
+    }
+
+    @Test
+    void should_keepWordWhole_when_windowEndsInsideIt() {
+        // GIVEN
+        char[] first = (sentences(400) + " depl").toCharArray();
+        char[] second = "oyment finished.".toCharArray();
+        StreamingDocumentChunker chunker = new StreamingDocumentChunker("proj", null, null, "hash", first.length);
+
+        // WHEN
+        List<Document> chunks = new ArrayList<>(chunker.append(first, 0, first.length));
+        chunks.addAll(chunker.append(second, 0, second.length));
+        chunks.addAll(chunker.finish());
+
+        // THEN
+        String text = String.join(" ", chunks.stream().map(Document::getText).toList());
+        assertThat(text).contains("Sentence number 399. deployment finished.").doesNotContain(" oyment");
+        assertEachSentenceOnce(text, 400);
+    }
+
+    @Test
+    void should_keepShortTail_when_windowEndsAfterIt() {
+        // GIVEN
+        char[] first = (sentences(400) + " ok ").toCharArray();
+        char[] second = "then stop.".toCharArray();
+        StreamingDocumentChunker chunker = new StreamingDocumentChunker("proj", null, null, "hash", first.length);
+
+        // WHEN
+        List<Document> chunks = new ArrayList<>(chunker.append(first, 0, first.length));
+        chunks.addAll(chunker.append(second, 0, second.length));
+        chunks.addAll(chunker.finish());
+
+        // THEN
+        String text = String.join(" ", chunks.stream().map(Document::getText).toList());
+        assertThat(text).contains("Sentence number 399. ok then stop.");
+        assertEachSentenceOnce(text, 400);
+    }
+
+    @Test
+    void should_emitNothing_when_textBlank() {
+        // GIVEN
+        StreamingDocumentChunker chunker = new StreamingDocumentChunker("proj", null, null, "hash", 16);
+        char[] blank = "    \n\n    ".toCharArray();
+
+        // WHEN
+        List<Document> chunks = new ArrayList<>(chunker.append(blank, 0, blank.length));
+        chunks.addAll(chunker.finish());
+
+        // THEN
+        assertThat(chunks).isEmpty();
+    }
+
+    private static String sentences(int count) {
+        return String.join(" ", IntStream.range(0, count).mapToObj(i -> "Sentence number " + i + ".").toList());
+    }
+
+    private static void assertEachSentenceOnce(String text, int count) {
+        for (int i = 0; i < count; i++) {
+            assertThat(text.split("Sentence number " + i + "\\.", -1)).as("sentence %d", i).hasSize(2);
+        }
+    }
+}
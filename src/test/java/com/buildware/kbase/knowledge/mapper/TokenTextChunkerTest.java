@@ -0,0 +1,65 @@
+package com.buildware.kbase.knowledge.mapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.buildware.kbase.knowledge.mapper.TokenTextChunker.Split;
+import com.buildware.kbase.knowledge.mapper.TokenTextChunker.Window;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+class TokenTextChunkerTest {
+
+    @Test
+    void should_splitLikeTokenTextSplitter_when_textLong() {
+        // GIVEN
+        String text = IntStream.range(0, 600)
+            .mapToObj(i -> "Sentence number " + i + " talks about chunking" + (i % 7 == 0 ? "!\n" : ". "))
+            .collect(Collectors.joining());
+
+        // WHEN
+        Split split = TokenTextChunker.split(text);
+
+        // THEN
+        List<String> expected = new TokenTextSplitter().apply(List.of(new Document(text))).stream()
+            .map(Document::getText)
+            .toList();
+        assertThat(split.chunks()).hasSizeGreaterThan(1).isEqualTo(expected);
+        assertThat(split.tokens()).isEqualTo(TokenTextChunker.countTokens(text));
+    }
+
+    @Test
+    void should_returnNoChunks_when_textBlank() {
+        // WHEN
+        Split split = TokenTextChunker.split("  \n ");
+
+        // THEN
+        assertThat(split.chunks()).isEmpty();
+        assertThat(split.tokens()).isZero();
+    }
+
+    @Test
+    void should_restartAtLastChunkInSource_when_tokensSplitMultiByteCharacters() {
+        // GIVEN no sentence punctuation, so every chunk is cut at a token boundary, many of them inside a character
+        String text = IntStream.range(0, 400)
+            .mapToObj(i -> "Größe 日本語のテキスト 😀🚀 [" + i + "] ")
+            .collect(Collectors.joining());
+
+        // WHEN
+        Window window = TokenTextChunker.splitWindow(text);
+
+        // THEN
+        List<String> chunks = TokenTextChunker.split(text).chunks();
+        assertThat(chunks).hasSizeGreaterThan(2);
+        assertThat(window.chunks()).isEqualTo(chunks.subList(0, chunks.size() - 1));
+        assertThat(text).endsWith(window.rest());
+        assertThat(Character.isLowSurrogate(window.rest().charAt(0))).isFalse();
+        String last = chunks.getLast().replaceFirst("^\uFFFD+", "");
+        String lastStart = last.substring(0, Math.min(40, last.length()));
+        assertThat(lastStart).doesNotContain("\uFFFD");
+        assertThat(window.rest().strip().indexOf(lastStart)).isBetween(0, 2);
+    }
+}
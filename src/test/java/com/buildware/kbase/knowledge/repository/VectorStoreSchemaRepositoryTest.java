@@ -0,0 +1,79 @@
+package com.buildware.kbase.knowledge.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.EmbeddingType;
+import com.buildware.kbase.toolkit.AbstractDataJpaTest;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Import(VectorStoreSchemaRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VectorStoreSchemaRepositoryTest extends AbstractDataJpaTest {
+
+    private static final String PROJECT = "schema-test";
+
+    private static final String INSERT_SQL = """
+        INSERT INTO vector_store (id, content, metadata, embedding, project_code)
+        VALUES (?::uuid, 'chunk', '{}'::jsonb, array_fill(0.5, ARRAY[1536])::vector, ?)
+        """;
+
+    @Autowired
+    private VectorStoreSchemaRepository schemaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        schemaRepository.createPartition(PROJECT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        schemaRepository.dropPartition(PROJECT);
+        schemaRepository.convert(EmbeddingType.VECTOR, 100, copied -> { });
+        schemaRepository.reindex(0, false);
+    }
+
+    @Test
+    void should_copyEveryEmbedding_when_idsHaveHighBitSetAndClear() {
+        // GIVEN
+        List<String> ids = List.of(
+            "00000000-0000-0000-0000-000000000001",
+            "7fffffff-ffff-ffff-ffff-ffffffffffff",
+            "80000000-0000-0000-0000-000000000000",
+            "ffffffff-ffff-ffff-ffff-ffffffffffff");
+        ids.forEach(id -> jdbcTemplate.update(INSERT_SQL, id, PROJECT));
+
+        // WHEN
+        boolean converted = schemaRepository.convert(EmbeddingType.HALFVEC, 1, copied -> { });
+
+        // THEN
+        assertThat(converted).isTrue();
+        assertThat(schemaRepository.embeddingColumn().type()).isEqualTo(EmbeddingType.HALFVEC);
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM vector_store WHERE embedding IS NOT NULL", UUID.class))
+            .containsExactlyInAnyOrderElementsOf(ids.stream().map(UUID::fromString).toList());
+    }
+
+    @Test
+    void should_keepCoarseIndex_when_columnIsConverted() {
+        // GIVEN
+        jdbcTemplate.update(INSERT_SQL, UUID.randomUUID().toString(), PROJECT);
+        schemaRepository.reindex(256, false);
+
+        // WHEN
+        schemaRepository.convert(EmbeddingType.HALFVEC, 100, copied -> { });
+
+        // THEN
+        assertThat(schemaRepository.layout().indexedFor(256, false)).isTrue();
+    }
+}
@@ -0,0 +1,111 @@
+package com.buildware.kbase.knowledge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.EmbeddingCache;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.DocumentChunker;
+import com.buildware.kbase.knowledge.repository.EmbeddingCacheRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingCacheServiceTest {
+
+    private static final String MODEL = "test-model";
+
+    @Mock
+    private EmbeddingScheduler embeddingScheduler;
+
+    @Mock
+    private EmbeddingCacheRepository cacheRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private EmbeddingCacheService service;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        var properties = new KnowledgeProperties(MODEL, new EmbeddingCache(true, 100), null, null, null, null, null, null,
+            null, null, null, null);
+        service = new EmbeddingCacheService(embeddingScheduler, cacheRepository, properties, meterRegistry);
+    }
+
+    @Test
+    void should_embedOnlyMisses_when_someChunksCached() {
+        // GIVEN
+        Document cached = new Document("cached chunk");
+        Document fresh = new Document("fresh chunk");
+        float[] cachedVector = {1f, 0f};
+        float[] freshVector = {0f, 1f};
+        String cachedHash = DocumentChunker.sha256Hex(cached.getText());
+        when(cacheRepository.findAll(eq(MODEL), anyCollection())).thenReturn(Map.of(cachedHash, cachedVector));
+        when(embeddingScheduler.embed(anyList()))
+            .thenReturn(List.<float[]>of(freshVector));
+
+        // WHEN
+        List<float[]> result = service.embed(List.of(cached, fresh));
+
+        // THEN
+        assertThat(result).containsExactly(cachedVector, freshVector);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Document>> embedded = ArgumentCaptor.forClass(List.class);
+        verify(embeddingScheduler).embed(embedded.capture());
+        assertThat(embedded.getValue()).containsExactly(fresh);
+        verify(cacheRepository).saveAll(MODEL, Map.of(DocumentChunker.sha256Hex(fresh.getText()), freshVector));
+        assertThat(meterRegistry.get("kbase.embedding.cache.hits").tag("tier", "database").counter().count())
+            .isEqualTo(1.0);
+        assertThat(meterRegistry.get("kbase.embedding.cache.misses").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void should_serveFromMemory_when_chunkSeenBefore() {
+        // GIVEN
+        Document chunk = new Document("repeated chunk");
+        float[] vector = {0.5f, 0.5f};
+        when(cacheRepository.findAll(eq(MODEL), anyCollection())).thenReturn(Map.of());
+        when(embeddingScheduler.embed(anyList()))
+            .thenReturn(List.<float[]>of(vector));
+        service.embed(List.of(chunk));
+
+        // WHEN
+        List<float[]> result = service.embed(List.of(new Document("repeated chunk")));
+
+        // THEN
+        assertThat(result).containsExactly(vector);
+        assertThat(meterRegistry.get("kbase.embedding.cache.hits").tag("tier", "memory").counter().count())
+            .isEqualTo(1.0);
+    }
+
+    @Test
+    void should_embedDuplicateTextOnce_when_sameChunkRepeated() {
+        // GIVEN
+        float[] vector = {0.3f, 0.7f};
+        when(cacheRepository.findAll(eq(MODEL), anyCollection())).thenReturn(Map.of());
+        when(embeddingScheduler.embed(anyList()))
+            .thenReturn(List.<float[]>of(vector));
+
+        // WHEN
+        List<float[]> result = service.embed(List.of(new Document("same"), new Document("same")));
+
+        // THEN
+        assertThat(result).containsExactly(vector, vector);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Document>> embedded = ArgumentCaptor.forClass(List.class);
+        verify(embeddingScheduler).embed(embedded.capture());
+        assertThat(embedded.getValue()).hasSize(1);
+    }
+}
@@ -0,0 +1,104 @@
+package com.buildware.kbase.knowledge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.Embedding;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.web.client.ResourceAccessException;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingSchedulerTest {
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    private SimpleMeterRegistry meterRegistry;
+    private EmbeddingScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        var embedding = new Embedding(3, 100, 2, 0, 0, 3, Duration.ofMillis(1), Duration.ofMillis(5));
+        scheduler = new EmbeddingScheduler(embeddingModel,
+            new KnowledgeProperties(null, null, null, null, null, embedding, null, null, null, null, null,
+                null), meterRegistry);
+    }
+
+    @Test
+    void should_packBatchesByTokenBudget_when_inputsExceedBudget() {
+        // GIVEN
+        when(embeddingModel.embed(anyList())).thenAnswer(inv -> vectors(inv.<List<String>>getArgument(0)));
+
+        // WHEN
+        List<float[]> result = scheduler.embed(List.of(
+            new Document("one two"), new Document("three four"), new Document("five six")));
+
+        // THEN
+        assertThat(result).extracting(v -> v[0]).containsExactly(7f, 10f, 8f);
+        verify(embeddingModel, times(3)).embed(anyList());
+        assertThat(meterRegistry.counter("kbase.embedding.requests").count()).isEqualTo(3);
+    }
+
+    @Test
+    void should_splitAndRetryBatch_when_rateLimited() {
+        // GIVEN
+        var limited = new TransientAiException("429 - rate limited");
+        when(embeddingModel.embed(List.of("a", "b"))).thenThrow(limited);
+        when(embeddingModel.embed(List.of("a"))).thenReturn(List.of(new float[] {1f}));
+        when(embeddingModel.embed(List.of("b"))).thenReturn(List.of(new float[] {2f}));
+
+        // WHEN
+        List<float[]> result = scheduler.embed(List.of(new Document("a"), new Document("b")));
+
+        // THEN
+        assertThat(result).extracting(v -> v[0]).containsExactly(1f, 2f);
+        assertThat(meterRegistry.counter("kbase.embedding.rate-limited").count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_fail_when_errorIsNotTransient() {
+        // GIVEN
+        when(embeddingModel.embed(anyList())).thenThrow(new NonTransientAiException("429 - rate_limit_exceeded"));
+
+        // WHEN / THEN
+        assertThatThrownBy(() -> scheduler.embed(List.of(new Document("a"))))
+            .isInstanceOf(NonTransientAiException.class);
+        verify(embeddingModel).embed(anyList());
+    }
+
+    @Test
+    void should_retryBatch_when_ioErrorOccurs() {
+        // GIVEN
+        when(embeddingModel.embed(List.of("a")))
+            .thenThrow(new ResourceAccessException("Read timed out"))
+            .thenReturn(List.of(new float[] {1f}));
+
+        // WHEN
+        List<float[]> result = scheduler.embed(List.of(new Document("a")));
+
+        // THEN
+        assertThat(result).extracting(v -> v[0]).containsExactly(1f);
+        verify(embeddingModel, times(2)).embed(List.of("a"));
+    }
+
+    private static List<float[]> vectors(List<String> texts) {
+        return texts.stream().map(t -> new float[] {t.length()}).toList();
+    }
+}
@@ -0,0 +1,91 @@
+package com.buildware.kbase.knowledge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.EmbeddingType;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.Storage;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.ColumnType;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.Layout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingStorageConverterTest {
+
+    @Mock
+    private VectorStoreSchemaRepository schema;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private EmbeddingStorageConverter converter(EmbeddingType target, int coarseDimensions) {
+        var storage = new Storage(target, coarseDimensions, false, 100, Duration.ofMinutes(1), DataSize.ofGigabytes(1), 4);
+        var properties = new KnowledgeProperties(null, null, null, null, null, null, storage, null, null, null, null,
+            null);
+        return new EmbeddingStorageConverter(schema, properties, meterRegistry);
+    }
+
+    private static Layout layout(EmbeddingType type, boolean fullIndex, Set<Integer> coarseIndexes) {
+        return new Layout(new ColumnType(type, 1536), fullIndex, coarseIndexes, false);
+    }
+
+    @Test
+    void should_changeNothing_when_layoutMatches() {
+        // GIVEN
+        when(schema.refresh()).thenReturn(layout(EmbeddingType.HALFVEC, true, Set.of()));
+
+        // WHEN
+        converter(EmbeddingType.HALFVEC, 0).convertIfNeeded();
+
+        // THEN
+        verify(schema, never()).convert(any(), anyInt(), any());
+        verify(schema, never()).reindex(anyInt(), anyBoolean());
+    }
+
+    @Test
+    void should_reindex_when_coarseDimensionsChanged() {
+        // GIVEN
+        when(schema.refresh()).thenReturn(layout(EmbeddingType.VECTOR, false, Set.of(512)));
+
+        // WHEN
+        converter(EmbeddingType.VECTOR, 256).convertIfNeeded();
+
+        // THEN
+        verify(schema).reindex(256, false);
+        verify(schema, never()).convert(any(), anyInt(), any());
+    }
+
+    @Test
+    void should_convertAndCountRows_when_columnTypeDiffers() {
+        // GIVEN
+        when(schema.refresh()).thenReturn(layout(EmbeddingType.VECTOR, true, Set.of()));
+        doAnswer(invocation -> {
+            IntConsumer progress = invocation.getArgument(2);
+            progress.accept(100);
+            progress.accept(20);
+            return true;
+        }).when(schema).convert(eq(EmbeddingType.HALFVEC), eq(100), any());
+
+        // WHEN
+        converter(EmbeddingType.HALFVEC, 0).convertIfNeeded();
+
+        // THEN
+        assertThat(meterRegistry.counter("kbase.storage.embedding.converted").count()).isEqualTo(120);
+    }
+}
@@ -0,0 +1,183 @@
+package com.buildware.kbase.knowledge.service;
+
+import static com.buildware.kbase.toolkit.instancio.InstancioUtils.random;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.IngestJobs;
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestJob;
+import com.buildware.kbase.knowledge.domain.IngestJob.Status;
+import com.buildware.kbase.knowledge.repository.IngestJobRepository;
+import com.buildware.kbase.knowledge.service.IngestJobService.IngestJobSubmitted;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import org.instancio.junit.InstancioExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+@ExtendWith({MockitoExtension.class, InstancioExtension.class})
+class IngestJobServiceTest {
+
+    @Mock
+    private IngestJobRepository jobRepository;
+
+    @Mock
+    private ProjectInfoSPI projectInfoSPI;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private KnowledgeProperties properties;
+
+    @InjectMocks
+    private IngestJobService service;
+
+    @Test
+    void should_queueJobAndPublishEvent_when_submitValid() {
+        // GIVEN
+        var doc = random(IngestDocument.class);
+        UUID jobId = UUID.randomUUID();
+        enableJobs(true);
+        when(projectInfoSPI.getByCode(doc.projectCode())).thenReturn(Optional.of(random(ProjectInfo.class)));
+        when(jobRepository.save(any(IngestJob.class))).thenAnswer(inv -> inv.<IngestJob>getArgument(0).withId(jobId));
+
+        // WHEN
+        IngestJob job = service.submit(doc);
+
+        // THEN
+        assertThat(job.getId()).isEqualTo(jobId);
+        assertThat(job.getStatus()).isEqualTo(Status.QUEUED);
+        assertThat(job.getProjectCode()).isEqualTo(doc.projectCode());
+        assertThat(job.getContent()).isEqualTo(doc.content());
+        assertThat(job.getCreatedAt()).isNotNull();
+        verify(eventPublisher).publishEvent(new IngestJobSubmitted(jobId));
+    }
+
+    @Test
+    void should_reject_when_projectMissing() {
+        // GIVEN
+        var doc = random(IngestDocument.class);
+        enableJobs(true);
+        when(projectInfoSPI.getByCode(doc.projectCode())).thenReturn(Optional.empty());
+
+        // WHEN / THEN
+        assertThatThrownBy(() -> service.submit(doc)).isInstanceOf(IllegalArgumentException.class);
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    void should_markRunning_when_jobClaimed() {
+        // GIVEN
+        IngestJob queued = IngestJob.builder().id(UUID.randomUUID()).status(Status.QUEUED).build();
+        when(jobRepository.findNextClaimable()).thenReturn(Optional.of(queued));
+
+        // WHEN
+        Optional<IngestJob> claimed = service.claimNext();
+
+        // THEN
+        assertThat(claimed).containsSame(queued);
+        assertThat(queued.getStatus()).isEqualTo(Status.RUNNING);
+        assertThat(queued.getStartedAt()).isNotNull();
+        assertThat(queued.getHeartbeatAt()).isEqualTo(queued.getStartedAt());
+    }
+
+    @Test
+    void should_renewHeartbeatOfRunningJobs_when_jobsInProgress() {
+        // GIVEN
+        UUID jobId = UUID.randomUUID();
+
+        // WHEN
+        service.heartbeat(Set.of(jobId));
+        service.heartbeat(List.of());
+
+        // THEN
+        verify(jobRepository).renewHeartbeats(eq(Set.of(jobId)), any(), eq(Status.RUNNING));
+        verify(jobRepository).renewHeartbeats(any(), any(), any());
+    }
+
+    @Test
+    void should_recordErrorAndFinishTime_when_jobFails() {
+        // GIVEN
+        UUID jobId = UUID.randomUUID();
+        IngestJob running = IngestJob.builder().id(jobId).status(Status.RUNNING).content("text").build();
+        when(jobRepository.findById(jobId)).thenReturn(Optional.of(running));
+
+        // WHEN
+        service.fail(jobId, "boom");
+
+        // THEN
+        assertThat(running.getStatus()).isEqualTo(Status.FAILED);
+        assertThat(running.getError()).isEqualTo("boom");
+        assertThat(running.getFinishedAt()).isNotNull();
+        assertThat(running.getContent()).isNull();
+    }
+
+    @Test
+    void should_reject_when_jobsDisabled() {
+        // GIVEN
+        var doc = random(IngestDocument.class);
+        enableJobs(false);
+
+        // WHEN / THEN
+        assertThatThrownBy(() -> service.submit(doc)).isInstanceOf(IllegalStateException.class);
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    void should_releaseContent_when_jobSucceeds() {
+        // GIVEN
+        UUID jobId = UUID.randomUUID();
+        IngestJob running = IngestJob.builder().id(jobId).status(Status.RUNNING).content("text").build();
+        when(jobRepository.findById(jobId)).thenReturn(Optional.of(running));
+
+        // WHEN
+        service.complete(jobId, 3);
+
+        // THEN
+        assertThat(running.getStatus()).isEqualTo(Status.SUCCEEDED);
+        assertThat(running.getIngestedChunks()).isEqualTo(3);
+        assertThat(running.getContent()).isNull();
+    }
+
+    @Test
+    void should_returnJobToQueue_when_requeuedWhileRunning() {
+        // GIVEN
+        UUID jobId = UUID.randomUUID();
+        Instant startedAt = Instant.now();
+        IngestJob running = IngestJob.builder().id(jobId).status(Status.RUNNING).content("text").startedAt(startedAt)
+            .heartbeatAt(startedAt).build();
+        when(jobRepository.findById(jobId)).thenReturn(Optional.of(running));
+
+        // WHEN
+        service.requeue(jobId);
+
+        // THEN
+        assertThat(running.getStatus()).isEqualTo(Status.QUEUED);
+        assertThat(running.getStartedAt()).isNull();
+        assertThat(running.getHeartbeatAt()).isNull();
+        assertThat(running.getContent()).isNotNull();
+    }
+
+    private void enableJobs(boolean enabled) {
+        when(properties.ingestJobs()).thenReturn(new IngestJobs(enabled, 4, Duration.ofSeconds(1), Duration.ofMinutes(2),
+            Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofMinutes(1)));
+    }
+}
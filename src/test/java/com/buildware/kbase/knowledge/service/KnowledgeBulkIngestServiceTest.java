@@ -0,0 +1,107 @@
+package com.buildware.kbase.knowledge.service;
+
+import static com.buildware.kbase.toolkit.instancio.InstancioUtils.random;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.Ingest;
+import com.buildware.kbase.knowledge.domain.BulkIngestResult;
+import com.buildware.kbase.knowledge.domain.BulkIngestResult.Outcome;
+import com.buildware.kbase.knowledge.domain.ChunkingMode;
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper;
+import com.buildware.kbase.knowledge.repository.IngestedDocumentRepository;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.instancio.junit.InstancioExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+
+@ExtendWith({MockitoExtension.class, InstancioExtension.class})
+class KnowledgeBulkIngestServiceTest {
+
+    @Mock
+    private DocumentChunkMapper documentChunkMapper;
+
+    @Mock
+    private ProjectInfoSPI projectInfoSPI;
+
+    @Mock
+    private EmbeddingCacheService embeddingCacheService;
+
+    @Mock
+    private IngestedDocumentRepository ingestedDocumentRepository;
+
+    @Mock
+    private KnowledgePersistenceService persistenceService;
+
+    @Mock
+    private KnowledgeProperties properties;
+
+    @InjectMocks
+    private KnowledgeBulkIngestService service;
+
+    @Test
+    void should_embedDocumentsTogether_when_underTokenBudget() {
+        // GIVEN
+        var first = new IngestDocument("p1", "first document", List.of(), null, null, ChunkingMode.TOKEN);
+        var second = new IngestDocument("p1", "second document", List.of(), null, null, ChunkingMode.TOKEN);
+        var firstChunk = new Document("first document");
+        var secondChunk = new Document("second document");
+        when(properties.ingest()).thenReturn(new Ingest(64, 8000, 65536));
+        when(projectInfoSPI.getByCode("p1")).thenReturn(Optional.of(random(ProjectInfo.class)));
+        when(ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(anyString(), anyString()))
+            .thenReturn(Optional.empty());
+        when(documentChunkMapper.toDocuments(eq(List.of(first, second)), anyList()))
+            .thenReturn(List.of(List.of(firstChunk), List.of(secondChunk)));
+        List<float[]> embeddings = List.of(new float[] {1f}, new float[] {2f});
+        when(embeddingCacheService.embed(List.of(firstChunk, secondChunk))).thenReturn(embeddings);
+        when(persistenceService.persistAll(anyList(), any())).thenReturn(List.of(
+            BulkIngestResult.ingested(1, "p1", 1), BulkIngestResult.ingested(2, "p1", 1)));
+        List<BulkIngestResult> results = new ArrayList<>();
+
+        // WHEN
+        service.ingest(List.of(first, second).iterator(), results::add);
+
+        // THEN
+        verify(projectInfoSPI).getByCode("p1");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ChunkedDocument>> batch = ArgumentCaptor.forClass(List.class);
+        verify(persistenceService).persistAll(batch.capture(), eq(embeddings));
+        assertThat(batch.getValue()).extracting(ChunkedDocument::index).containsExactly(1, 2);
+        assertThat(results).extracting(BulkIngestResult::outcome).containsExactly(Outcome.INGESTED, Outcome.INGESTED);
+    }
+
+    @Test
+    void should_reportFailureAndContinue_when_documentInvalid() {
+        // GIVEN
+        var blank = new IngestDocument("p1", " ", List.of(), null, null, null);
+        var unknown = new IngestDocument("missing", "content", List.of(), null, null, null);
+        when(properties.ingest()).thenReturn(new Ingest(64, 8000, 65536));
+        when(projectInfoSPI.getByCode("missing")).thenReturn(Optional.empty());
+        List<BulkIngestResult> results = new ArrayList<>();
+
+        // WHEN
+        service.ingest(List.of(blank, unknown).iterator(), results::add);
+
+        // THEN
+        assertThat(results).extracting(BulkIngestResult::index).containsExactly(1, 2);
+        assertThat(results).extracting(BulkIngestResult::outcome).containsOnly(Outcome.FAILED);
+        verify(embeddingCacheService, never()).embed(any());
+    }
+}
@@ -0,0 +1,126 @@
+package com.buildware.kbase.knowledge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.Ingest;
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestedDocument;
+import com.buildware.kbase.knowledge.domain.LoadResult;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper;
+import com.buildware.kbase.knowledge.repository.VectorStoreLoadRepository;
+import com.buildware.kbase.knowledge.repository.VectorStoreLoadRepository.PartitionLoad;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+
+@ExtendWith(MockitoExtension.class)
+class KnowledgeBulkLoadServiceTest {
+
+    private static final ProjectInfo PROJECT = new ProjectInfo(UUID.randomUUID(), "p1", "/data/p1", null, null);
+
+    @Mock
+    private DocumentChunkMapper documentChunkMapper;
+
+    @Mock
+    private ProjectInfoSPI projectInfoSPI;
+
+    @Mock
+    private EmbeddingCacheService embeddingCacheService;
+
+    @Mock
+    private VectorStoreLoadRepository loadRepository;
+
+    @Mock
+    private KnowledgeProperties properties;
+
+    @Mock
+    private KnowledgeVersions knowledgeVersions;
+
+    @InjectMocks
+    private KnowledgeBulkLoadService service;
+
+    private final List<Document> written = new ArrayList<>();
+    private final List<IngestedDocument> ledger = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(projectInfoSPI.getByCode("p1")).thenReturn(Optional.of(PROJECT));
+    }
+
+    private void runLoads() {
+        when(loadRepository.replacePartition(eq("p1"), any())).thenAnswer(inv -> {
+            PartitionLoad load = inv.getArgument(1);
+            ledger.addAll(load.load((chunks, embeddings) -> written.addAll(chunks)));
+            return true;
+        });
+    }
+
+    @Test
+    void should_writeChunksAndLedger_when_documentsValid() {
+        // GIVEN
+        runLoads();
+        var first = new IngestDocument(null, "first document", List.of(), "a.md", null, null);
+        var second = new IngestDocument("p1", "second document", List.of(), "b.md", null, null);
+        var repeated = new IngestDocument("p1", "first document", List.of(), "c.md", null, null);
+        var firstChunk = new Document("first document");
+        var secondChunk = new Document("second document");
+        when(properties.ingest()).thenReturn(new Ingest(64, 8000, 65536));
+        when(documentChunkMapper.toDocuments(anyList(), anyList()))
+            .thenReturn(List.of(List.of(firstChunk), List.of(secondChunk)));
+        when(embeddingCacheService.embed(List.of(firstChunk, secondChunk)))
+            .thenReturn(List.of(new float[] {1f}, new float[] {2f}));
+
+        // WHEN
+        LoadResult result = service.load("p1", List.of(first, second, repeated).iterator());
+
+        // THEN
+        assertThat(result).isEqualTo(new LoadResult("p1", 2, 2, 1));
+        assertThat(written).containsExactly(firstChunk, secondChunk);
+        assertThat(ledger).extracting(IngestedDocument::getDocPath).containsExactly("a.md", "b.md");
+        assertThat(ledger).extracting(IngestedDocument::getProjectCode).containsOnly("p1");
+    }
+
+    @Test
+    void should_abortLoad_when_documentTargetsOtherProject() {
+        // GIVEN
+        runLoads();
+        var foreign = new IngestDocument("p2", "content", List.of(), null, null, null);
+
+        // WHEN
+        Throwable thrown = catchThrowable(() -> service.load("p1", List.of(foreign).iterator()));
+
+        // THEN
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("p2");
+        verify(embeddingCacheService, never()).embed(anyList());
+    }
+
+    @Test
+    void should_throw_when_storageLocked() {
+        // GIVEN
+        when(loadRepository.replacePartition(eq("p1"), any())).thenReturn(false);
+
+        // WHEN
+        Throwable thrown = catchThrowable(() -> service.load("p1", List.<IngestDocument>of().iterator()));
+
+        // THEN
+        assertThat(thrown).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -6,10 +6,15 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestJob;
 import com.buildware.kbase.knowledge.mapper.KnowledgeIngestionMapper;
 import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestCommand;
+import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestJobStatus;
+import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestJobView;
 import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestSummaryView;
+import java.time.Instant;
 import java.util.List;
+import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -23,6 +28,9 @@ class KnowledgePersistenceSPIImplTest {
     @Mock
     private KnowledgePersistenceService maintenanceService;
 
+    @Mock
+    private IngestJobService jobService;
+
     @Mock
     private KnowledgeIngestionMapper mapper;
 
@@ -35,9 +43,12 @@ class KnowledgePersistenceSPIImplTest {
         KnowledgeIngestCommand request = new KnowledgeIngestCommand(
             "proj-1",
             "Some content to ingest",
-            List.of("doc", "sample")
+            List.of("doc", "sample"),
+            null,
+            null,
+            null
         );
-        IngestDocument mappedDoc = new IngestDocument("proj-1", "Some content to ingest", List.of("doc", "sample"));
+        IngestDocument mappedDoc = new IngestDocument("proj-1", "Some content to ingest", List.of("doc", "sample"), null, null, null);
         when(mapper.toDomain(request)).thenReturn(mappedDoc);
         when(maintenanceService.ingestDocument(any(IngestDocument.class))).thenReturn(3);
         when(mapper.toSummaryView(mappedDoc, 3)).thenReturn(new KnowledgeIngestSummaryView("proj-1", 3));
@@ -56,4 +67,23 @@ class KnowledgePersistenceSPIImplTest {
         assertThat(response.projectCode()).isEqualTo("proj-1");
         assertThat(response.ingestedChunks()).isEqualTo(3);
     }
+
+    @Test
+    void should_submitJob_when_valid_request() {
+        // GIVEN
+        KnowledgeIngestCommand request = new KnowledgeIngestCommand("proj-1", "Some content to ingest", List.of(), null, null, null);
+        IngestDocument mappedDoc = new IngestDocument("proj-1", "Some content to ingest", List.of(), null, null, null);
+        IngestJob job = IngestJob.builder().id(UUID.randomUUID()).projectCode("proj-1").build();
+        KnowledgeIngestJobView view = new KnowledgeIngestJobView(job.getId(), "proj-1", KnowledgeIngestJobStatus.QUEUED,
+            null, 0, null, null, Instant.now(), null, null);
+        when(mapper.toDomain(request)).thenReturn(mappedDoc);
+        when(jobService.submit(mappedDoc)).thenReturn(job);
+        when(mapper.toJobView(job)).thenReturn(view);
+
+        // WHEN
+        KnowledgeIngestJobView response = sut.submit(request);
+
+        // THEN
+        assertThat(response).isEqualTo(view);
+    }
 }
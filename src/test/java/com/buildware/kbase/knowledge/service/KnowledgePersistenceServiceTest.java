@@ -2,36 +2,68 @@ package com.buildware.kbase.knowledge.service;
 
 import static com.buildware.kbase.toolkit.instancio.InstancioUtils.random;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.Ingest;
+import com.buildware.kbase.knowledge.domain.ChunkingMode;
 import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestedDocument;
+import com.buildware.kbase.knowledge.domain.UpsertResult;
 import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.DocumentChunker;
+import com.buildware.kbase.knowledge.repository.IngestedDocumentRepository;
+import com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository;
+import com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository.StoredChunk;
 import com.buildware.kbase.spi.ProjectInfoSPI;
 import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import org.instancio.junit.InstancioExtension;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.transaction.support.TransactionOperations;
 
 @ExtendWith({MockitoExtension.class, InstancioExtension.class})
 class KnowledgePersistenceServiceTest {
 
-    @Mock
-    private VectorStore vectorStore;
-
     @Mock
     private ProjectInfoSPI projectInfoSPI;
 
     @Mock
     private DocumentChunkMapper documentChunkMapper;
 
+    @Mock
+    private EmbeddingCacheService embeddingCacheService;
+
+    @Mock
+    private KnowledgeChunkRepository chunkRepository;
+
+    @Mock
+    private IngestedDocumentRepository ingestedDocumentRepository;
+
+    @Mock
+    private KnowledgeProperties properties;
+
+    @Mock
+    private KnowledgeVersions knowledgeVersions;
+
+    @Spy
+    private TransactionOperations transactionOperations = TransactionOperations.withoutTransaction();
+
     @InjectMocks
     private KnowledgePersistenceService service;
 
@@ -41,15 +73,197 @@ class KnowledgePersistenceServiceTest {
         var doc = random(IngestDocument.class);
         var docsToPersist = random(Document.class);
         var project = random(ProjectInfo.class);
+        List<float[]> embeddings = List.<float[]>of(new float[] {0.1f, 0.2f});
         when(projectInfoSPI.getByCode(doc.projectCode()))
             .thenReturn(Optional.of(project));
-        when(documentChunkMapper.toDocuments(doc)).thenReturn(List.of(docsToPersist));
+        String contentHash = DocumentChunker.sha256Hex(doc.content());
+        when(ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(doc.projectCode(), contentHash))
+            .thenReturn(Optional.empty());
+        when(properties.embeddingModel()).thenReturn("test-model");
+        when(properties.ingest()).thenReturn(new Ingest(64, 8000, 65536));
+        when(documentChunkMapper.toDocuments(doc, contentHash)).thenReturn(List.of(docsToPersist));
+        when(embeddingCacheService.embed(List.of(docsToPersist))).thenReturn(embeddings);
 
         // WHEN
         int count = service.ingestDocument(doc);
 
         // THEN
         assertThat(count).isGreaterThanOrEqualTo(1);
-        verify(vectorStore).add(List.of(docsToPersist));
+        var locks = inOrder(chunkRepository);
+        locks.verify(chunkRepository).lockDocPath(doc.projectCode(), doc.docPath());
+        locks.verify(chunkRepository).lockContent(doc.projectCode(), contentHash);
+        verify(chunkRepository).saveAll(List.of(docsToPersist), embeddings);
+        ArgumentCaptor<IngestedDocument> ledger = ArgumentCaptor.forClass(IngestedDocument.class);
+        verify(ingestedDocumentRepository).save(ledger.capture());
+        assertThat(ledger.getValue().getProjectCode()).isEqualTo(doc.projectCode());
+        assertThat(ledger.getValue().getContentHash()).isEqualTo(contentHash);
+        assertThat(ledger.getValue().getChunkCount()).isEqualTo(1);
+        assertThat(ledger.getValue().getModel()).isEqualTo("test-model");
+        verify(knowledgeVersions).bump(doc.projectCode());
+    }
+
+    @Test
+    void should_returnExistingCount_when_contentAlreadyIngested() {
+        // GIVEN
+        var doc = random(IngestDocument.class);
+        String contentHash = DocumentChunker.sha256Hex(doc.content());
+        when(projectInfoSPI.getByCode(doc.projectCode()))
+            .thenReturn(Optional.of(random(ProjectInfo.class)));
+        when(ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(doc.projectCode(), contentHash))
+            .thenReturn(Optional.of(IngestedDocument.builder().chunkCount(7).build()));
+
+        // WHEN
+        int count = service.ingestDocument(doc);
+
+        // THEN
+        assertThat(count).isEqualTo(7);
+        verify(embeddingCacheService, never()).embed(any());
+        verify(transactionOperations, never()).execute(any());
+        verify(chunkRepository, never()).saveAll(any(), any());
+        verify(ingestedDocumentRepository, never()).save(any());
+        verify(knowledgeVersions, never()).bump(any());
+    }
+
+    @Test
+    void should_discardEmbeddings_when_contentIngestedWhileEmbedding() {
+        // GIVEN
+        var doc = random(IngestDocument.class);
+        var chunk = random(Document.class);
+        String contentHash = DocumentChunker.sha256Hex(doc.content());
+        when(projectInfoSPI.getByCode(doc.projectCode()))
+            .thenReturn(Optional.of(random(ProjectInfo.class)));
+        when(ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(doc.projectCode(), contentHash))
+            .thenReturn(Optional.empty())
+            .thenReturn(Optional.of(IngestedDocument.builder().chunkCount(1).build()));
+        when(properties.ingest()).thenReturn(new Ingest(64, 8000, 65536));
+        when(documentChunkMapper.toDocuments(doc, contentHash)).thenReturn(List.of(chunk));
+        when(embeddingCacheService.embed(List.of(chunk))).thenReturn(List.<float[]>of(new float[] {1f}));
+
+        // WHEN
+        int count = service.ingestDocument(doc);
+
+        // THEN
+        assertThat(count).isEqualTo(1);
+        var order = inOrder(embeddingCacheService, chunkRepository);
+        order.verify(embeddingCacheService).embed(List.of(chunk));
+        order.verify(chunkRepository).lockContent(doc.projectCode(), contentHash);
+        verify(chunkRepository, never()).saveAll(any(), any());
+        verify(ingestedDocumentRepository, never()).save(any());
+        verify(knowledgeVersions, never()).bump(any());
+    }
+
+    @Test
+    void should_embedInBatchesAndReportProgress_when_moreChunksThanBatchSize() {
+        // GIVEN
+        var doc = random(IngestDocument.class);
+        var first = new Document("first");
+        var second = new Document("second");
+        var third = new Document("third");
+        String contentHash = DocumentChunker.sha256Hex(doc.content());
+        when(projectInfoSPI.getByCode(doc.projectCode()))
+            .thenReturn(Optional.of(random(ProjectInfo.class)));
+        when(ingestedDocumentRepository.findFirstByProjectCodeAndContentHash(doc.projectCode(), contentHash))
+            .thenReturn(Optional.empty());
+        when(properties.ingest()).thenReturn(new Ingest(2, 8000, 65536));
+        when(documentChunkMapper.toDocuments(doc, contentHash)).thenReturn(List.of(first, second, third));
+        List<float[]> firstEmbeddings = List.of(new float[] {1f}, new float[] {2f});
+        List<float[]> secondEmbeddings = List.<float[]>of(new float[] {3f});
+        when(embeddingCacheService.embed(List.of(first, second))).thenReturn(firstEmbeddings);
+        when(embeddingCacheService.embed(List.of(third))).thenReturn(secondEmbeddings);
+        IngestProgressListener listener = mock(IngestProgressListener.class);
+
+        // WHEN
+        int count = service.ingestDocument(doc, listener);
+
+        // THEN
+        assertThat(count).isEqualTo(3);
+        var order = inOrder(embeddingCacheService, listener, transactionOperations, chunkRepository);
+        order.verify(embeddingCacheService).embed(List.of(first, second));
+        order.verify(listener).onProgress(2, 3);
+        order.verify(embeddingCacheService).embed(List.of(third));
+        order.verify(listener).onProgress(3, 3);
+        order.verify(transactionOperations).execute(any());
+        order.verify(chunkRepository).lockContent(doc.projectCode(), contentHash);
+        order.verify(chunkRepository).saveAll(List.of(first, second), firstEmbeddings);
+        order.verify(chunkRepository).saveAll(List.of(third), secondEmbeddings);
+    }
+
+    @Test
+    void should_embedOnlyChangedChunks_when_upsertingKnownDocPath() {
+        // GIVEN
+        var doc = new IngestDocument("proj", "new version", List.of(), "docs/guide.md", null, ChunkingMode.MARKDOWN);
+        String contentHash = DocumentChunker.sha256Hex(doc.content());
+        UUID keptId = UUID.randomUUID();
+        UUID removedId = UUID.randomUUID();
+        var unchanged = new Document("same", Map.of("chunkHash", "h-same"));
+        var added = new Document("added", Map.of("chunkHash", "h-added"));
+        List<float[]> embeddings = List.<float[]>of(new float[] {1f});
+        when(projectInfoSPI.getByCode("proj")).thenReturn(Optional.of(random(ProjectInfo.class)));
+        when(ingestedDocumentRepository.findAllByProjectCodeAndDocPath("proj", "docs/guide.md"))
+            .thenReturn(List.of(IngestedDocument.builder().contentHash("old").chunkCount(2).build()));
+        when(chunkRepository.findByDocPath("proj", "docs/guide.md"))
+            .thenReturn(List.of(new StoredChunk(removedId, "h-removed"), new StoredChunk(keptId, "h-same")));
+        when(documentChunkMapper.toDocuments(doc, contentHash)).thenReturn(List.of(added, unchanged));
+        when(properties.ingest()).thenReturn(new Ingest(64, 8000, 65536));
+        when(embeddingCacheService.embed(List.of(added))).thenReturn(embeddings);
+
+        // WHEN
+        UpsertResult result = service.upsertDocument(doc);
+
+        // THEN
+        assertThat(result).isEqualTo(new UpsertResult("proj", "docs/guide.md", 2, 1, 1, 1));
+        verify(chunkRepository).lockDocPath("proj", "docs/guide.md");
+        verify(chunkRepository).deleteAll(List.of(removedId));
+        verify(chunkRepository).updatePositions(List.of(keptId), List.of(1), 2, contentHash);
+        verify(chunkRepository).saveAll(List.of(added), embeddings);
+        ArgumentCaptor<IngestedDocument> ledger = ArgumentCaptor.forClass(IngestedDocument.class);
+        verify(ingestedDocumentRepository).save(ledger.capture());
+        assertThat(ledger.getValue().getDocPath()).isEqualTo("docs/guide.md");
+        assertThat(ledger.getValue().getChunkCount()).isEqualTo(2);
+    }
+
+    @Test
+    void should_recordLedgerRowForPath_when_upsertingContentKnownUnderOtherPath() {
+        // GIVEN
+        var doc = new IngestDocument("proj", "shared", List.of(), "docs/copy.md", null, ChunkingMode.MARKDOWN);
+        String contentHash = DocumentChunker.sha256Hex(doc.content());
+        var chunk = new Document("shared", Map.of("chunkHash", "h-shared"));
+        when(projectInfoSPI.getByCode("proj")).thenReturn(Optional.of(random(ProjectInfo.class)));
+        when(ingestedDocumentRepository.findAllByProjectCodeAndDocPath("proj", "docs/copy.md")).thenReturn(List.of());
+        when(chunkRepository.findByDocPath("proj", "docs/copy.md")).thenReturn(List.of());
+        when(documentChunkMapper.toDocuments(doc, contentHash)).thenReturn(List.of(chunk));
+        when(properties.ingest()).thenReturn(new Ingest(64, 8000, 65536));
+        when(embeddingCacheService.embed(List.of(chunk))).thenReturn(List.<float[]>of(new float[] {1f}));
+
+        // WHEN
+        service.upsertDocument(doc);
+
+        // THEN
+        ArgumentCaptor<IngestedDocument> ledger = ArgumentCaptor.forClass(IngestedDocument.class);
+        verify(ingestedDocumentRepository).save(ledger.capture());
+        assertThat(ledger.getValue().getDocPath()).isEqualTo("docs/copy.md");
+        assertThat(ledger.getValue().getContentHash()).isEqualTo(contentHash);
+        verify(ingestedDocumentRepository, never()).findFirstByProjectCodeAndContentHash(any(), any());
+    }
+
+    @Test
+    void should_skipChunking_when_upsertedContentUnchanged() {
+        // GIVEN
+        var doc = new IngestDocument("proj", "same version", List.of(), "docs/guide.md", null, ChunkingMode.MARKDOWN);
+        String contentHash = DocumentChunker.sha256Hex(doc.content());
+        when(projectInfoSPI.getByCode("proj")).thenReturn(Optional.of(random(ProjectInfo.class)));
+        when(ingestedDocumentRepository.findAllByProjectCodeAndDocPath("proj", "docs/guide.md"))
+            .thenReturn(List.of(IngestedDocument.builder().contentHash(contentHash).chunkCount(1).build()));
+        when(chunkRepository.findByDocPath("proj", "docs/guide.md"))
+            .thenReturn(List.of(new StoredChunk(UUID.randomUUID(), "h")));
+
+        // WHEN
+        UpsertResult result = service.upsertDocument(doc);
+
+        // THEN
+        assertThat(result).isEqualTo(new UpsertResult("proj", "docs/guide.md", 1, 0, 1, 0));
+        verify(documentChunkMapper, never()).toDocuments(any(), any());
+        verify(embeddingCacheService, never()).embed(any());
+        verify(chunkRepository, never()).lockDocPath(any(), any());
     }
 }
@@ -1,135 +1,370 @@
 package com.buildware.kbase.knowledge.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.Collections;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.EmbeddingType;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.ResultCache;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.Search;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.SemanticCache;
+import com.buildware.kbase.knowledge.domain.KnowledgeHit;
+import com.buildware.kbase.knowledge.domain.SearchOptions;
+import com.buildware.kbase.knowledge.repository.KnowledgeSearchRepository;
+import com.buildware.kbase.knowledge.repository.KnowledgeSearchRepository.SearchResult;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.ColumnType;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository.IndexKind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.instancio.junit.InstancioExtension;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
 
 @ExtendWith({MockitoExtension.class, InstancioExtension.class})
 class KnowledgeQueryServiceTest {
 
+    private static final float[] EMBEDDING = {0.1f, 0.2f};
+    private static final SearchResult EMPTY = new SearchResult(List.of(), IndexKind.FULL);
+
+    @Mock
+    private QueryEmbeddingService queryEmbeddingService;
+
+    @Mock
+    private KnowledgeSearchRepository searchRepository;
+
+    @Mock
+    private VectorStoreSchemaRepository schema;
+
     @Mock
-    private VectorStore vectorStore;
+    private KnowledgeVersions knowledgeVersions;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
-    @InjectMocks
     private KnowledgeQueryService service;
 
+    @BeforeEach
+    void setUp() {
+        service = service(0);
+        lenient().when(queryEmbeddingService.embed("hello")).thenReturn(EMBEDDING);
+    }
+
+    private KnowledgeQueryService service(double recallSampleRate) {
+        return service(recallSampleRate, false);
+    }
+
+    private KnowledgeQueryService service(double recallSampleRate, boolean semanticCache) {
+        var properties = new KnowledgeProperties("model", null, null, null, null, null, null,
+            new Search(100, 10, 1000, recallSampleRate, 40, 400, true, 20000), null,
+            new ResultCache(true, 100, Duration.ofMinutes(5)),
+            new SemanticCache(semanticCache, 0.95, 10, Duration.ofMinutes(5)), null);
+        return new KnowledgeQueryService(queryEmbeddingService, searchRepository, knowledgeVersions, schema, properties,
+            meterRegistry);
+    }
+
     @Nested
-    class FilterExpression {
+    class Filters {
 
         @Test
         void should_useProjectOnly_when_tagsNull() {
             // GIVEN
-            String project = "proj";
-            String query = "hello";
+            when(searchRepository.search("proj", List.of(), EMBEDDING, 5, 100, 40)).thenReturn(EMPTY);
+
+            // WHEN
+            service.query("proj", "hello", 5, null);
+
+            // THEN
+            verify(searchRepository).search("proj", List.of(), EMBEDDING, 5, 100, 40);
+        }
+
+        @Test
+        void should_dropBlankTags() {
+            // GIVEN
+            when(searchRepository.search("proj", List.of("core"), EMBEDDING, 5, 100, 40)).thenReturn(EMPTY);
 
             // WHEN
-            service.query(project, query, 5, null);
+            service.query("proj", "hello", 5, List.of("", "core", "  "));
 
             // THEN
-            SearchRequest captured = captureSearchRequest();
-            String filter = extractFilterExpression(captured);
-            assertThat(filter).contains("projectCode");
-            assertThat(filter).contains("proj");
+            verify(searchRepository).search("proj", List.of("core"), EMBEDDING, 5, 100, 40);
         }
 
         @Test
-        void should_useProjectOnly_when_tagsEmptyOrBlank() {
+        void should_capTopK() {
             // GIVEN
-            String project = "proj";
-            String query = "hello";
+            when(searchRepository.search(eq("proj"), anyList(), any(float[].class), anyInt(), anyInt(), anyInt()))
+                .thenReturn(EMPTY);
 
             // WHEN
-            service.query(project, query, 5, Collections.emptyList());
-            service.query(project, query, 5, List.of("", "  "));
+            service.query("proj", "hello", 500, null);
+            service.query("proj", "hello", 0, null);
 
             // THEN
-            ArgumentCaptor<SearchRequest> captor = ArgumentCaptor.forClass(SearchRequest.class);
-            verify(vectorStore, org.mockito.Mockito.times(2)).similaritySearch(captor.capture());
-            List<SearchRequest> calls = captor.getAllValues();
-            for (SearchRequest req : calls) {
-                String filter = extractFilterExpression(req);
-                assertThat(filter).contains("projectCode");
-                assertThat(filter).contains(project);
-            }
+            verify(searchRepository).search("proj", List.of(), EMBEDDING, 50, 500, 40);
+            verify(searchRepository).search("proj", List.of(), EMBEDDING, 5, 100, 40);
         }
+    }
+
+    @Nested
+    class Oversampling {
 
         @Test
-        void should_appendIN_when_tagsProvided() {
+        void should_takeRequestedCandidatesPerHit() {
             // GIVEN
-            String project = "proj";
-            String query = "hello";
-            List<String> tags = List.of("core", "api");
+            when(searchRepository.search("proj", List.of(), EMBEDDING, 20, 800, 40)).thenReturn(EMPTY);
 
             // WHEN
-            service.query(project, query, 5, tags);
+            service.query("proj", "hello", 20, null, new SearchOptions(40, null));
 
             // THEN
-            SearchRequest captured = captureSearchRequest();
-            String filter = extractFilterExpression(captured);
-            assertThat(filter).contains("projectCode");
-            assertThat(filter).contains(project);
-            assertThat(filter).contains("tags");
-            assertThat(filter).contains("core", "api");
+            verify(searchRepository).search("proj", List.of(), EMBEDDING, 20, 800, 40);
         }
 
         @Test
-        void should_escapeQuotes_in_projectAndTags() {
+        void should_capCandidates() {
             // GIVEN
-            String project = "pro'j"; // contains quote
-            String query = "hello";
-            List<String> tags = List.of("a'b", "c");
+            when(searchRepository.search("proj", List.of(), EMBEDDING, 50, 1000, 40)).thenReturn(EMPTY);
 
             // WHEN
-            service.query(project, query, 5, tags);
+            service.query("proj", "hello", 50, null, new SearchOptions(100, null));
 
             // THEN
-            SearchRequest captured = captureSearchRequest();
-            String filter = extractFilterExpression(captured);
-            assertThat(filter)
-                .contains(
-                    "left=Expression[type=EQ, left=Key[key=projectCode]",
-                    "right=Value[value=pro''j]",
-                    "right=Expression[type=IN, left=Key[key=tags], right=Value[value=[a''b, c]]"
-                );
+            verify(searchRepository).search("proj", List.of(), EMBEDDING, 50, 1000, 40);
         }
     }
 
-    private SearchRequest captureSearchRequest() {
-        ArgumentCaptor<SearchRequest> captor = ArgumentCaptor.forClass(SearchRequest.class);
-        verify(vectorStore).similaritySearch(captor.capture());
-        return captor.getValue();
+    @Nested
+    class EfSearch {
+
+        @Test
+        void should_useRequestedEfSearch() {
+            // GIVEN
+            when(searchRepository.search("proj", List.of(), EMBEDDING, 5, 100, 200)).thenReturn(EMPTY);
+
+            // WHEN
+            service.query("proj", "hello", 5, null, new SearchOptions(null, 200));
+
+            // THEN
+            verify(searchRepository).search("proj", List.of(), EMBEDDING, 5, 100, 200);
+        }
+
+        @Test
+        void should_capEfSearch() {
+            // GIVEN
+            when(searchRepository.search("proj", List.of(), EMBEDDING, 5, 100, 400)).thenReturn(EMPTY);
+
+            // WHEN
+            service.query("proj", "hello", 5, null, new SearchOptions(null, 5000));
+
+            // THEN
+            verify(searchRepository).search("proj", List.of(), EMBEDDING, 5, 100, 400);
+        }
+    }
+
+    @Nested
+    class Results {
+
+        @Test
+        void should_serveCachedHits_when_equalRequestRepeated() {
+            // GIVEN
+            KnowledgeHit hit = new KnowledgeHit("close", 0.8, "a.md", "A", 0);
+            when(searchRepository.search("proj", List.of("b", "a"), EMBEDDING, 5, 100, 40))
+                .thenReturn(new SearchResult(List.of(hit), IndexKind.FULL));
+
+            // WHEN
+            List<KnowledgeHit> first = service.query("proj", "hello", 5, List.of("b", "a"));
+            List<KnowledgeHit> second = service.query("proj", " HELLO ", 5, List.of("a", "b"));
+
+            // THEN
+            assertThat(second).isEqualTo(first).containsExactly(hit);
+            verify(queryEmbeddingService).embed("hello");
+            verify(searchRepository).search("proj", List.of("b", "a"), EMBEDDING, 5, 100, 40);
+            assertThat(meterRegistry.get("cache.gets").tag("cache", KnowledgeQueryService.RESULT_CACHE_NAME)
+                .tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        }
+
+        @Test
+        void should_searchAgain_when_projectVersionChanged() {
+            // GIVEN
+            when(searchRepository.search("proj", List.of(), EMBEDDING, 5, 100, 40)).thenReturn(EMPTY);
+            when(knowledgeVersions.current("proj")).thenReturn(0L, 1L);
+            service.query("proj", "hello", 5, null);
+
+            // WHEN
+            service.query("proj", "hello", 5, null);
+
+            // THEN
+            verify(searchRepository, times(2)).search("proj", List.of(), EMBEDDING, 5, 100, 40);
+        }
+
+        @Test
+        void should_shareSearch_when_equalRequestInFlight() throws Exception {
+            // GIVEN
+            KnowledgeHit hit = new KnowledgeHit("close", 0.8, "a.md", "A", 0);
+            CountDownLatch release = new CountDownLatch(1);
+            when(searchRepository.search("proj", List.of(), EMBEDDING, 5, 100, 40)).thenAnswer(inv -> {
+                release.await();
+                return new SearchResult(List.of(hit), IndexKind.FULL);
+            });
+            var coalesced = meterRegistry.counter("kbase.search.coalesced");
+
+            // WHEN
+            CompletableFuture<List<KnowledgeHit>> first =
+                CompletableFuture.supplyAsync(() -> service.query("proj", "hello", 5, null));
+            await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                verify(searchRepository).search("proj", List.of(), EMBEDDING, 5, 100, 40));
+            CompletableFuture<List<KnowledgeHit>> second =
+                CompletableFuture.supplyAsync(() -> service.query("proj", "Hello", 5, null));
+            await().atMost(Duration.ofSeconds(5)).until(() -> coalesced.count() == 1);
+            release.countDown();
+
+            // THEN
+            assertThat(first.get(5, TimeUnit.SECONDS)).containsExactly(hit);
+            assertThat(second.get(5, TimeUnit.SECONDS)).containsExactly(hit);
+            verify(searchRepository).search(eq("proj"), anyList(), any(float[].class), anyInt(), anyInt(), anyInt());
+        }
+
+        @Test
+        void should_reuseHits_when_queryEmbeddingSimilar() {
+            // GIVEN
+            KnowledgeQueryService semantic = service(0, true);
+            KnowledgeHit hit = new KnowledgeHit("close", 0.8, "a.md", "A", 0);
+            when(searchRepository.search("proj", List.of(), EMBEDDING, 5, 100, 40))
+                .thenReturn(new SearchResult(List.of(hit), IndexKind.FULL));
+            when(queryEmbeddingService.embed("hi there")).thenReturn(new float[] {0.11f, 0.2f});
+
+            // WHEN
+            semantic.query("proj", "hello", 5, null);
+            List<KnowledgeHit> paraphrased = semantic.query("proj", "hi there", 5, null);
+
+            // THEN
+            assertThat(paraphrased).containsExactly(hit);
+            verify(searchRepository).search(eq("proj"), anyList(), any(float[].class), anyInt(), anyInt(), anyInt());
+            assertThat(meterRegistry.counter("kbase.search.semantic.hits").count()).isEqualTo(1);
+        }
+
+        @Test
+        void should_search_when_queryEmbeddingDissimilar() {
+            // GIVEN
+            KnowledgeQueryService semantic = service(0, true);
+            float[] other = {0.2f, -0.1f};
+            when(searchRepository.search(eq("proj"), anyList(), any(float[].class), anyInt(), anyInt(), anyInt()))
+                .thenReturn(EMPTY);
+            when(queryEmbeddingService.embed("unrelated")).thenReturn(other);
+
+            // WHEN
+            semantic.query("proj", "hello", 5, null);
+            semantic.query("proj", "unrelated", 5, null);
+
+            // THEN
+            verify(searchRepository).search("proj", List.of(), other, 5, 100, 40);
+        }
     }
 
-    private String extractFilterExpression(SearchRequest req) {
-        try {
-            Method m = req.getClass().getMethod("getFilterExpression");
-            Object val = m.invoke(req);
-            return val != null ? String.valueOf(val) : null;
-        } catch (Exception ignore) {
-            // fall back to field access
-            try {
-                Field f = req.getClass().getDeclaredField("filterExpression");
-                f.setAccessible(true);
-                Object val = f.get(req);
-                return val != null ? String.valueOf(val) : null;
-            } catch (Exception e) {
-                throw new AssertionError("Unable to read filterExpression from SearchRequest", e);
-            }
+    @Nested
+    class Vector {
+
+        @Test
+        void should_searchVector_when_modelAndDimensionsMatch() {
+            // GIVEN
+            float[] vector = {0.3f, 0.4f};
+            when(schema.embeddingColumn()).thenReturn(new ColumnType(EmbeddingType.VECTOR, 2));
+            when(searchRepository.search("proj", List.of(), vector, 5, 100, 40)).thenReturn(EMPTY);
+
+            // WHEN
+            service.queryByVector("proj", vector, "model", 5, null, SearchOptions.DEFAULTS);
+
+            // THEN
+            verify(searchRepository).search("proj", List.of(), vector, 5, 100, 40);
+            verify(queryEmbeddingService, never()).embed(any());
+        }
+
+        @Test
+        void should_searchIndexEveryTime_when_semanticCacheEnabled() {
+            // GIVEN
+            KnowledgeQueryService semantic = service(0, true);
+            float[] vector = {0.3f, 0.4f};
+            when(schema.embeddingColumn()).thenReturn(new ColumnType(EmbeddingType.VECTOR, 2));
+            when(searchRepository.search("proj", List.of(), vector, 5, 100, 40)).thenReturn(EMPTY);
+
+            // WHEN
+            semantic.queryByVector("proj", vector, "model", 5, null, SearchOptions.DEFAULTS);
+            semantic.queryByVector("proj", vector, "model", 5, null, SearchOptions.DEFAULTS);
+
+            // THEN
+            verify(searchRepository, times(2)).search("proj", List.of(), vector, 5, 100, 40);
+        }
+
+        @Test
+        void should_reject_when_dimensionsDiffer() {
+            // GIVEN
+            when(schema.embeddingColumn()).thenReturn(new ColumnType(EmbeddingType.VECTOR, 1536));
+
+            // WHEN / THEN
+            assertThatThrownBy(() -> service.queryByVector("proj", EMBEDDING, "model", 5, null, SearchOptions.DEFAULTS))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("1536");
+        }
+
+        @Test
+        void should_reject_when_modelDiffers() {
+            // WHEN / THEN
+            assertThatThrownBy(() -> service.queryByVector("proj", EMBEDDING, "other", 5, null, SearchOptions.DEFAULTS))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("other");
         }
     }
-}
 
+    @Test
+    void should_dropHits_when_scoreNotAboveThreshold() {
+        // GIVEN
+        KnowledgeHit close = new KnowledgeHit("close", 0.8, "a.md", "A", 0);
+        KnowledgeHit far = new KnowledgeHit("far", 0.3, "b.md", "B", 1);
+        when(searchRepository.search(eq("proj"), anyList(), any(float[].class), anyInt(), anyInt(), anyInt()))
+            .thenReturn(new SearchResult(List.of(close, far), IndexKind.FULL));
+
+        // WHEN
+        List<KnowledgeHit> hits = service.query("proj", "hello", 5, null);
+
+        // THEN
+        assertThat(hits).containsExactly(close);
+        assertThat(meterRegistry.timer("kbase.search.duration", "index", "full").count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_recordRecall_when_searchSampled() {
+        // GIVEN
+        KnowledgeHit first = new KnowledgeHit("first", 0.9, "a.md", "A", 0);
+        KnowledgeHit second = new KnowledgeHit("second", 0.8, "a.md", "A", 1);
+        KnowledgeHit missed = new KnowledgeHit("missed", 0.85, "b.md", "B", 0);
+        when(searchRepository.search(eq("proj"), anyList(), any(float[].class), anyInt(), anyInt(), anyInt()))
+            .thenReturn(new SearchResult(List.of(first, second), IndexKind.BINARY));
+        when(searchRepository.exactSearch("proj", List.of(), EMBEDDING, 2)).thenReturn(List.of(first, missed));
+
+        // WHEN
+        service(1).query("proj", "hello", 2, null);
+
+        // THEN
+        var recall = meterRegistry.summary("kbase.search.recall", "index", "binary");
+        await().atMost(Duration.ofSeconds(5)).until(() -> recall.count() == 1);
+        assertThat(recall.totalAmount()).isEqualTo(0.5);
+    }
+}
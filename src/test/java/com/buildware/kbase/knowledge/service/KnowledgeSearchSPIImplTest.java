@@ -2,9 +2,14 @@ package com.buildware.kbase.knowledge.service;
 
 import static com.buildware.kbase.toolkit.instancio.InstancioUtils.random;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.buildware.kbase.knowledge.domain.KnowledgeHit;
+import com.buildware.kbase.knowledge.domain.SearchOptions;
 import com.buildware.kbase.knowledge.mapper.KnowledgeHitMapper;
 import com.buildware.kbase.spi.KnowledgeSearchSPI.KnowledgeHitView;
 import com.buildware.kbase.spi.KnowledgeSearchSPI.KnowledgeQuery;
@@ -31,12 +36,13 @@ class KnowledgeSearchSPIImplTest {
     @Test
     void should_mapHitsToViews_when_semanticSearchInvoked() {
         // GIVEN
-        KnowledgeQuery input = random(KnowledgeQuery.class);
+        KnowledgeQuery input = new KnowledgeQuery("proj", "how to deploy", 3, List.of("ops"), 20, 100, null, null);
         KnowledgeHit hit = random(KnowledgeHit.class);
         List<KnowledgeHit> hits = List.of(hit);
         KnowledgeHitView view = random(KnowledgeHitView.class);
 
-        when(service.query(input.projectCode(), input.text(), input.topK(), input.tags())).thenReturn(hits);
+        SearchOptions options = new SearchOptions(input.oversampling(), input.efSearch());
+        when(service.query(input.projectCode(), input.text(), input.topK(), input.tags(), options)).thenReturn(hits);
         when(mapper.toViews(hits)).thenReturn(List.of(view));
 
         // WHEN
@@ -46,4 +52,21 @@ class KnowledgeSearchSPIImplTest {
         assertThat(out).hasSize(1);
         assertThat(out.getFirst().text()).isEqualTo(view.text());
     }
+
+    @Test
+    void should_searchByVector_when_vectorGiven() {
+        // GIVEN
+        float[] vector = {0.1f, 0.2f};
+        KnowledgeQuery input = new KnowledgeQuery("proj", null, null, null, null, null, vector, "model");
+        List<KnowledgeHit> hits = List.of(random(KnowledgeHit.class));
+        when(service.queryByVector("proj", vector, "model", 0, null, SearchOptions.DEFAULTS)).thenReturn(hits);
+        when(mapper.toViews(hits)).thenReturn(List.of(random(KnowledgeHitView.class)));
+
+        // WHEN
+        List<KnowledgeHitView> out = adapter.semanticSearch(input);
+
+        // THEN
+        assertThat(out).hasSize(1);
+        verify(service, never()).query(any(), any(), anyInt(), any(), any());
+    }
 }
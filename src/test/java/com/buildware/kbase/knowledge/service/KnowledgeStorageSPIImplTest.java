@@ -0,0 +1,44 @@
+package com.buildware.kbase.knowledge.service;
+
+import static org.mockito.Mockito.inOrder;
+
+import com.buildware.kbase.knowledge.repository.IngestedDocumentRepository;
+import com.buildware.kbase.knowledge.repository.SyncedFileRepository;
+import com.buildware.kbase.knowledge.repository.VectorStoreSchemaRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class KnowledgeStorageSPIImplTest {
+
+    @Mock
+    private VectorStoreSchemaRepository schemaRepository;
+
+    @Mock
+    private IngestedDocumentRepository ingestedDocumentRepository;
+
+    @Mock
+    private SyncedFileRepository syncedFileRepository;
+
+    @Mock
+    private KnowledgeVersions knowledgeVersions;
+
+    @InjectMocks
+    private KnowledgeStorageSPIImpl adapter;
+
+    @Test
+    void should_forgetIngestedAndSyncedDocuments_when_projectStorageDropped() {
+        // WHEN
+        adapter.dropProjectStorage("proj");
+
+        // THEN
+        var order = inOrder(schemaRepository, ingestedDocumentRepository, syncedFileRepository, knowledgeVersions);
+        order.verify(schemaRepository).dropPartition("proj");
+        order.verify(ingestedDocumentRepository).deleteAllByProjectCode("proj");
+        order.verify(syncedFileRepository).deleteAllByProjectCode("proj");
+        order.verify(knowledgeVersions).bump("proj");
+    }
+}
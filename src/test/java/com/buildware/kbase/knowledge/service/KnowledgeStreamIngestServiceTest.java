@@ -0,0 +1,194 @@
+package com.buildware.kbase.knowledge.service;
+
+import static com.buildware.kbase.toolkit.instancio.InstancioUtils.random;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.Ingest;
+import com.buildware.kbase.knowledge.domain.IngestedDocument;
+import com.buildware.kbase.knowledge.mapper.DocumentChunkMapper.DocumentChunker;
+import com.buildware.kbase.knowledge.repository.IngestedDocumentRepository;
+import com.buildware.kbase.knowledge.repository.KnowledgeChunkRepository;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.instancio.junit.InstancioExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+
+@ExtendWith({MockitoExtension.class, InstancioExtension.class})
+class KnowledgeStreamIngestServiceTest {
+
+    private static final String CONTENT =
+        String.join(" ", IntStream.range(0, 800).mapToObj(i -> "Sentence number " + i + ".").toList());
+
+    @Mock
+    private ProjectInfoSPI projectInfoSPI;
+
+    @Mock
+    private EmbeddingCacheService embeddingCacheService;
+
+    @Mock
+    private KnowledgeChunkRepository chunkRepository;
+
+    @Mock
+    private IngestedDocumentRepository ingestedDocumentRepository;
+
+    @Mock
+    private KnowledgeProperties properties;
+
+    @Mock
+    private KnowledgeVersions knowledgeVersions;
+
+    @Spy
+    private TransactionOperations transactionOperations = TransactionOperations.withoutTransaction();
+
+    @InjectMocks
+    private KnowledgeStreamIngestService service;
+
+    @BeforeEach
+    void setUp() {
+        when(projectInfoSPI.getByCode("proj")).thenReturn(Optional.of(random(ProjectInfo.class)));
+    }
+
+    private void embedEveryChunk() {
+        when(properties.ingest()).thenReturn(new Ingest(1, 8000, 2048));
+        when(embeddingCacheService.embed(anyList())).thenAnswer(inv -> inv.<List<Document>>getArgument(0).stream()
+            .map(d -> new float[] {1f})
+            .toList());
+    }
+
+    private void completeEveryChunk(String contentHash) {
+        when(chunkRepository.finalizeChunks(anyList(), eq(contentHash), anyInt()))
+            .thenAnswer(inv -> inv.<List<UUID>>getArgument(0).size());
+    }
+
+    @Test
+    void should_storeChunksInWindowsAndFinalize_when_contentNew() {
+        // GIVEN
+        String contentHash = DocumentChunker.sha256Hex(CONTENT);
+        when(ingestedDocumentRepository.findFirstByProjectCodeAndContentHash("proj", contentHash))
+            .thenReturn(Optional.empty());
+        embedEveryChunk();
+        completeEveryChunk(contentHash);
+
+        // WHEN
+        int count = service.ingest("proj", List.of(), "docs/big.md", stream(CONTENT));
+
+        // THEN
+        assertThat(count).isGreaterThan(1);
+        verify(chunkRepository).deletePending("proj", contentHash);
+        verify(chunkRepository, atLeast(2)).savePending(anyList(), anyList());
+        verify(chunkRepository).lockContent("proj", contentHash);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UUID>> ids = ArgumentCaptor.forClass(List.class);
+        verify(chunkRepository).finalizeChunks(ids.capture(), eq(contentHash), eq(count));
+        assertThat(ids.getValue()).hasSize(count);
+        ArgumentCaptor<IngestedDocument> ledger = ArgumentCaptor.forClass(IngestedDocument.class);
+        verify(ingestedDocumentRepository).save(ledger.capture());
+        assertThat(ledger.getValue().getContentHash()).isEqualTo(contentHash);
+        assertThat(ledger.getValue().getChunkCount()).isEqualTo(count);
+    }
+
+    @Test
+    void should_storeNothing_when_contentAlreadyIngested() {
+        // GIVEN
+        String contentHash = DocumentChunker.sha256Hex(CONTENT);
+        when(ingestedDocumentRepository.findFirstByProjectCodeAndContentHash("proj", contentHash))
+            .thenReturn(Optional.of(IngestedDocument.builder().chunkCount(9).build()));
+
+        // WHEN
+        int count = service.ingest("proj", List.of(), "docs/big.md", stream(CONTENT));
+
+        // THEN
+        assertThat(count).isEqualTo(9);
+        verify(embeddingCacheService, never()).embed(anyList());
+        verify(chunkRepository, never()).savePending(anyList(), anyList());
+        verify(chunkRepository, never()).deleteAll(anyList());
+        verify(ingestedDocumentRepository, never()).save(any());
+    }
+
+    @Test
+    void should_deleteStoredChunks_when_contentIngestedConcurrently() {
+        // GIVEN
+        String contentHash = DocumentChunker.sha256Hex(CONTENT);
+        when(ingestedDocumentRepository.findFirstByProjectCodeAndContentHash("proj", contentHash))
+            .thenReturn(Optional.empty())
+            .thenReturn(Optional.of(IngestedDocument.builder().chunkCount(9).build()));
+        embedEveryChunk();
+
+        // WHEN
+        int count = service.ingest("proj", List.of(), "docs/big.md", stream(CONTENT));
+
+        // THEN
+        assertThat(count).isEqualTo(9);
+        verify(chunkRepository).lockContent("proj", contentHash);
+        verify(chunkRepository).deleteAll(anyList());
+        verify(chunkRepository, never()).finalizeChunks(anyList(), any(), anyInt());
+        verify(ingestedDocumentRepository, never()).save(any());
+    }
+
+    @Test
+    void should_deleteStoredWindows_when_laterWindowFails() {
+        // GIVEN
+        String contentHash = DocumentChunker.sha256Hex(CONTENT);
+        when(ingestedDocumentRepository.findFirstByProjectCodeAndContentHash("proj", contentHash))
+            .thenReturn(Optional.empty());
+        embedEveryChunk();
+        var failure = new DataAccessResourceFailureException("connection lost");
+        doNothing().doThrow(failure).when(chunkRepository).savePending(anyList(), anyList());
+
+        // WHEN / THEN
+        assertThatThrownBy(() -> service.ingest("proj", List.of(), "docs/big.md", stream(CONTENT))).isSameAs(failure);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UUID>> ids = ArgumentCaptor.forClass(List.class);
+        verify(chunkRepository).deleteAll(ids.capture());
+        assertThat(ids.getValue()).hasSize(1);
+        verify(ingestedDocumentRepository, never()).save(any());
+    }
+
+    @Test
+    void should_failAndDeleteStoredChunks_when_chunksRemovedBeforeCompletion() {
+        // GIVEN
+        String contentHash = DocumentChunker.sha256Hex(CONTENT);
+        when(ingestedDocumentRepository.findFirstByProjectCodeAndContentHash("proj", contentHash))
+            .thenReturn(Optional.empty());
+        embedEveryChunk();
+        when(chunkRepository.finalizeChunks(anyList(), eq(contentHash), anyInt())).thenReturn(0);
+
+        // WHEN / THEN
+        assertThatThrownBy(() -> service.ingest("proj", List.of(), "docs/big.md", stream(CONTENT)))
+            .isInstanceOf(IllegalStateException.class);
+        verify(chunkRepository).deleteAll(anyList());
+        verify(knowledgeVersions, never()).bump(any());
+        verify(ingestedDocumentRepository, never()).save(any());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,108 @@
+package com.buildware.kbase.knowledge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.QueryEmbeddingBatch;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.QueryEmbeddingCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+@ExtendWith(MockitoExtension.class)
+class QueryEmbeddingServiceTest {
+
+    private static final float[] EMBEDDING = {0.1f, 0.2f};
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private QueryEmbeddingService service(String model, boolean enabled) {
+        return service(model, enabled, new QueryEmbeddingBatch(Duration.ZERO, 1));
+    }
+
+    private QueryEmbeddingService service(String model, boolean enabled, QueryEmbeddingBatch batch) {
+        var properties = new KnowledgeProperties(model, null, null, null, null, null, null, null,
+            new QueryEmbeddingCache(enabled, 100, Duration.ofHours(1)), null, null, batch);
+        return new QueryEmbeddingService(embeddingModel, properties, meterRegistry);
+    }
+
+    @Test
+    void should_embedOnce_when_queriesDifferInWhitespaceAndCase() {
+        // GIVEN
+        QueryEmbeddingService service = service("model", true);
+        when(embeddingModel.embed("How to deploy")).thenReturn(EMBEDDING);
+
+        // WHEN
+        float[] first = service.embed("  How to   deploy ");
+        float[] second = service.embed("how to\tdeploy");
+
+        // THEN
+        assertThat(first).isSameAs(EMBEDDING);
+        assertThat(second).isSameAs(EMBEDDING);
+        verify(embeddingModel).embed("How to deploy");
+        assertThat(meterRegistry.get("cache.gets").tag("cache", QueryEmbeddingService.CACHE_NAME)
+            .tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_embedEveryQuery_when_cacheDisabled() {
+        // GIVEN
+        QueryEmbeddingService service = service("model", false);
+        when(embeddingModel.embed("deploy")).thenReturn(EMBEDDING);
+
+        // WHEN
+        service.embed("deploy");
+        service.embed("deploy");
+
+        // THEN
+        verify(embeddingModel, times(2)).embed("deploy");
+        assertThat(meterRegistry.find("cache.gets").meters()).isEmpty();
+    }
+
+    @Test
+    void should_embedDistinctQueriesInOneRequest_when_batchFills() throws Exception {
+        // GIVEN
+        QueryEmbeddingService service = service("model", true, new QueryEmbeddingBatch(Duration.ofMinutes(1), 2));
+        when(embeddingModel.embed(anyList())).thenAnswer(inv -> inv.<List<String>>getArgument(0).stream()
+            .map(text -> new float[] {text.length()})
+            .toList());
+
+        // WHEN
+        CompletableFuture<float[]> first = CompletableFuture.supplyAsync(() -> service.embed("deploy"));
+        CompletableFuture<float[]> second = CompletableFuture.supplyAsync(() -> service.embed("rollback"));
+
+        // THEN
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsExactly(6f);
+        assertThat(second.get(5, TimeUnit.SECONDS)).containsExactly(8f);
+        verify(embeddingModel).embed(anyList());
+        assertThat(meterRegistry.summary("kbase.query.embedding.batch.size").totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    void should_sendPartialBatch_when_windowEnds() {
+        // GIVEN
+        QueryEmbeddingService service = service("model", false, new QueryEmbeddingBatch(Duration.ofMillis(10), 64));
+        when(embeddingModel.embed(List.of("deploy"))).thenReturn(List.<float[]>of(EMBEDDING));
+
+        // WHEN
+        float[] embedding = service.embed("deploy");
+
+        // THEN
+        assertThat(embedding).isSameAs(EMBEDDING);
+        assertThat(meterRegistry.summary("kbase.query.embedding.batch.size").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,74 @@
+package com.buildware.kbase.knowledge.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.buildware.kbase.knowledge.sync.PendingChanges.Batch;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class PendingChangesTest {
+
+    private static final Path ROOT = Path.of("/kb/proj");
+    private static final ProjectInfo PROJECT = new ProjectInfo(UUID.randomUUID(), "proj", ROOT.toString(), null, null);
+    private static final Instant T0 = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Test
+    void should_coalesceRepeatedSaves_when_fileTouchedWithinDebounce() {
+        // GIVEN
+        PendingChanges pending = new PendingChanges(Duration.ofSeconds(2), 100);
+        Path file = ROOT.resolve("readme.md");
+        pending.fileTouched(PROJECT, file, T0);
+        pending.fileTouched(PROJECT, file, T0.plusSeconds(1));
+
+        // WHEN
+        List<Batch> early = pending.drainDue(T0.plusSeconds(2));
+        List<Batch> due = pending.drainDue(T0.plusSeconds(3));
+
+        // THEN
+        assertThat(early).isEmpty();
+        assertThat(due).singleElement().satisfies(b -> assertThat(b.files()).containsExactly(file));
+        assertThat(pending.size()).isZero();
+    }
+
+    @Test
+    void should_absorbFiles_when_subtreeTouched() {
+        // GIVEN
+        PendingChanges pending = new PendingChanges(Duration.ZERO, 100);
+        Path dir = ROOT.resolve("guides");
+        pending.fileTouched(PROJECT, dir.resolve("a.md"), T0);
+        pending.fileTouched(PROJECT, ROOT.resolve("b.md"), T0);
+
+        // WHEN
+        pending.subtreeTouched(PROJECT, dir, T0);
+        pending.fileTouched(PROJECT, dir.resolve("c.md"), T0);
+
+        // THEN
+        assertThat(pending.drainDue(T0)).singleElement().satisfies(b -> {
+            assertThat(b.subtrees()).containsExactly(dir);
+            assertThat(b.files()).containsExactly(ROOT.resolve("b.md"));
+        });
+    }
+
+    @Test
+    void should_collapseToBasePath_when_queueFull() {
+        // GIVEN
+        PendingChanges pending = new PendingChanges(Duration.ZERO, 2);
+        pending.fileTouched(PROJECT, ROOT.resolve("a.md"), T0);
+        pending.fileTouched(PROJECT, ROOT.resolve("b.md"), T0);
+
+        // WHEN
+        pending.fileTouched(PROJECT, ROOT.resolve("c.md"), T0);
+
+        // THEN
+        assertThat(pending.size()).isEqualTo(1);
+        assertThat(pending.drainDue(T0)).singleElement().satisfies(b -> {
+            assertThat(b.subtrees()).containsExactly(ROOT);
+            assertThat(b.files()).isEmpty();
+        });
+    }
+}
@@ -0,0 +1,177 @@
+package com.buildware.kbase.knowledge.sync;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.buildware.kbase.knowledge.config.KnowledgeProperties;
+import com.buildware.kbase.knowledge.config.KnowledgeProperties.Sync;
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.SyncedFile;
+import com.buildware.kbase.knowledge.domain.UpsertResult;
+import com.buildware.kbase.knowledge.repository.SyncedFileRepository;
+import com.buildware.kbase.knowledge.service.KnowledgePersistenceService;
+import com.buildware.kbase.spi.ProjectInfoSPI;
+import com.buildware.kbase.spi.ProjectInfoSPI.ProjectInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+class ProjectSyncServiceTest {
+
+    @Mock
+    private ProjectInfoSPI projectInfoSPI;
+
+    @Mock
+    private KnowledgePersistenceService persistenceService;
+
+    @Mock
+    private SyncedFileRepository syncedFileRepository;
+
+    @Mock
+    private KnowledgeProperties properties;
+
+    @TempDir
+    private Path root;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProjectSyncService service;
+    private ProjectInfo project;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new ProjectSyncService(projectInfoSPI, persistenceService, syncedFileRepository, properties,
+            meterRegistry);
+        project = new ProjectInfo(UUID.randomUUID(), "proj", root.toString(), null, null);
+        lenient().when(properties.sync()).thenReturn(
+            new Sync(true, Duration.ofMinutes(5), Duration.ZERO, 2, List.of("md"), DataSize.ofMegabytes(1), null));
+    }
+
+    @Test
+    void should_upsertNewFilesWithTitle_when_notSyncedBefore() throws IOException {
+        // GIVEN
+        Files.createDirectories(root.resolve("guides"));
+        Files.writeString(root.resolve("guides/setup.md"), "# Setup Guide\n\nInstall the thing.");
+        Files.writeString(root.resolve("ignored.bin"), "binary");
+        when(syncedFileRepository.findAllByProjectCode("proj")).thenReturn(List.of());
+        when(persistenceService.upsertDocument(any()))
+            .thenReturn(new UpsertResult("proj", "guides/setup.md", 1, 1, 0, 0));
+
+        // WHEN
+        SyncReport report = service.sync(project);
+
+        // THEN
+        ArgumentCaptor<IngestDocument> doc = ArgumentCaptor.forClass(IngestDocument.class);
+        verify(persistenceService).upsertDocument(doc.capture());
+        assertThat(doc.getValue().docPath()).isEqualTo("guides/setup.md");
+        assertThat(doc.getValue().title()).isEqualTo("Setup Guide");
+        assertThat(report.filesScanned()).isEqualTo(1);
+        assertThat(report.filesChanged()).isEqualTo(1);
+        assertThat(report.chunksEmbedded()).isEqualTo(1);
+        verify(syncedFileRepository).save(any(SyncedFile.class));
+        verify(projectInfoSPI).markSynced(eq("proj"), any(Instant.class));
+        assertThat(meterRegistry.counter("kbase.sync.files.changed", "project", "proj").count()).isEqualTo(1);
+    }
+
+    @Test
+    void should_skipUnchangedAndDeleteMissing_when_syncedBefore() throws IOException {
+        // GIVEN
+        Path file = Files.writeString(root.resolve("readme.md"), "unchanged");
+        SyncedFile unchanged = SyncedFile.builder()
+            .projectCode("proj")
+            .docPath("readme.md")
+            .sizeBytes(Files.size(file))
+            .modifiedAt(Files.getLastModifiedTime(file).toInstant())
+            .contentHash("h")
+            .build();
+        SyncedFile removed = SyncedFile.builder().projectCode("proj").docPath("old.md").contentHash("h2").build();
+        when(syncedFileRepository.findAllByProjectCode("proj")).thenReturn(List.of(unchanged, removed));
+
+        // WHEN
+        SyncReport report = service.sync(project);
+
+        // THEN
+        assertThat(report.filesChanged()).isZero();
+        assertThat(report.filesDeleted()).isEqualTo(1);
+        verify(persistenceService, never()).upsertDocument(any());
+        verify(persistenceService).deleteDocument("proj", "old.md");
+        verify(persistenceService, never()).deleteDocument("proj", "readme.md");
+        verify(syncedFileRepository).delete(removed);
+    }
+
+    @Test
+    void should_skipSync_when_basePathMissing() {
+        // GIVEN
+        ProjectInfo missing = new ProjectInfo(UUID.randomUUID(), "proj", root.resolve("nope").toString(), null, null);
+
+        // WHEN
+        SyncReport report = service.sync(missing);
+
+        // THEN
+        assertThat(report.filesScanned()).isZero();
+        verify(projectInfoSPI, never()).markSynced(anyString(), any());
+    }
+
+    @Test
+    void should_syncOnlyGivenFiles_when_syncFiles() throws IOException {
+        // GIVEN
+        Path touched = Files.writeString(root.resolve("touched.md"), "# Touched\n\nnew text");
+        Files.writeString(root.resolve("other.md"), "not touched");
+        Path deleted = root.resolve("deleted.md");
+        SyncedFile removed = SyncedFile.builder().projectCode("proj").docPath("deleted.md").contentHash("h").build();
+        when(syncedFileRepository.findByProjectCodeAndDocPath("proj", "touched.md")).thenReturn(Optional.empty());
+        when(syncedFileRepository.findByProjectCodeAndDocPath("proj", "deleted.md")).thenReturn(Optional.of(removed));
+        when(persistenceService.upsertDocument(any())).thenReturn(new UpsertResult("proj", "touched.md", 1, 1, 0, 0));
+
+        // WHEN
+        SyncReport report = service.syncFiles(project, List.of(touched, deleted));
+
+        // THEN
+        ArgumentCaptor<IngestDocument> doc = ArgumentCaptor.forClass(IngestDocument.class);
+        verify(persistenceService).upsertDocument(doc.capture());
+        assertThat(doc.getValue().docPath()).isEqualTo("touched.md");
+        assertThat(report.filesChanged()).isEqualTo(1);
+        assertThat(report.filesDeleted()).isEqualTo(1);
+        verify(persistenceService).deleteDocument("proj", "deleted.md");
+        verify(syncedFileRepository, never()).findAllByProjectCode(anyString());
+        verify(projectInfoSPI, never()).markSynced(anyString(), any());
+    }
+
+    @Test
+    void should_onlyReconcileSubtree_when_syncSubtree() throws IOException {
+        // GIVEN
+        Path dir = Files.createDirectories(root.resolve("guides"));
+        SyncedFile inside = SyncedFile.builder().projectCode("proj").docPath("guides/old.md").contentHash("h").build();
+        SyncedFile outside = SyncedFile.builder().projectCode("proj").docPath("readme.md").contentHash("h").build();
+        when(syncedFileRepository.findAllByProjectCode("proj")).thenReturn(List.of(inside, outside));
+
+        // WHEN
+        SyncReport report = service.syncSubtree(project, dir);
+
+        // THEN
+        assertThat(report.filesDeleted()).isEqualTo(1);
+        verify(persistenceService).deleteDocument("proj", "guides/old.md");
+        verify(persistenceService, never()).deleteDocument("proj", "readme.md");
+    }
+}
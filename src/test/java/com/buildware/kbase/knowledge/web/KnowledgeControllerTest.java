@@ -2,16 +2,39 @@ package com.buildware.kbase.knowledge.web;
 
 import static com.buildware.kbase.toolkit.instancio.InstancioUtils.random;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.buildware.kbase.knowledge.domain.BulkIngestResult;
+import com.buildware.kbase.knowledge.domain.IngestDocument;
+import com.buildware.kbase.knowledge.domain.IngestJob;
+import com.buildware.kbase.knowledge.domain.IngestJob.Status;
 import com.buildware.kbase.knowledge.domain.KnowledgeHit;
+import com.buildware.kbase.knowledge.domain.LoadResult;
+import com.buildware.kbase.knowledge.domain.SearchOptions;
+import com.buildware.kbase.knowledge.domain.UpsertResult;
+import com.buildware.kbase.knowledge.service.IngestJobService;
+import com.buildware.kbase.knowledge.service.KnowledgeBulkIngestService;
+import com.buildware.kbase.knowledge.service.KnowledgeBulkLoadService;
 import com.buildware.kbase.knowledge.service.KnowledgePersistenceService;
 import com.buildware.kbase.knowledge.service.KnowledgeQueryService;
+import com.buildware.kbase.knowledge.service.KnowledgeStreamIngestService;
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -34,11 +57,23 @@ class KnowledgeControllerTest {
     @MockitoBean
     private KnowledgePersistenceService knowledgePersistenceService;
 
+    @MockitoBean
+    private IngestJobService ingestJobService;
+
+    @MockitoBean
+    private KnowledgeBulkIngestService bulkIngestService;
+
+    @MockitoBean
+    private KnowledgeBulkLoadService bulkLoadService;
+
+    @MockitoBean
+    private KnowledgeStreamIngestService streamIngestService;
+
     @Test
     void should_returnOkAndResults_when_validRequest() throws Exception {
         // GIVEN
         KnowledgeHit h = random(KnowledgeHit.class);
-        when(knowledgeQueryService.query(eq("proj"), eq("q"), eq(5), eq(null)))
+        when(knowledgeQueryService.query(eq("proj"), eq("q"), eq(5), eq(null), eq(SearchOptions.DEFAULTS)))
             .thenReturn(List.of(h));
 
         // WHEN
@@ -54,6 +89,41 @@ class KnowledgeControllerTest {
         assertThat(json).contains(h.text());
     }
 
+    @Test
+    void should_passSearchOptions_when_requested() throws Exception {
+        // GIVEN
+        when(knowledgeQueryService.query(eq("proj"), eq("q"), eq(5), eq(null), eq(new SearchOptions(20, 200))))
+            .thenReturn(List.of());
+
+        // WHEN / THEN
+        mockMvc.perform(get("/knowledge/search")
+                .param("projectCode", "proj")
+                .param("query", "q")
+                .param("oversampling", "20")
+                .param("efSearch", "200")
+            )
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void should_searchByVector_when_postedWithVector() throws Exception {
+        // GIVEN
+        KnowledgeHit h = random(KnowledgeHit.class);
+        when(knowledgeQueryService.queryByVector(eq("proj"), aryEq(new float[] {0.5f, -0.25f}), eq("m"), eq(3),
+            eq(List.of("a")), eq(SearchOptions.DEFAULTS)))
+            .thenReturn(List.of(h));
+
+        // WHEN
+        MvcResult res = mockMvc.perform(post("/knowledge/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"projectCode\":\"proj\",\"vector\":[0.5,-0.25],\"model\":\"m\",\"topK\":3,\"tags\":[\"a\"]}"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // THEN
+        assertThat(res.getResponse().getContentAsString()).contains(h.text());
+    }
+
     @Test
     void should_returnCreated_when_ingestValid() throws Exception {
         // GIVEN
@@ -72,4 +142,147 @@ class KnowledgeControllerTest {
         assertThat(json).contains("p1");
         assertThat(json).contains("ingestedChunks");
     }
+
+    @Test
+    void should_returnAccepted_when_asyncIngestValid() throws Exception {
+        // GIVEN
+        UUID jobId = UUID.randomUUID();
+        IngestJob job = IngestJob.builder().id(jobId).projectCode("p1").status(Status.QUEUED).createdAt(Instant.now()).build();
+        when(ingestJobService.isEnabled()).thenReturn(true);
+        when(ingestJobService.submit(any())).thenReturn(job);
+
+        // WHEN
+        MvcResult res = mockMvc.perform(post("/knowledge/ingest/async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"projectCode\":\"p1\",\"content\":\"something\"}"))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("Location", "/knowledge/ingest/" + jobId))
+            .andReturn();
+
+        // THEN
+        String json = res.getResponse().getContentAsString();
+        assertThat(json).contains(jobId.toString());
+        assertThat(json).contains("QUEUED");
+    }
+
+    @Test
+    void should_returnServiceUnavailable_when_asyncIngestDisabled() throws Exception {
+        // GIVEN
+        when(ingestJobService.isEnabled()).thenReturn(false);
+
+        // WHEN / THEN
+        mockMvc.perform(post("/knowledge/ingest/async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"projectCode\":\"p1\",\"content\":\"something\"}"))
+            .andExpect(status().isServiceUnavailable());
+        verify(ingestJobService, never()).submit(any());
+    }
+
+    @Test
+    void should_returnNotFound_when_jobUnknown() throws Exception {
+        // GIVEN
+        UUID jobId = UUID.randomUUID();
+        when(ingestJobService.find(jobId)).thenReturn(Optional.empty());
+
+        // WHEN / THEN
+        mockMvc.perform(get("/knowledge/ingest/" + jobId))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void should_streamOneResultLinePerDocument_when_bulkIngest() throws Exception {
+        // GIVEN
+        doAnswer(inv -> {
+            Iterator<IngestDocument> docs = inv.getArgument(0);
+            Consumer<BulkIngestResult> results = inv.getArgument(1);
+            int index = 0;
+            while (docs.hasNext()) {
+                IngestDocument doc = docs.next();
+                results.accept(BulkIngestResult.ingested(++index, doc.projectCode(), 2));
+            }
+            return null;
+        }).when(bulkIngestService).ingest(any(), any());
+
+        // WHEN
+        MvcResult res = mockMvc.perform(post("/knowledge/ingest/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("""
+                    {"projectCode":"p1","content":"one"}
+                    {"projectCode":"p2","content":"two"}
+                    """))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // THEN
+        String[] lines = res.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"index\":1", "p1", "INGESTED");
+        assertThat(lines[1]).contains("\"index\":2", "p2");
+    }
+
+    @Test
+    void should_loadAllLines_when_bulkLoad() throws Exception {
+        // GIVEN
+        when(bulkLoadService.load(eq("p1"), any())).thenAnswer(inv -> {
+            Iterator<IngestDocument> docs = inv.getArgument(1);
+            int documents = 0;
+            while (docs.hasNext()) {
+                docs.next();
+                documents++;
+            }
+            return new LoadResult("p1", documents, 4, 0);
+        });
+
+        // WHEN
+        MvcResult res = mockMvc.perform(put("/knowledge/load")
+                .param("projectCode", "p1")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("""
+                    {"projectCode":"p1","content":"one"}
+                    {"projectCode":"p1","content":"two"}
+                    """))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // THEN
+        assertThat(res.getResponse().getContentAsString()).contains("\"documents\":2", "\"chunks\":4");
+    }
+
+    @Test
+    void should_ingestRawBody_when_streamIngest() throws Exception {
+        // GIVEN
+        when(streamIngestService.ingest(eq("p1"), eq(List.of("log")), eq(null), any())).thenReturn(12);
+
+        // WHEN
+        MvcResult res = mockMvc.perform(post("/knowledge/ingest/stream")
+                .param("projectCode", "p1")
+                .param("tags", "log")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content("a very large transcript"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // THEN
+        String json = res.getResponse().getContentAsString();
+        assertThat(json).contains("p1");
+        assertThat(json).contains("12");
+    }
+
+    @Test
+    void should_returnDiffCounts_when_upsertValid() throws Exception {
+        // GIVEN
+        when(knowledgePersistenceService.upsertDocument(any()))
+            .thenReturn(new UpsertResult("p1", "docs/a.md", 10, 2, 8, 1));
+
+        // WHEN
+        MvcResult res = mockMvc.perform(put("/knowledge/ingest")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"projectCode\":\"p1\",\"content\":\"something\",\"docPath\":\"docs/a.md\"}"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // THEN
+        String json = res.getResponse().getContentAsString();
+        assertThat(json).contains("\"embeddedChunks\":2", "\"unchangedChunks\":8", "\"deletedChunks\":1");
+    }
 }
@@ -5,13 +5,16 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 
 import com.buildware.kbase.ai.mcp.KnowledgeMcpTool;
+import com.buildware.kbase.ai.mcp.KnowledgeMcpTool.IngestJobInput;
 import com.buildware.kbase.spi.KnowledgeIngestionSPI;
 import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestCommand;
+import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestJobView;
 import com.buildware.kbase.spi.KnowledgeIngestionSPI.KnowledgeIngestSummaryView;
 import com.buildware.kbase.spi.KnowledgeSearchSPI;
 import com.buildware.kbase.spi.KnowledgeSearchSPI.KnowledgeHitView;
 import com.buildware.kbase.spi.KnowledgeSearchSPI.KnowledgeQuery;
 import java.util.List;
+import java.util.Optional;
 import org.instancio.junit.InstancioExtension;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -65,4 +68,17 @@ class KnowledgeMcpToolTest {
         assertThat(actual.projectCode()).isEqualTo(expected.projectCode());
         assertThat(actual.ingestedChunks()).isEqualTo(expected.ingestedChunks());
     }
+
+    @Test
+    void should_returnJobStatus_when_jobExists() {
+        // GIVEN
+        KnowledgeIngestJobView expected = random(KnowledgeIngestJobView.class);
+        when(maintenancePort.getJob(expected.jobId())).thenReturn(Optional.of(expected));
+
+        // WHEN
+        KnowledgeIngestJobView actual = tool.ingestStatus(new IngestJobInput(expected.jobId()));
+
+        // THEN
+        assertThat(actual).isEqualTo(expected);
+    }
 }
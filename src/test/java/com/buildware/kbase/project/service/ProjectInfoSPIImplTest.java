@@ -37,7 +37,7 @@ class ProjectInfoSPIImplTest {
         void should_returnProjectInfo_when_codeExists() {
             // GIVEN
             Project project = random(Project.class).withCode("acme");
-            ProjectInfo info = new ProjectInfo(randomUUID(), project.getCode(), project.getBasePath());
+            ProjectInfo info = new ProjectInfo(randomUUID(), project.getCode(), project.getBasePath(), null, null);
             when(projectService.getByCode("acme")).thenReturn(Optional.of(project));
             when(projectMapper.toView(project)).thenReturn(info);
 
@@ -70,8 +70,8 @@ class ProjectInfoSPIImplTest {
             Project b = Project.builder().code("b").basePath("/b").build();
             when(projectService.listProjects(false)).thenReturn(List.of(b, a));
 
-            ProjectInfo ia = new ProjectInfo(randomUUID(), "a", "/a");
-            ProjectInfo ib = new ProjectInfo(randomUUID(), "b", "/b");
+            ProjectInfo ia = new ProjectInfo(randomUUID(), "a", "/a", null, null);
+            ProjectInfo ib = new ProjectInfo(randomUUID(), "b", "/b", null, null);
             when(projectMapper.toView(a)).thenReturn(ia);
             when(projectMapper.toView(b)).thenReturn(ib);
 
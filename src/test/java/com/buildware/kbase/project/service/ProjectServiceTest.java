@@ -4,6 +4,8 @@ import static com.buildware.kbase.toolkit.instancio.InstancioUtils.random;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -11,6 +13,8 @@ import static org.mockito.Mockito.when;
 import com.buildware.kbase.project.domain.Project;
 import com.buildware.kbase.project.domain.Project.Visibility;
 import com.buildware.kbase.project.repository.ProjectRepository;
+import com.buildware.kbase.spi.KnowledgeStorageSPI;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import org.instancio.junit.InstancioExtension;
@@ -27,6 +31,9 @@ class ProjectServiceTest {
     @Mock
     private ProjectRepository projectRepository;
 
+    @Mock
+    private KnowledgeStorageSPI knowledgeStorage;
+
     @InjectMocks
     private ProjectService service;
 
@@ -51,6 +58,7 @@ class ProjectServiceTest {
             // THEN
             assertThat(saved.getVisibility()).isEqualTo(Visibility.PUBLIC);
             verify(projectRepository, times(1)).save(any(Project.class));
+            verify(knowledgeStorage).createProjectStorage("gift-boxes");
         }
 
         @Test
@@ -70,6 +78,7 @@ class ProjectServiceTest {
             assertThat(thrown)
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("already exists");
+            verify(knowledgeStorage, never()).createProjectStorage(any());
         }
     }
 
@@ -137,6 +146,32 @@ class ProjectServiceTest {
 
             // THEN
             verify(projectRepository, times(1)).deleteById(existing.getId());
+            verify(knowledgeStorage).dropProjectStorage("c1");
+        }
+
+        @Test
+        void should_dropStorageBeforeCreatingItAgain_when_projectRecreatedUnderSameCode() {
+            // GIVEN
+            var existing = random(Project.class).withCode("c1");
+            var recreated = Project.builder()
+                .code("c1")
+                .name("Recreated")
+                .basePath("/tmp/c1")
+                .build();
+            when(projectRepository.findByCode("c1")).thenReturn(Optional.of(existing));
+            when(projectRepository.existsByCode("c1")).thenReturn(false);
+            when(projectRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+            // WHEN
+            service.deleteByCode("c1");
+            service.create(recreated);
+
+            // THEN
+            var order = inOrder(projectRepository, knowledgeStorage);
+            order.verify(projectRepository).deleteById(existing.getId());
+            order.verify(knowledgeStorage).dropProjectStorage("c1");
+            order.verify(projectRepository).save(recreated);
+            order.verify(knowledgeStorage).createProjectStorage("c1");
         }
 
         @Test
@@ -147,6 +182,25 @@ class ProjectServiceTest {
             // WHEN
             service.deleteByCode("missing");
 
+            // THEN
+            verify(knowledgeStorage, never()).dropProjectStorage(any());
+        }
+    }
+
+    @Nested
+    class MarkSynced {
+        @Test
+        void should_setLastSyncAt_when_found() {
+            // GIVEN
+            var existing = random(Project.class).withCode("c1");
+            var syncedAt = Instant.parse("2024-05-01T10:00:00Z");
+            when(projectRepository.findByCode("c1")).thenReturn(Optional.of(existing));
+
+            // WHEN
+            service.markSynced("c1", syncedAt);
+
+            // THEN
+            assertThat(existing.getLastSyncAt()).isEqualTo(syncedAt);
         }
     }
 